@@ -0,0 +1,18 @@
+package com.hosecloud.demo;
+
+/**
+ * 基准测试使用的插件实例，只在benchmark profile中编译
+ */
+public final class BenchmarkPlugins {
+
+    private BenchmarkPlugins() {
+    }
+
+    /**
+     * 请求发送到指定地址的豆包AI插件
+     * @param apiUrl 对话接口地址
+     */
+    public static DoubaoAiPlugin doubaoAi(String apiUrl) {
+        return new DoubaoAiPlugin(apiUrl);
+    }
+}
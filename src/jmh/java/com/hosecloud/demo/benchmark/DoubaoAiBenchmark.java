@@ -0,0 +1,103 @@
+package com.hosecloud.demo.benchmark;
+
+import com.hosecloud.demo.BenchmarkPlugins;
+import com.hosecloud.demo.DoubaoAiPlugin;
+import com.hosecloud.demo.vo.DoubaoAiResult;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DoubaoAiPlugin的基准测试，请求发送到本地的桩服务
+ * <p>
+ * 桩服务读取完整的请求体后立即返回固定的chat/completions响应，
+ * 测量结果反映插件自身构建请求、建立连接和解析响应的开销，不包含模型推理时间。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DoubaoAiBenchmark {
+
+    private static final byte[] RESPONSE = ("{\"id\":\"bench\",\"object\":\"chat.completion\",\"model\":\"doubao-1-5-vision-pro-32k-250115\","
+            + "\"choices\":[{\"index\":0,\"finish_reason\":\"stop\",\"message\":{\"role\":\"assistant\","
+            + "\"content\":\"这是一张办公室的照片，桌上放着显示器和键盘。\"}}],"
+            + "\"usage\":{\"prompt_tokens\":120,\"completion_tokens\":24,\"total_tokens\":144}}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 是否在请求中带图片链接
+     */
+    @Param({"false", "true"})
+    public boolean withImage;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    private String apiUrl;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/v3/chat/completions", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.readAllBytes();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, RESPONSE.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(RESPONSE);
+            }
+        });
+        executor = Executors.newFixedThreadPool(4);
+        server.setExecutor(executor);
+        server.start();
+        apiUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v3/chat/completions";
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public DoubaoAiResult run(HeapPeak heap) throws Exception {
+        DoubaoAiPlugin plugin = BenchmarkPlugins.doubaoAi(apiUrl);
+        ExcelParseBenchmark.setExecuteLogs(plugin);
+        plugin.setApiKey("benchmark-key");
+        plugin.setContent("这是哪里");
+        if (withImage) {
+            plugin.setImageUrl("https://example.com/image.jpg");
+        }
+        DoubaoAiResult result = plugin.run();
+        if (result.getContent() == null) {
+            throw new IllegalStateException(result.getMessage());
+        }
+        heap.sample();
+        return result;
+    }
+}
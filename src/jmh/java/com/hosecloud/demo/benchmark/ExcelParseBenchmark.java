@@ -0,0 +1,122 @@
+package com.hosecloud.demo.benchmark;
+
+import com.hosecloud.demo.ExcelParsePlugin;
+import com.hosecloud.demo.service.ExcelItemBinder;
+import com.hosecloud.demo.vo.ExcelItem;
+import com.hosecloud.demo.vo.ExcelParseResult;
+import com.hosecloud.hab.plugin.BaseTaskPlugin;
+import com.hosecloud.hab.plugin.model.Log;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExcelParsePlugin的吞吐量基准测试
+ * <p>
+ * {@link #run(HeapPeak)}测量从读取文件到生成结果的完整解析过程，
+ * {@link #bindItems(HeapPeak)}只测量解析时使用的{@link ExcelItemBinder}把单元格值绑定为ExcelItem的过程。
+ * 可以通过{@code -p parseMode=WORKBOOK}、{@code -p outputType=ITEMS}等参数比较不同的解析选项。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+public class ExcelParseBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"STREAMING"})
+    public String parseMode;
+
+    @Param({"ALL"})
+    public String outputType;
+
+    private String excelUrl;
+
+    private List<String> headers;
+
+    /**
+     * 按表头顺序存放的单元格值
+     */
+    private List<Object[]> valueRows;
+
+    private int[] serialNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        excelUrl = SyntheticWorkbooks.expenseWorkbook(rows).toUri().toString();
+
+        ExcelParsePlugin plugin = newPlugin();
+        plugin.setOutputType("ROWS");
+        ExcelParseResult result = plugin.run();
+        List<Map<String, Object>> dataList = result.getDataList();
+        if (dataList == null || dataList.size() != rows) {
+            throw new IllegalStateException("基准测试数据解析失败: " + result.getMessage());
+        }
+        headers = result.getHeaders();
+        valueRows = new ArrayList<>(dataList.size());
+        serialNumbers = new int[dataList.size()];
+        for (int i = 0; i < dataList.size(); i++) {
+            Map<String, Object> row = dataList.get(i);
+            Object[] values = new Object[headers.size()];
+            for (int column = 0; column < values.length; column++) {
+                values[column] = row.get(headers.get(column));
+            }
+            valueRows.add(values);
+            serialNumbers[i] = ExcelItemBinder.toIntValue(row.get("序号"));
+        }
+    }
+
+    @Benchmark
+    public ExcelParseResult run(HeapPeak heap) throws Exception {
+        ExcelParsePlugin plugin = newPlugin();
+        plugin.setOutputType(outputType);
+        ExcelParseResult result = plugin.run();
+        heap.sample();
+        return result;
+    }
+
+    @Benchmark
+    public List<ExcelItem> bindItems(HeapPeak heap) {
+        ExcelItemBinder binder = new ExcelItemBinder(headers);
+        List<ExcelItem> items = new ArrayList<>(valueRows.size());
+        for (int i = 0; i < valueRows.size(); i++) {
+            items.add(binder.bind(serialNumbers[i], valueRows.get(i)));
+        }
+        heap.sample();
+        return items;
+    }
+
+    private ExcelParsePlugin newPlugin() throws Exception {
+        ExcelParsePlugin plugin = new ExcelParsePlugin();
+        setExecuteLogs(plugin);
+        plugin.setExcelUrl(excelUrl);
+        plugin.setHeaderRowIndex(1);
+        plugin.setParseMode(parseMode);
+        return plugin;
+    }
+
+    static void setExecuteLogs(BaseTaskPlugin plugin) throws Exception {
+        Field field = BaseTaskPlugin.class.getDeclaredField("executeLogs");
+        field.setAccessible(true);
+        field.set(plugin, new ArrayList<Log>());
+    }
+}
@@ -0,0 +1,50 @@
+package com.hosecloud.demo.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 堆内存峰值计数器，作为JMH的辅助指标随结果一起输出
+ * <p>
+ * 每轮迭代开始时重置各堆内存池的峰值，基准方法每次调用后记录各内存池峰值之和的最大值（MB）。
+ * 各内存池的峰值不一定出现在同一时刻，因此结果是峰值的上限。
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class HeapPeak {
+
+    private static final List<MemoryPoolMXBean> HEAP_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .collect(Collectors.toList());
+
+    /**
+     * 本轮迭代的堆内存峰值（MB）
+     */
+    public double peakHeapMb;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        HEAP_POOLS.forEach(MemoryPoolMXBean::resetPeakUsage);
+        peakHeapMb = 0;
+    }
+
+    /**
+     * 记录当前的堆内存峰值
+     */
+    public void sample() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : HEAP_POOLS) {
+            used += pool.getPeakUsage().getUsed();
+        }
+        peakHeapMb = Math.max(peakHeapMb, used / (1024.0 * 1024.0));
+    }
+}
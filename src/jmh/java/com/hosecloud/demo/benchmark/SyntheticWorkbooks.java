@@ -0,0 +1,106 @@
+package com.hosecloud.demo.benchmark;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+
+/**
+ * 生成基准测试用的采购明细工作簿
+ * <p>
+ * 列与{@code ExcelItem}一致：日期列、小数列、取值重复的部门和费用类型列，照片和备注列只有少数行有值。
+ * 字符串写入共享字符串表，与Excel保存的文件相同。生成的文件按行数缓存在{@code target/jmh-data}中，
+ * 可通过系统属性{@code jmh.dataDir}修改目录。
+ */
+public final class SyntheticWorkbooks {
+
+    static final String[] HEADERS = {
+            "采购日期", "物品名称", "费用类型", "使用部门", "用途摘要", "数量", "单位", "单价", "金额", "照片", "备注"
+    };
+
+    private static final String[] ITEM_NAMES = {
+            "显示器", "键盘", "鼠标", "打印纸", "墨盒", "笔记本电脑", "投影仪", "办公椅", "文件柜", "白板",
+            "签字笔", "订书机", "路由器", "交换机", "网线", "移动硬盘", "U盘", "耳机", "摄像头", "扩展坞"
+    };
+
+    private static final String[] EXPENSE_TYPES = {"办公用品", "电子设备", "耗材", "家具"};
+
+    private static final String[] DEPARTMENTS = {"研发部", "财务部", "人事部", "市场部", "销售部", "行政部", "法务部", "运营部"};
+
+    private static final String[] UNITS = {"台", "个", "箱", "把", "套"};
+
+    private static final LocalDate START_DATE = LocalDate.of(2023, 1, 1);
+
+    private SyntheticWorkbooks() {
+    }
+
+    /**
+     * 获取指定数据行数的工作簿文件，不存在时生成
+     * @param rows 数据行数（不含表头）
+     */
+    public static synchronized Path expenseWorkbook(int rows) throws IOException {
+        Path directory = Paths.get(System.getProperty("jmh.dataDir", "target/jmh-data"));
+        Path file = directory.resolve("expense-" + rows + ".xlsx");
+        if (Files.exists(file)) {
+            return file;
+        }
+        Files.createDirectories(directory);
+        Path partFile = directory.resolve(file.getFileName() + ".part");
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(null, 1000, true, true);
+             OutputStream out = Files.newOutputStream(partFile)) {
+            write(workbook, rows);
+            workbook.write(out);
+            workbook.dispose();
+        }
+        Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return file;
+    }
+
+    private static void write(SXSSFWorkbook workbook, int rows) {
+        Sheet sheet = workbook.createSheet("采购明细");
+        CellStyle dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+        CellStyle moneyStyle = workbook.createCellStyle();
+        moneyStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("#,##0.00"));
+
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < HEADERS.length; i++) {
+            headerRow.createCell(i).setCellValue(HEADERS[i]);
+        }
+        for (int i = 1; i <= rows; i++) {
+            Row row = sheet.createRow(i);
+            Cell dateCell = row.createCell(0);
+            dateCell.setCellStyle(dateStyle);
+            dateCell.setCellValue(START_DATE.plusDays(i % 730));
+            row.createCell(1).setCellValue(ITEM_NAMES[i % ITEM_NAMES.length]);
+            row.createCell(2).setCellValue(EXPENSE_TYPES[i % EXPENSE_TYPES.length]);
+            row.createCell(3).setCellValue(DEPARTMENTS[(i / 3) % DEPARTMENTS.length]);
+            row.createCell(4).setCellValue("项目" + (i % 500) + "日常采购");
+            int quantity = 1 + i % 20;
+            double unitPrice = 10 + (i % 9973) / 100.0;
+            row.createCell(5).setCellValue(quantity);
+            row.createCell(6).setCellValue(UNITS[i % UNITS.length]);
+            Cell priceCell = row.createCell(7);
+            priceCell.setCellStyle(moneyStyle);
+            priceCell.setCellValue(unitPrice);
+            Cell amountCell = row.createCell(8);
+            amountCell.setCellStyle(moneyStyle);
+            amountCell.setCellValue(Math.round(quantity * unitPrice * 100) / 100.0);
+            if (i % 50 == 0) {
+                row.createCell(9).setCellValue("https://example.com/photos/" + i + ".jpg");
+            }
+            if (i % 10 == 0) {
+                row.createCell(10).setCellValue("备注" + i);
+            }
+        }
+    }
+}
@@ -29,6 +29,11 @@ import java.util.Map;
 )
 public class DoubaoAiPlugin extends BaseTaskPlugin {
 
+    /**
+     * 默认的对话接口地址
+     */
+    private static final String DEFAULT_API_URL = "https://ark.cn-beijing.volces.com/api/v3/chat/completions";
+
     @JsonSchemaProperty(
             title = "API密钥",
             description = "豆包AI的API密钥",
@@ -53,6 +58,22 @@ public class DoubaoAiPlugin extends BaseTaskPlugin {
     )
     private String imageUrl;
 
+    /**
+     * 对话接口地址，不作为节点参数开放，避免API密钥被发送到任意地址
+     */
+    private final String apiUrl;
+
+    public DoubaoAiPlugin() {
+        this(DEFAULT_API_URL);
+    }
+
+    /**
+     * 指定对话接口地址，仅供基准测试连接本地桩服务
+     */
+    DoubaoAiPlugin(String apiUrl) {
+        this.apiUrl = apiUrl;
+    }
+
     @Override
     public String getName() {
         return "task-dynamic-doubao-ai";
@@ -65,7 +86,7 @@ public class DoubaoAiPlugin extends BaseTaskPlugin {
     public DoubaoAiResult run() {
         try {
             // 构建请求URL
-            URL url = new URL("https://ark.cn-beijing.volces.com/api/v3/chat/completions");
+            URL url = new URL(apiUrl);
             HttpURLConnection conn = (HttpURLConnection) url.openConnection();
             conn.setRequestMethod("POST");
             conn.setRequestProperty("Content-Type", "application/json");
@@ -1,22 +1,54 @@
 package com.hosecloud.demo;
 
 import com.hosecloud.demo.vo.ExcelItem;
+import com.hosecloud.demo.service.CellDecoder;
+import com.hosecloud.demo.service.CsvSheetReader;
+import com.hosecloud.demo.service.DownloadCache;
+import com.hosecloud.demo.service.ExcelParseException;
+import com.hosecloud.demo.service.ImageStore;
+import com.hosecloud.demo.service.LocalImageStore;
+import com.hosecloud.demo.service.NdjsonRowWriter;
+import com.hosecloud.demo.service.PageCursor;
+import com.hosecloud.demo.service.ParseBudget;
+import com.hosecloud.demo.service.ParseMetrics;
+import com.hosecloud.demo.service.ParseResultCache;
+import com.hosecloud.demo.service.ParseStats;
+import com.hosecloud.demo.service.RowAggregator;
+import com.hosecloud.demo.service.RowDeltaTracker;
+import com.hosecloud.demo.service.RowFilter;
+import com.hosecloud.demo.service.SheetDataCollector;
+import com.hosecloud.demo.service.SheetImageExtractor;
+import com.hosecloud.demo.service.SheetRowHandler;
+import com.hosecloud.demo.service.StreamingSheetReader;
+import com.hosecloud.demo.service.WorkbookSource;
+import com.hosecloud.demo.vo.BatchSummary;
 import com.hosecloud.demo.vo.ExcelParseResult;
 import com.hosecloud.hab.plugin.BaseTaskPlugin;
 import com.hosecloud.hab.plugin.annotation.Execute;
 import com.hosecloud.hab.plugin.annotation.JsonSchemaDefinition;
 import com.hosecloud.hab.plugin.annotation.JsonSchemaProperty;
 import com.hosecloud.hab.plugin.model.Log;
+import lombok.AccessLevel;
 import lombok.Setter;
+import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.pf4j.Extension;
 
-import java.io.InputStream;
-import java.net.URL;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 @Setter
@@ -27,10 +59,44 @@ import java.util.stream.Collectors;
 )
 public class ExcelParsePlugin extends BaseTaskPlugin {
 
+    private static final String PARSE_MODE_WORKBOOK = "WORKBOOK";
+
+    private static final String RESULT_FORMAT_COLUMNAR = "COLUMNAR";
+
+    private static final String OUTPUT_TYPE_ROWS = "ROWS";
+
+    private static final String OUTPUT_TYPE_ITEMS = "ITEMS";
+
+    private static final String OUTPUT_TYPE_NDJSON = "NDJSON";
+
+    private static final String OUTPUT_TYPE_NONE = "NONE";
+
+    private static final String FILE_FORMAT_XLSX = "XLSX";
+
+    private static final String FILE_FORMAT_CSV = "CSV";
+
+    private static final String FILE_FORMAT_TSV = "TSV";
+
+    private static final long DEFAULT_SPILL_THRESHOLD_BYTES = 4L * 1024 * 1024;
+
+    private static final long DEFAULT_CACHE_MEMORY_MB = 64;
+
+    private static final long DEFAULT_CACHE_DISK_MB = 512;
+
+    private static final long DEFAULT_DOWNLOAD_CACHE_MB = 1024;
+
+    private static final String ALL_SHEETS = "*";
+
+    private static final int DEFAULT_PARALLEL_ROW_THRESHOLD = 10000;
+
+    private static final int DEFAULT_SCHEMA_SAMPLE_ROWS = 100;
+
+    private static final int DEFAULT_DOWNLOAD_CONCURRENCY = 8;
+
     @JsonSchemaProperty(
             title = "Excel文件链接",
-            description = "需要解析的Excel文件URL链接",
-            required = true,
+            description = "需要解析的Excel文件URL链接，批量解析时使用excelUrls",
+            required = false,
             example = "https://example.com/sample.xlsx"
     )
     private String excelUrl;
@@ -51,6 +117,391 @@ public class ExcelParsePlugin extends BaseTaskPlugin {
     )
     private String sheetName;
 
+    @JsonSchemaProperty(
+            title = "解析模式",
+            description = "STREAMING：流式解析（默认），内存占用与行数基本无关；WORKBOOK：加载完整工作簿后解析",
+            required = false,
+            example = "STREAMING"
+    )
+    private String parseMode;
+
+    @JsonSchemaProperty(
+            title = "落盘阈值",
+            description = "远程文件大小（字节）不小于该值或大小未知时，先下载到临时文件再从磁盘读取，默认4194304（4MB）",
+            required = false,
+            example = "4194304"
+    )
+    private Long spillThresholdBytes;
+
+    @JsonSchemaProperty(
+            title = "起始偏移量",
+            description = "分页读取时跳过的数据行数（从0开始），指定分页游标时忽略",
+            required = false,
+            example = "0"
+    )
+    private Integer offset;
+
+    @JsonSchemaProperty(
+            title = "每页行数",
+            description = "分页读取时每页最多返回的数据行数，不指定则返回全部数据",
+            required = false,
+            example = "1000"
+    )
+    private Integer limit;
+
+    @JsonSchemaProperty(
+            title = "分页游标",
+            description = "上一页结果中的nextCursor，从上一页结束的位置继续读取，已返回的行不会重新解码",
+            required = false,
+            example = "djE6MTAwMjoxMDAwOjEyMzQ1"
+    )
+    private String cursor;
+
+    @JsonSchemaProperty(
+            title = "结果存储格式",
+            description = "ROWS：按行存储（默认）；COLUMNAR：按列存储，数值列使用基本类型数组，低基数字符串列使用字典编码，"
+                    + "dataList和items为按需生成的行视图，适合行数较多的工作表",
+            required = false,
+            example = "ROWS"
+    )
+    private String resultFormat;
+
+    @JsonSchemaProperty(
+            title = "输出内容",
+            description = "ALL：输出dataList和items（默认）；ROWS：只输出dataList；ITEMS：只输出items，不生成dataList；"
+                    + "NDJSON：数据行逐行写入gzip压缩的NDJSON文件，结果中只返回文件路径、行数、表头和摘要；"
+                    + "NONE：不输出数据行，只返回行数、表头和聚合结果",
+            required = false,
+            example = "ALL"
+    )
+    private String outputType;
+
+    @JsonSchemaProperty(
+            title = "读取列",
+            description = "需要读取的列名（表头），不指定则读取全部列；未指定的列在读取时直接跳过，"
+                    + "不出现在headers、dataList中，对应的items字段为空",
+            required = false,
+            example = "[\"采购日期\", \"使用部门\", \"金额\"]"
+    )
+    private List<String> columns;
+
+    @JsonSchemaProperty(
+            title = "启用结果缓存",
+            description = "按文件内容摘要和解析参数缓存解析结果，同一文件（即使链接不同）再次解析时直接返回缓存结果，默认不启用",
+            required = false,
+            example = "true"
+    )
+    private Boolean cacheEnabled;
+
+    @JsonSchemaProperty(
+            title = "缓存内存上限",
+            description = "结果缓存内存层的容量（MB），超出后按最近最少使用淘汰，默认64；缓存在进程内共享，只在第一次使用缓存时生效，与生效的配置不同时在执行日志中提示",
+            required = false,
+            example = "64"
+    )
+    private Long cacheMaxMemoryMb;
+
+    @JsonSchemaProperty(
+            title = "缓存目录",
+            description = "结果缓存磁盘层目录，指定后解析结果同时以gzip压缩的JSON保存到该目录，不指定则只使用内存缓存；"
+                    + "只在第一次使用缓存时生效",
+            required = false,
+            example = "/data/hab/excel-cache"
+    )
+    private String cacheDir;
+
+    @JsonSchemaProperty(
+            title = "缓存磁盘上限",
+            description = "结果缓存磁盘层的容量（MB），超出后淘汰最久未访问的文件，默认512；只在第一次使用缓存时生效",
+            required = false,
+            example = "512"
+    )
+    private Long cacheMaxDiskMb;
+
+    @JsonSchemaProperty(
+            title = "下载缓存目录",
+            description = "远程文件的本地下载缓存目录，指定后根据ETag/Last-Modified发送条件请求，文件未修改时直接读取本地缓存",
+            required = false,
+            example = "/data/hab/excel-downloads"
+    )
+    private String downloadCacheDir;
+
+    @JsonSchemaProperty(
+            title = "下载缓存上限",
+            description = "下载缓存的总大小（MB），超出后淘汰最久未使用的文件，默认1024",
+            required = false,
+            example = "1024"
+    )
+    private Long downloadCacheMaxMb;
+
+    @JsonSchemaProperty(
+            title = "工作表名称列表",
+            description = "一次解析多个工作表，传入\"*\"表示全部工作表，结果按工作表名称放在sheetResults中；指定后忽略sheetName",
+            required = false,
+            example = "[\"1月\", \"2月\"]"
+    )
+    private List<String> sheetNames;
+
+    @JsonSchemaProperty(
+            title = "并行解析线程数",
+            description = "多工作表解析时同时解析的工作表数量上限，默认为CPU核数",
+            required = false,
+            example = "4"
+    )
+    private Integer sheetParallelism;
+
+    @JsonSchemaProperty(
+            title = "并行解码",
+            description = "流式模式下将大工作表的数据行分块交给ForkJoin线程池并行解码，结果按原始行顺序合并，默认不启用",
+            required = false,
+            example = "true"
+    )
+    private Boolean parallelDecoding;
+
+    @JsonSchemaProperty(
+            title = "并行解码阈值",
+            description = "启用并行解码时，数据行超过该数量后才改为并行处理，较小的工作表始终单线程解析，默认10000",
+            required = false,
+            example = "10000"
+    )
+    private Integer parallelRowThreshold;
+
+    @JsonSchemaProperty(
+            title = "推断列类型",
+            description = "根据前若干行数据推断每列的类型（INTEGER、DECIMAL、DATE、BOOLEAN、TEXT），所有行的值统一转换为该类型，推断结果放在schema中，默认不启用",
+            required = false,
+            example = "true"
+    )
+    private Boolean inferSchema;
+
+    @JsonSchemaProperty(
+            title = "类型推断采样行数",
+            description = "推断列类型时采样的数据行数，默认100",
+            required = false,
+            example = "100"
+    )
+    private Integer schemaSampleRows;
+
+    @JsonSchemaProperty(
+            title = "文件格式",
+            description = "XLSX、CSV或TSV，不填时根据文件内容自动判断：非Excel文件按文本解析，分隔符根据第一行判断",
+            required = false,
+            example = "CSV"
+    )
+    private String fileFormat;
+
+    @JsonSchemaProperty(
+            title = "输出目录",
+            description = "outputType为NDJSON时数据文件的保存目录，默认为系统临时目录",
+            required = false,
+            example = "/data/hab/excel-output"
+    )
+    private String outputDir;
+
+    @JsonSchemaProperty(
+            title = "文件大小上限",
+            description = "文件大小（字节）超过该值时中止下载并返回错误，响应头声明的大小已超出时不读取内容，默认不限制",
+            required = false,
+            example = "104857600"
+    )
+    private Long maxDownloadBytes;
+
+    @JsonSchemaProperty(
+            title = "压缩比上限",
+            description = "xlsx中单个条目解压后与压缩后大小之比的上限，超出时视为恶意构造的压缩包并中止解析，默认不单独限制",
+            required = false,
+            example = "100"
+    )
+    private Double maxInflateRatio;
+
+    @JsonSchemaProperty(
+            title = "解压后大小上限",
+            description = "xlsx解压后的总大小（字节）上限，打开文件前按中央目录检查，读取工作表时再按实际解压的字节数检查，默认不限制",
+            required = false,
+            example = "1073741824"
+    )
+    private Long maxExpandedBytes;
+
+    @JsonSchemaProperty(
+            title = "行数上限",
+            description = "读取的数据行数（包括空行，多工作表时累计）超过该值时中止解析并返回错误，默认不限制",
+            required = false,
+            example = "1000000"
+    )
+    private Integer maxRows;
+
+    @JsonSchemaProperty(
+            title = "单元格数上限",
+            description = "读取的非空单元格数（多工作表时累计）超过该值时中止解析并返回错误，默认不限制",
+            required = false,
+            example = "20000000"
+    )
+    private Long maxCells;
+
+    @JsonSchemaProperty(
+            title = "共享字符串映射读取",
+            description = "流式模式下把共享字符串表写入临时文件并建立偏移索引，以内存映射方式按需解码，"
+                    + "适合包含大量不重复字符串的工作簿，默认不启用",
+            required = false,
+            example = "true"
+    )
+    private Boolean mappedSharedStrings;
+
+    @JsonSchemaProperty(
+            title = "增量标识",
+            description = "逻辑数据源的标识，指定后启用增量模式：按序号（或deltaKeyColumns指定的键列）与上一次同一标识的解析结果比较，"
+                    + "dataList和items只包含新增和内容变化的行，delta中列出新增、变化和删除的序号；不支持分页和结果缓存",
+            required = false,
+            example = "expense-report-2024"
+    )
+    private String deltaKey;
+
+    @JsonSchemaProperty(
+            title = "增量状态目录",
+            description = "增量模式下保存每行摘要的目录，默认为系统临时目录下的excel-delta",
+            required = false,
+            example = "/data/hab/excel-delta"
+    )
+    private String deltaDir;
+
+    @JsonSchemaProperty(
+            title = "增量键列",
+            description = "增量模式下用于对应行的列名，多列时按所有列的值共同对应；不指定则按序号（行位置）对应，"
+                    + "此时在中间插入或删除一行会使之后的所有行都视为变化。键列必须在读取的列中",
+            required = false,
+            example = "[\"单据编号\"]"
+    )
+    private List<String> deltaKeyColumns;
+
+    @JsonSchemaProperty(
+            title = "批量文件链接",
+            description = "一次解析多个文件，指定后忽略excelUrl；所有文件使用相同的解析参数，结果按链接放在batchResults中，"
+                    + "汇总统计放在batchSummary中，单个文件失败不影响其他文件",
+            required = false,
+            example = "[\"https://example.com/a.xlsx\", \"https://example.com/b.xlsx\"]"
+    )
+    private List<String> excelUrls;
+
+    @JsonSchemaProperty(
+            title = "并发下载数",
+            description = "批量解析时同时下载的文件数量上限，默认8",
+            required = false,
+            example = "8"
+    )
+    private Integer downloadConcurrency;
+
+    @JsonSchemaProperty(
+            title = "并发解析数",
+            description = "批量解析时同时解析的文件数量上限，默认为CPU核数；下载完成的文件立即交给解析线程，不等待其他文件下载",
+            required = false,
+            example = "4"
+    )
+    private Integer parseConcurrency;
+
+    @JsonSchemaProperty(
+            title = "按需下载",
+            description = "服务端支持HTTP Range请求时，只下载xlsx中解析需要的条目（工作簿、样式、共享字符串和选中的工作表），"
+                    + "不下载图片和其他工作表；不支持Range请求时下载完整文件，默认不启用",
+            required = false,
+            example = "true"
+    )
+    private Boolean rangeRequests;
+
+    @JsonSchemaProperty(
+            title = "提取嵌入图片",
+            description = "读取工作表中嵌入的图片，按图片左上角所在的行对应到数据行，图片保存后的引用设置为该行items的photoUrl；"
+                    + "图片从压缩包中直接写入存储，不在内存中缓存，默认不启用",
+            required = false,
+            example = "true"
+    )
+    private Boolean extractImages;
+
+    @JsonSchemaProperty(
+            title = "图片保存目录",
+            description = "提取嵌入图片时图片文件的保存目录，默认为系统临时目录下的excel-images；宿主注册了图片存储时忽略",
+            required = false,
+            example = "/data/hab/excel-images"
+    )
+    private String imageDir;
+
+    @JsonSchemaProperty(
+            title = "分组列",
+            description = "分组聚合的分组表达式，列名或month(列名)（按年月分组，结果为yyyy-MM）；不指定时所有行为一组",
+            required = false,
+            example = "[\"使用部门\", \"费用类型\"]"
+    )
+    private List<String> groupBy;
+
+    @JsonSchemaProperty(
+            title = "聚合",
+            description = "聚合表达式：count(*)、count(列名)、sum(列名)、min(列名)、max(列名)、avg(列名)，在读取行的同时计算，"
+                    + "结果放在aggregates中；只指定分组列时默认为count(*)",
+            required = false,
+            example = "[\"sum(金额)\", \"count(*)\"]"
+    )
+    private List<String> aggregates;
+
+    @JsonSchemaProperty(
+            title = "行过滤条件",
+            description = "只保留满足条件的数据行，比较（=、!=、>、>=、<、<=）可以用AND、OR和括号组合，文本值用单引号括起；"
+                    + "条件在读取行时判断，不满足条件的行不生成dataList和items；序号按行在工作表中的位置计算，过滤后不连续",
+            required = false,
+            example = "使用部门 = '研发部' AND 金额 > 1000"
+    )
+    private String filter;
+
+    /**
+     * 本次解析创建的NDJSON输出，解析失败时删除未完成的文件
+     */
+    private final List<NdjsonRowWriter> rowSinks = new ArrayList<>();
+
+    /**
+     * 本次解析的增量比较，解析成功后才保存状态
+     */
+    private final List<RowDeltaTracker> deltaTrackers = new ArrayList<>();
+
+    /**
+     * 本次解析的资源预算
+     */
+    @Setter(AccessLevel.NONE)
+    private ParseBudget budget;
+
+    /**
+     * 本次解析的嵌入图片提取器，未启用时为null
+     */
+    @Setter(AccessLevel.NONE)
+    private SheetImageExtractor imageExtractor;
+
+    /**
+     * 本次分页解析的文件内容摘要，写入游标指纹，未分页时为null
+     */
+    @Setter(AccessLevel.NONE)
+    private String pageContentHash;
+
+    /**
+     * 嵌入图片的存储方，由宿主注册，为null时写入imageDir
+     */
+    private static volatile ImageStore imageStore;
+
+    /**
+     * 解析指标的接收方，由宿主注册，所有插件实例共用
+     */
+    private static volatile ParseMetrics parseMetrics = ParseMetrics.NOOP;
+
+    /**
+     * 注册解析指标的接收方，传入null时恢复为不做任何处理的默认实现
+     */
+    public static void setParseMetrics(ParseMetrics metrics) {
+        parseMetrics = metrics != null ? metrics : ParseMetrics.NOOP;
+    }
+
+    /**
+     * 注册嵌入图片的存储方，传入null时恢复为写入本地目录
+     */
+    public static void setImageStore(ImageStore store) {
+        imageStore = store;
+    }
+
     @Override
     public String getName() {
         return "task-dynamic-excel-parse";
@@ -61,288 +512,684 @@ public class ExcelParsePlugin extends BaseTaskPlugin {
             outputClass = ExcelParseResult.class
     )
     public ExcelParseResult run() {
+        if (excelUrls != null && !excelUrls.isEmpty()) {
+            return runBatch();
+        }
+        ParseStats stats = new ParseStats();
+        return execute(stats, () -> {
+            // 下载Excel文件，超过落盘阈值时写入临时文件
+            WorkbookSource source = WorkbookSource.download(excelUrl, spillThreshold(), downloadCache(), budget, sheetSelector(),
+                    Boolean.TRUE.equals(extractImages));
+            stats.setBytesDownloaded(source.getDownloadedBytes());
+            stats.endPhase(ParseStats.PHASE_DOWNLOAD);
+            return source;
+        });
+    }
+    
+    /**
+     * 取得文件后解析，文件在解析结束后关闭
+     * @param download 下载文件，在创建资源预算之后调用
+     */
+    private ExcelParseResult execute(ParseStats stats, Callable<WorkbookSource> download) {
+        boolean success = false;
         try {
-            // 下载Excel文件
-            URL url = new URL(excelUrl);
-            try (InputStream inputStream = url.openStream()) {
-                // 创建工作簿
-                Workbook workbook = new XSSFWorkbook(inputStream);
-                
-                // 获取工作表
-                Sheet sheet;
-                if (sheetName != null && !sheetName.trim().isEmpty()) {
-                    sheet = workbook.getSheet(sheetName);
-                    if (sheet == null) {
-                        executeLogs.add(Log.failure("找不到名为 '" + sheetName + "' 的工作表"));
-                        return new ExcelParseResult("找不到名为 '" + sheetName + "' 的工作表");
-                    }
-                } else {
-                    sheet = workbook.getSheetAt(0);
+            budget = newBudget();
+            validateOptions();
+            imageExtractor = newImageExtractor();
+            try (WorkbookSource source = download.call()) {
+                if (source.isNotModified()) {
+                    executeLogs.add(Log.success("文件未修改，使用本地下载缓存"));
                 }
-                
-                // 获取表头行
-                Row headerRow = sheet.getRow(headerRowIndex - 1);
-                if (headerRow == null) {
-                    executeLogs.add(Log.failure("表头行不存在，请检查表头行号是否正确"));
-                    return new ExcelParseResult("表头行不存在，请检查表头行号是否正确");
+                if (source.isPartial()) {
+                    executeLogs.add(Log.success("按需下载" + source.getDownloadedBytes() + "字节（文件共" + source.getRemoteSize() + "字节）"));
                 }
-                
-                // 解析表头
-                List<String> headers = new ArrayList<>();
-                int lastCellNum = headerRow.getLastCellNum();
-                for (int i = 0; i < lastCellNum; i++) {
-                    Cell cell = headerRow.getCell(i);
-                    String headerName = getCellValueAsString(cell);
-                    // 如果表头为空，使用列索引作为表头
-                    if (headerName == null || headerName.trim().isEmpty()) {
-                        headerName = "Column" + (i + 1);
+                pageContentHash = isPaged() ? source.getContentHash() : null;
+                // 按文件内容查询结果缓存
+                String cacheKey = null;
+                ParseResultCache cache = null;
+                if (Boolean.TRUE.equals(cacheEnabled) && !OUTPUT_TYPE_NDJSON.equalsIgnoreCase(outputType) && !isDeltaMode()) {
+                    cacheKey = cacheKey(source);
+                    cache = resultCache();
+                    ParseResultCache.Hit hit = cache.get(cacheKey);
+                    stats.endPhase(ParseStats.PHASE_CACHE_LOOKUP);
+                    if (hit != null) {
+                        executeLogs.add(Log.success("解析结果缓存命中（" + (hit.getTier() == ParseResultCache.Tier.MEMORY ? "内存" : "磁盘") + "）"));
+                        stats.setCacheHit(true);
+                        success = true;
+                        return hit.getResult();
                     }
-                    headers.add(headerName);
+                    executeLogs.add(Log.success("解析结果缓存未命中"));
                 }
                 
-                // 解析数据行
-                List<Map<String, Object>> dataList = new ArrayList<>();
-                for (int i = headerRowIndex; i <= sheet.getLastRowNum(); i++) {
-                    Row dataRow = sheet.getRow(i);
-                    if (dataRow == null) continue;
-                    
-                    Map<String, Object> rowData = new LinkedHashMap<>();
-                    boolean hasData = false;
-                    
-                    // 添加序号字段
-                    rowData.put("序号", i - headerRowIndex + 1);
-                    
-                    for (int j = 0; j < headers.size(); j++) {
-                        Cell cell = dataRow.getCell(j);
-                        String headerName = headers.get(j);
-                        
-                        if (cell != null) {
-                            Object cellValue = getCellValue(cell);
-                            
-                            // 特殊处理日期格式
-                            if (headerName.contains("日期") && cellValue instanceof LocalDate) {
-                                LocalDate date = (LocalDate) cellValue;
-                                cellValue = date.format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
-                            }
-                            
-                            // 特殊处理数字格式
-                            if (cellValue instanceof Double) {
-                                Double numValue = (Double) cellValue;
-                                // 如果是整数，转换为整数显示
-                                if (numValue == Math.floor(numValue)) {
-                                    cellValue = numValue.longValue();
-                                }
-                            }
-                            
-                            rowData.put(headerName, cellValue);
-                            if (cellValue != null && !cellValue.toString().trim().isEmpty()) {
-                                hasData = true;
-                            }
-                        } else {
-                            rowData.put(headerName, null);
-                        }
+                ExcelParseResult result;
+                Byte delimiter = textDelimiter(source);
+                if (delimiter != null) {
+                    result = parseDelimited(source, delimiter, stats);
+                } else {
+                    // 打开zip包前按中央目录检查解压后大小和压缩比
+                    budget.checkPackage(source);
+                    try (OPCPackage pkg = source.openPackage()) {
+                        stats.endPhase(ParseStats.PHASE_OPEN);
+                        result = sheetNames != null && !sheetNames.isEmpty() ? parseSheets(pkg, stats) : parseSheet(pkg, stats);
                     }
-                    
-                    // 只添加非空行
-                    if (hasData) {
-                        dataList.add(rowData);
+                }
+                if (cacheKey != null) {
+                    try {
+                        cache.put(cacheKey, result);
+                    } catch (Exception e) {
+                        executeLogs.add(Log.failure("写入解析结果缓存失败: " + e.getMessage()));
                     }
+                    stats.endPhase(ParseStats.PHASE_CACHE_STORE);
                 }
-                
-                // 关闭工作簿
-                workbook.close();
-                
-                // 将数据转换为ExcelItem对象列表
-                List<ExcelItem> items = convertToExcelItems(dataList);
-                
-                // 记录日志
-                executeLogs.add(Log.success("成功解析Excel文件，共解析" + dataList.size() + "行数据"));
-                
-                // 返回结果
-                ExcelParseResult result = new ExcelParseResult();
-                result.setMessage("解析成功");
-                result.setHeaders(headers);
-                result.setDataList(dataList);
-                result.setItems(items);
+                if (imageExtractor != null && imageExtractor.getImageCount() > 0) {
+                    executeLogs.add(Log.success("提取" + imageExtractor.getImageCount() + "张嵌入图片"));
+                }
+                for (RowDeltaTracker tracker : deltaTrackers) {
+                    tracker.commit();
+                }
+                success = true;
                 return result;
             }
+        } catch (ExcelParseException e) {
+            discardRowSinks();
+            executeLogs.add(Log.failure(e.getMessage()));
+            return new ExcelParseResult(e.getMessage());
         } catch (Exception e) {
+            discardRowSinks();
             executeLogs.add(Log.failure("解析Excel文件失败: " + e.getMessage()));
             return new ExcelParseResult("解析Excel文件失败: " + e.getMessage());
+        } finally {
+            rowSinks.clear();
+            deltaTrackers.clear();
+            budget = null;
+            imageExtractor = null;
+            pageContentHash = null;
+            recordStats(stats, success);
         }
     }
     
     /**
-     * 将Map列表转换为ExcelItem对象列表
+     * 结束统计，成功时在执行日志中记录统计摘要，并交给宿主注册的指标接收方
      */
-    private List<ExcelItem> convertToExcelItems(List<Map<String, Object>> dataList) {
-        return dataList.stream().map(row -> {
-            ExcelItem item = new ExcelItem();
-            
-            // 设置序号
-            item.setSerialNumber(getIntValue(row, "序号"));
-            
-            // 设置采购日期
-            item.setPurchaseDate(getStringValue(row, "采购日期"));
-            
-            // 设置物品名称
-            item.setItemName(getStringValue(row, "物品名称"));
-            
-            // 设置费用类型
-            item.setExpenseType(getStringValue(row, "费用类型"));
-            
-            // 设置使用部门
-            item.setDepartment(getStringValue(row, "使用部门"));
-            
-            // 设置用途摘要
-            item.setPurpose(getStringValue(row, "用途摘要"));
-            
-            // 设置数量
-            item.setQuantity(getIntValue(row, "数量"));
-            
-            // 设置单位
-            item.setUnit(getStringValue(row, "单位"));
-            
-            // 设置单价
-            item.setUnitPrice(getDoubleValue(row, "单价"));
-            
-            // 设置金额
-            item.setAmount(getDoubleValue(row, "金额"));
+    private void recordStats(ParseStats stats, boolean success) {
+        stats.finish(success);
+        if (success) {
+            executeLogs.add(Log.success("解析统计: " + stats.toJson()));
+        }
+        try {
+            parseMetrics.record(stats);
+        } catch (RuntimeException e) {
+            executeLogs.add(Log.failure("记录解析指标失败: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * 删除未完成的NDJSON输出文件
+     */
+    private void discardRowSinks() {
+        for (NdjsonRowWriter sink : rowSinks) {
+            sink.discard();
+        }
+    }
+    
+    /**
+     * 批量解析：下载在有界线程池中并发进行，每个文件下载完成后立即交给解析线程池，
+     * 慢速下载不会阻塞已下载文件的解析。每个文件由复制了当前参数的插件实例独立解析。
+     */
+    private ExcelParseResult runBatch() {
+        long startNanos = System.nanoTime();
+        List<String> urls = new ArrayList<>(new LinkedHashSet<>(excelUrls));
+        ExecutorService downloadPool = null;
+        ExecutorService parsePool = null;
+        try {
+            if (cursor != null && !cursor.trim().isEmpty()) {
+                throw new ExcelParseException("批量解析不支持分页游标");
+            }
+            validateOptions();
+            int downloads = downloadConcurrency != null && downloadConcurrency > 0 ? downloadConcurrency : DEFAULT_DOWNLOAD_CONCURRENCY;
+            int parsers = parseConcurrency != null && parseConcurrency > 0
+                    ? parseConcurrency : Runtime.getRuntime().availableProcessors();
+            downloadPool = Executors.newFixedThreadPool(Math.min(downloads, urls.size()));
+            parsePool = Executors.newFixedThreadPool(Math.min(parsers, urls.size()));
+            DownloadCache cache = downloadCache();
+            long spillThreshold = spillThreshold();
             
-            // 设置照片URL
-            item.setPhotoUrl(getStringValue(row, "照片"));
+            List<ExcelParsePlugin> plugins = new ArrayList<>();
+            List<ParseStats> statsList = new ArrayList<>();
+            List<CompletableFuture<ExcelParseResult>> futures = new ArrayList<>();
+            for (String url : urls) {
+                ExcelParsePlugin plugin = forUrl(url);
+                ParseStats stats = new ParseStats();
+                ParseBudget downloadBudget = newBudget();
+                CompletableFuture<WorkbookSource> downloaded = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        WorkbookSource source = WorkbookSource.download(url, spillThreshold, cache, downloadBudget,
+                                plugin.sheetSelector(), Boolean.TRUE.equals(extractImages));
+                        stats.setBytesDownloaded(source.getDownloadedBytes());
+                        stats.endPhase(ParseStats.PHASE_DOWNLOAD);
+                        return source;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, downloadPool);
+                futures.add(downloaded.handleAsync((source, error) -> plugin.execute(stats, () -> {
+                    if (error != null) {
+                        throw unwrap(error);
+                    }
+                    stats.endPhase(ParseStats.PHASE_QUEUE);
+                    return source;
+                }), parsePool));
+                plugins.add(plugin);
+                statsList.add(stats);
+            }
             
-            // 设置备注
-            item.setRemark(getStringValue(row, "备注"));
+            Map<String, ExcelParseResult> batchResults = new LinkedHashMap<>();
+            BatchSummary summary = new BatchSummary();
+            summary.setFileCount(urls.size());
+            for (int i = 0; i < urls.size(); i++) {
+                ExcelParseResult result = futures.get(i).join();
+                ParseStats stats = statsList.get(i);
+                batchResults.put(urls.get(i), result);
+                // 每个文件的日志加上链接前缀，按excelUrls的顺序合并
+                for (Log log : plugins.get(i).executeLogs) {
+                    String message = urls.get(i) + ": " + log.getMessage();
+                    executeLogs.add(log.isSuccess() ? Log.success(message) : Log.failure(message));
+                }
+                if (stats.isSuccess()) {
+                    summary.setSuccessCount(summary.getSuccessCount() + 1);
+                    summary.setRowCount(summary.getRowCount() + (result.getRowCount() != null ? result.getRowCount() : 0));
+                } else {
+                    summary.setFailureCount(summary.getFailureCount() + 1);
+                }
+                summary.setBytesDownloaded(summary.getBytesDownloaded() + stats.getBytesDownloaded());
+            }
+            summary.setTotalMillis((System.nanoTime() - startNanos) / 1_000_000);
+            executeLogs.add(Log.success("批量解析完成，共" + summary.getFileCount() + "个文件，成功" + summary.getSuccessCount()
+                    + "个，失败" + summary.getFailureCount() + "个，共解析" + summary.getRowCount() + "行数据"));
             
-            return item;
-        }).collect(Collectors.toList());
+            ExcelParseResult result = new ExcelParseResult(summary.getFailureCount() == 0 ? "解析成功" : "部分文件解析失败");
+            result.setBatchResults(batchResults);
+            result.setBatchSummary(summary);
+            return result;
+        } catch (ExcelParseException e) {
+            executeLogs.add(Log.failure(e.getMessage()));
+            return new ExcelParseResult(e.getMessage());
+        } catch (Exception e) {
+            executeLogs.add(Log.failure("批量解析失败: " + e.getMessage()));
+            return new ExcelParseResult("批量解析失败: " + e.getMessage());
+        } finally {
+            if (downloadPool != null) {
+                downloadPool.shutdownNow();
+            }
+            if (parsePool != null) {
+                parsePool.shutdownNow();
+            }
+        }
     }
     
     /**
-     * 从Map中获取字符串值
+     * 复制当前插件的所有输入参数，用于批量解析中的单个文件
      */
-    private String getStringValue(Map<String, Object> row, String key) {
-        Object value = row.get(key);
-        return value != null ? value.toString() : null;
+    private ExcelParsePlugin forUrl(String url) throws IllegalAccessException {
+        ExcelParsePlugin plugin = new ExcelParsePlugin();
+        for (Field field : ExcelParsePlugin.class.getDeclaredFields()) {
+            if (field.isAnnotationPresent(JsonSchemaProperty.class)) {
+                field.set(plugin, field.get(this));
+            }
+        }
+        plugin.excelUrl = url;
+        plugin.excelUrls = null;
+        plugin.executeLogs = new ArrayList<>();
+        if (isDeltaMode()) {
+            // 每个文件分别保存增量状态
+            plugin.deltaKey = deltaKey.trim() + "\u0000" + url;
+        }
+        return plugin;
     }
     
     /**
-     * 从Map中获取整数值
+     * 取出异步下载失败的原始异常
      */
-    private Integer getIntValue(Map<String, Object> row, String key) {
-        Object value = row.get(key);
-        if (value == null) return null;
-        
-        if (value instanceof Number) {
-            return ((Number) value).intValue();
+    private static Exception unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof UncheckedIOException) {
+            return ((UncheckedIOException) cause).getCause();
         }
-        
-        try {
-            return Integer.parseInt(value.toString());
-        } catch (NumberFormatException e) {
-            return null;
+        return cause instanceof Exception ? (Exception) cause : new IllegalStateException(cause);
+    }
+    
+    /**
+     * 检查互相冲突的解析参数
+     */
+    private void validateOptions() {
+        if (isDeltaMode() && (offset != null || limit != null || (cursor != null && !cursor.trim().isEmpty()))) {
+            throw new ExcelParseException("增量模式不支持分页读取");
         }
     }
     
     /**
-     * 从Map中获取浮点数值
+     * 按当前配置创建资源预算
      */
-    private Double getDoubleValue(Map<String, Object> row, String key) {
-        Object value = row.get(key);
-        if (value == null) return null;
-        
-        if (value instanceof Number) {
-            return ((Number) value).doubleValue();
+    private ParseBudget newBudget() {
+        return new ParseBudget(maxDownloadBytes, maxInflateRatio, maxExpandedBytes, maxRows, maxCells);
+    }
+    
+    /**
+     * 落盘阈值，远程文件超过该大小时写入临时文件
+     */
+    private long spillThreshold() {
+        return spillThresholdBytes != null ? spillThresholdBytes : DEFAULT_SPILL_THRESHOLD_BYTES;
+    }
+    
+    /**
+     * 解析单个工作表
+     */
+    private ExcelParseResult parseSheet(OPCPackage pkg, ParseStats stats) throws Exception {
+        SheetDataCollector collector = newCollector(sheetName);
+        if (PARSE_MODE_WORKBOOK.equalsIgnoreCase(parseMode)) {
+            // 创建工作簿
+            try (Workbook workbook = new XSSFWorkbook(pkg)) {
+                stats.endPhase(ParseStats.PHASE_LOAD_WORKBOOK);
+                readSheet(workbook, sheetName, collector);
+            }
+        } else {
+            // 流式读取，不构建工作簿对象模型
+            try (StreamingSheetReader reader = newStreamingReader(pkg)) {
+                stats.endPhase(ParseStats.PHASE_SHARED_STRINGS);
+                reader.read(sheetName, headerRowIndex, collector);
+            }
         }
+        stats.addDecoded(collector.getDecodedRows(), collector.getDecodedCells());
+        stats.endPhase(ParseStats.PHASE_DECODE);
         
-        try {
-            return Double.parseDouble(value.toString());
-        } catch (NumberFormatException e) {
+        // 记录日志
+        executeLogs.add(Log.success("成功解析Excel文件，共解析" + collector.getRowCount() + "行数据"
+                + (collector.getNextPage() != null ? "，还有更多数据" : "")));
+        ExcelParseResult result = toResult(collector);
+        stats.endPhase(ParseStats.PHASE_BUILD_RESULT);
+        return result;
+    }
+    
+    /**
+     * 确定文本文件的分隔符，Excel文件返回null
+     */
+    private Byte textDelimiter(WorkbookSource source) throws IOException {
+        if (FILE_FORMAT_CSV.equalsIgnoreCase(fileFormat)) {
+            return (byte) ',';
+        }
+        if (FILE_FORMAT_TSV.equalsIgnoreCase(fileFormat)) {
+            return (byte) '\t';
+        }
+        if (FILE_FORMAT_XLSX.equalsIgnoreCase(fileFormat) || source.isBinaryWorkbook()) {
             return null;
         }
+        return CsvSheetReader.sniffDelimiter(source.getContent());
     }
     
     /**
-     * 获取单元格的值（字符串形式）
+     * 解析CSV/TSV文件，结果与解析只有一个工作表的Excel文件一致
      */
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) return "";
+    private ExcelParseResult parseDelimited(WorkbookSource source, byte delimiter, ParseStats stats) throws IOException {
+        if (sheetNames != null && !sheetNames.isEmpty()) {
+            throw new ExcelParseException("CSV/TSV文件只有一个工作表，不支持多工作表解析");
+        }
+        SheetDataCollector collector = newCollector(sheetName);
+        CsvSheetReader reader = new CsvSheetReader(source.getContent(), delimiter);
+        stats.endPhase(ParseStats.PHASE_OPEN);
+        reader.read(headerRowIndex, collector);
+        stats.addDecoded(collector.getDecodedRows(), collector.getDecodedCells());
+        stats.endPhase(ParseStats.PHASE_DECODE);
         
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getLocalDateTimeCellValue().toString();
-                } else {
-                    double value = cell.getNumericCellValue();
-                    // 如果是整数，返回整数形式
-                    if (value == Math.floor(value)) {
-                        return String.valueOf((long) value);
-                    }
-                    // 避免数值显示为科学计数法
-                    return String.valueOf(value);
+        executeLogs.add(Log.success("成功解析" + (delimiter == '\t' ? "TSV" : "CSV") + "文件（" + reader.getCharset().name()
+                + "编码），共解析" + collector.getRowCount() + "行数据" + (collector.getNextPage() != null ? "，还有更多数据" : "")));
+        ExcelParseResult result = toResult(collector);
+        stats.endPhase(ParseStats.PHASE_BUILD_RESULT);
+        return result;
+    }
+    
+    /**
+     * 解析多个工作表，流式模式下在有界线程池中并行解析，共享同一个OPC包和共享字符串表
+     */
+    private ExcelParseResult parseSheets(OPCPackage pkg, ParseStats stats) throws Exception {
+        if (cursor != null && !cursor.trim().isEmpty()) {
+            throw new ExcelParseException("多工作表解析不支持分页游标，请通过sheetName指定工作表后继续读取");
+        }
+        Map<String, SheetDataCollector> collectors = new LinkedHashMap<>();
+        if (PARSE_MODE_WORKBOOK.equalsIgnoreCase(parseMode)) {
+            // 工作簿对象模型不支持并发读取，逐个解析
+            try (Workbook workbook = new XSSFWorkbook(pkg)) {
+                stats.endPhase(ParseStats.PHASE_LOAD_WORKBOOK);
+                List<String> names = new ArrayList<>();
+                for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+                    names.add(workbook.getSheetName(i));
                 }
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
+                for (String name : selectSheets(names)) {
+                    SheetDataCollector collector = newCollector(name);
+                    readSheet(workbook, name, collector);
+                    collectors.put(name, collector);
+                }
+            }
+        } else {
+            try (StreamingSheetReader reader = newStreamingReader(pkg)) {
+                stats.endPhase(ParseStats.PHASE_SHARED_STRINGS);
+                List<String> selected = selectSheets(reader.getSheetNames());
+                int parallelism = sheetParallelism != null && sheetParallelism > 0
+                        ? sheetParallelism : Runtime.getRuntime().availableProcessors();
+                ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, selected.size())));
                 try {
-                    double value = cell.getNumericCellValue();
-                    if (value == Math.floor(value)) {
-                        return String.valueOf((long) value);
-                    }
-                    return String.valueOf(value);
-                } catch (Exception e) {
-                    try {
-                        return cell.getStringCellValue();
-                    } catch (Exception ex) {
-                        return cell.getCellFormula();
-                    }
+                    collectors = reader.readAll(selected, headerRowIndex, this::newCollector, executor);
+                } finally {
+                    executor.shutdownNow();
                 }
-            default:
-                return "";
+            }
+        }
+        
+        for (SheetDataCollector collector : collectors.values()) {
+            stats.addDecoded(collector.getDecodedRows(), collector.getDecodedCells());
+        }
+        stats.endPhase(ParseStats.PHASE_DECODE);
+        
+        Map<String, ExcelParseResult> sheetResults = new LinkedHashMap<>();
+        int rowCount = 0;
+        for (Map.Entry<String, SheetDataCollector> entry : collectors.entrySet()) {
+            sheetResults.put(entry.getKey(), toResult(entry.getValue()));
+            rowCount += entry.getValue().getRowCount();
+        }
+        executeLogs.add(Log.success("成功解析" + sheetResults.size() + "个工作表，共解析" + rowCount + "行数据"));
+        
+        ExcelParseResult result = new ExcelParseResult("解析成功");
+        result.setSheetResults(sheetResults);
+        stats.endPhase(ParseStats.PHASE_BUILD_RESULT);
+        return result;
+    }
+    
+    /**
+     * 按当前配置创建流式读取器
+     */
+    private StreamingSheetReader newStreamingReader(OPCPackage pkg) throws Exception {
+        StreamingSheetReader reader = new StreamingSheetReader(pkg, Boolean.TRUE.equals(mappedSharedStrings));
+        reader.setBudget(budget);
+        reader.setImageExtractor(imageExtractor);
+        if (Boolean.TRUE.equals(parallelDecoding)) {
+            int threshold = parallelRowThreshold != null ? parallelRowThreshold : DEFAULT_PARALLEL_ROW_THRESHOLD;
+            reader.setParallelDecoding(ForkJoinPool.commonPool(), threshold);
+        }
+        return reader;
+    }
+    
+    /**
+     * 按当前配置创建嵌入图片提取器，未启用时返回null
+     */
+    private SheetImageExtractor newImageExtractor() {
+        if (!Boolean.TRUE.equals(extractImages)) {
+            return null;
+        }
+        ImageStore store = imageStore;
+        if (store == null) {
+            store = new LocalImageStore(imageDir != null && !imageDir.trim().isEmpty()
+                    ? Paths.get(imageDir.trim()) : Paths.get(System.getProperty("java.io.tmpdir"), "excel-images"));
+        }
+        return new SheetImageExtractor(store);
+    }
+    
+    /**
+     * 按需下载时选择需要下载的工作表，未启用按需下载或文件为CSV/TSV时返回null
+     */
+    private UnaryOperator<List<String>> sheetSelector() {
+        if (!Boolean.TRUE.equals(rangeRequests) || FILE_FORMAT_CSV.equalsIgnoreCase(fileFormat)
+                || FILE_FORMAT_TSV.equalsIgnoreCase(fileFormat)) {
+            return null;
+        }
+        return available -> {
+            if (PARSE_MODE_WORKBOOK.equalsIgnoreCase(parseMode)) {
+                // 工作簿对象模型加载时读取所有工作表
+                return available;
+            }
+            if (sheetNames != null && !sheetNames.isEmpty()) {
+                return selectSheets(available);
+            }
+            if (sheetName == null || sheetName.trim().isEmpty()) {
+                return available.isEmpty() ? available : available.subList(0, 1);
+            }
+            return available.stream().filter(name -> name.equalsIgnoreCase(sheetName)).collect(Collectors.toList());
+        };
+    }
+    
+    /**
+     * 按sheetNames选择工作表，结果按工作簿中的顺序，名称不区分大小写
+     */
+    private List<String> selectSheets(List<String> available) {
+        if (sheetNames.contains(ALL_SHEETS)) {
+            return available;
+        }
+        Set<String> selected = new HashSet<>();
+        for (String requested : sheetNames) {
+            String match = available.stream()
+                    .filter(name -> name.equalsIgnoreCase(requested.trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new ExcelParseException("找不到名为 '" + requested + "' 的工作表"));
+            selected.add(match);
+        }
+        return available.stream().filter(selected::contains).collect(Collectors.toList());
+    }
+    
+    /**
+     * 按当前配置创建工作表的行收集器
+     */
+    private SheetDataCollector newCollector(String sheet) {
+        boolean ndjson = OUTPUT_TYPE_NDJSON.equalsIgnoreCase(outputType);
+        boolean none = OUTPUT_TYPE_NONE.equalsIgnoreCase(outputType);
+        boolean columnar = RESULT_FORMAT_COLUMNAR.equalsIgnoreCase(resultFormat) && !ndjson && !none;
+        SheetDataCollector collector = new SheetDataCollector(headerRowIndex, columnar);
+        collector.setOutputs(!OUTPUT_TYPE_ITEMS.equalsIgnoreCase(outputType) && !none,
+                !OUTPUT_TYPE_ROWS.equalsIgnoreCase(outputType) && !none);
+        if ((groupBy != null && !groupBy.isEmpty()) || (aggregates != null && !aggregates.isEmpty())) {
+            collector.setAggregator(new RowAggregator(groupBy,
+                    aggregates != null && !aggregates.isEmpty() ? aggregates : List.of("count(*)")));
+        }
+        if (filter != null && !filter.trim().isEmpty()) {
+            collector.setFilter(new RowFilter(filter));
+        }
+        if (ndjson) {
+            Path directory = outputDir != null && !outputDir.trim().isEmpty()
+                    ? Paths.get(outputDir.trim()) : Paths.get(System.getProperty("java.io.tmpdir"));
+            NdjsonRowWriter sink = new NdjsonRowWriter(directory);
+            rowSinks.add(sink);
+            collector.setRowSink(sink);
+        }
+        collector.setColumns(columns);
+        if (isDeltaMode()) {
+            Path directory = deltaDir != null && !deltaDir.trim().isEmpty()
+                    ? Paths.get(deltaDir.trim()) : Paths.get(System.getProperty("java.io.tmpdir"), "excel-delta");
+            // 工作表名称参与状态文件的定位，多工作表时每个工作表分别比较
+            RowDeltaTracker tracker = new RowDeltaTracker(directory, deltaKey.trim() + "\u0000" + Objects.toString(sheet, ""),
+                    headerRowIndex + "\u0000" + inferSchema + "\u0000" + schemaSampleRows
+                            + "\u0000" + Objects.toString(filter, ""),
+                    deltaKeyColumns != null ? deltaKeyColumns.stream().map(String::trim).collect(Collectors.toList()) : null);
+            deltaTrackers.add(tracker);
+            collector.setDeltaTracker(tracker);
+        }
+        if (budget != null && budget.limitsRows()) {
+            collector.setBudget(budget);
+        }
+        configurePage(collector, sheet);
+        if (Boolean.TRUE.equals(inferSchema)) {
+            collector.setSchemaInference(schemaSampleRows != null && schemaSampleRows > 0
+                    ? schemaSampleRows : DEFAULT_SCHEMA_SAMPLE_ROWS);
+        }
+        return collector;
+    }
+    
+    /**
+     * 由收集器生成工作表的解析结果
+     */
+    private static ExcelParseResult toResult(SheetDataCollector collector) {
+        PageCursor nextPage = collector.getNextPage();
+        ExcelParseResult result = new ExcelParseResult();
+        result.setMessage("解析成功");
+        result.setHeaders(collector.getHeaders());
+        result.setSchema(collector.getSchema());
+        result.setAggregates(collector.getAggregator() != null ? collector.getAggregator().getResults() : null);
+        result.setDataList(collector.getDataList());
+        // ExcelItem在读取行时已直接生成，列式模式下按需转换
+        result.setItems(collector.getItems());
+        result.setHasMore(collector.isPaged() ? nextPage != null : null);
+        result.setNextCursor(nextPage != null ? nextPage.encode() : null);
+        result.setColumnarData(collector.getTable());
+        result.setRowCount(collector.getRowCount());
+        RowDeltaTracker deltaTracker = collector.getDeltaTracker();
+        if (deltaTracker != null) {
+            result.setDelta(deltaTracker.finish());
+        }
+        NdjsonRowWriter sink = collector.getRowSink();
+        if (sink != null) {
+            result.setOutputFile(sink.getFile().toString());
+            result.setOutputChecksum(sink.getChecksum());
         }
+        return result;
     }
     
     /**
-     * 获取单元格的值（保留原始类型）
+     * 是否分页读取
      */
-    private Object getCellValue(Cell cell) {
-        if (cell == null) return null;
+    private boolean isPaged() {
+        return offset != null || limit != null || (cursor != null && !cursor.trim().isEmpty());
+    }
+    
+    /**
+     * 是否启用增量模式
+     */
+    private boolean isDeltaMode() {
+        return deltaKey != null && !deltaKey.trim().isEmpty();
+    }
+    
+    /**
+     * 按当前配置创建下载缓存，未指定目录时返回null
+     */
+    private DownloadCache downloadCache() {
+        if (downloadCacheDir == null || downloadCacheDir.trim().isEmpty()) {
+            return null;
+        }
+        long maxMb = downloadCacheMaxMb != null ? downloadCacheMaxMb : DEFAULT_DOWNLOAD_CACHE_MB;
+        return new DownloadCache(Paths.get(downloadCacheDir.trim()), maxMb * 1024 * 1024);
+    }
+    
+    /**
+     * 按当前配置获取结果缓存
+     */
+    private ParseResultCache resultCache() {
+        ParseResultCache cache = ParseResultCache.getInstance();
+        long memoryMb = cacheMaxMemoryMb != null ? cacheMaxMemoryMb : DEFAULT_CACHE_MEMORY_MB;
+        long diskMb = cacheMaxDiskMb != null ? cacheMaxDiskMb : DEFAULT_CACHE_DISK_MB;
+        Path directory = cacheDir != null && !cacheDir.trim().isEmpty() ? Paths.get(cacheDir.trim()) : null;
+        // 缓存在进程内共享，只有第一次使用缓存时的参数生效
+        if (!cache.initialize(memoryMb * 1024 * 1024, directory, diskMb * 1024 * 1024)) {
+            executeLogs.add(Log.failure("结果缓存已按其他配置初始化（" + cache.describe()
+                    + "），本次的cacheMaxMemoryMb、cacheDir、cacheMaxDiskMb未生效"));
+        }
+        return cache;
+    }
+    
+    /**
+     * 缓存键：文件内容摘要加上所有影响解析结果的参数
+     */
+    private String cacheKey(WorkbookSource source) throws IOException {
+        return ParseResultCache.key(source.getContentHash(), headerRowIndex, sheetName, resultFormat, outputType,
+                columns, offset, limit, cursor, sheetNames, inferSchema, schemaSampleRows, fileFormat,
+                extractImages, imageDir, groupBy, aggregates, filter,
+                // 预算更小的调用不能命中预算更大时缓存的结果
+                maxRows, maxCells, maxExpandedBytes, maxInflateRatio);
+    }
+    
+    /**
+     * 根据分页参数设置读取范围
+     */
+    private void configurePage(SheetDataCollector collector, String sheet) {
+        if (!isPaged()) {
+            return;
+        }
+        if (offset != null && offset < 0) {
+            throw new ExcelParseException("起始偏移量不能小于0");
+        }
+        int pageLimit = limit != null && limit > 0 ? limit : Integer.MAX_VALUE;
+        // 文件内容和所有影响行选择或单元格取值的参数都参与指纹，任一不同时游标失效：
+        // 过滤条件和读取列决定偏移量对应的行，游标中的列类型按列索引对应
+        String fingerprint = PageCursor.fingerprint(pageContentHash, sheet, headerRowIndex, filter, columns,
+                Boolean.TRUE.equals(inferSchema), schemaSampleRows, PARSE_MODE_WORKBOOK.equalsIgnoreCase(parseMode),
+                fileFormat != null ? fileFormat.trim().toUpperCase() : null, Boolean.TRUE.equals(extractImages));
+        if (cursor != null && !cursor.trim().isEmpty()) {
+            PageCursor page = PageCursor.decode(cursor, fingerprint);
+            collector.setPage(page.getRowIndex(), 0, page.getOffset(), pageLimit, fingerprint);
+            collector.setSchemaTypes(page.getTypes());
+        } else {
+            int skip = offset != null ? offset : 0;
+            collector.setPage(0, skip, skip, pageLimit, fingerprint);
+        }
+    }
+    
+    /**
+     * 使用工作簿对象模型读取工作表
+     */
+    private void readSheet(Workbook workbook, String name, SheetRowHandler handler) throws IOException {
+        // 获取工作表
+        Sheet sheet;
+        if (name != null && !name.trim().isEmpty()) {
+            sheet = workbook.getSheet(name);
+            if (sheet == null) {
+                throw new ExcelParseException("找不到名为 '" + name + "' 的工作表");
+            }
+        } else {
+            sheet = workbook.getSheetAt(0);
+        }
         
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getLocalDateTimeCellValue().toLocalDate();
-                } else {
-                    double value = cell.getNumericCellValue();
-                    // 如果是整数，返回整数类型
-                    if (value == Math.floor(value)) {
-                        return (long) value;
-                    }
-                    return value;
-                }
-            case BOOLEAN:
-                return cell.getBooleanCellValue();
-            case FORMULA:
-                try {
-                    double value = cell.getNumericCellValue();
-                    if (value == Math.floor(value)) {
-                        return (long) value;
-                    }
-                    return value;
-                } catch (Exception e) {
-                    try {
-                        return cell.getStringCellValue();
-                    } catch (Exception ex) {
-                        return cell.getCellFormula();
-                    }
+        if (imageExtractor != null) {
+            handler.onImages(imageExtractor.extract(sheet.getSheetName(), ((XSSFSheet) sheet).getPackagePart()));
+        }
+        
+        // 获取表头行
+        Row headerRow = sheet.getRow(headerRowIndex - 1);
+        if (headerRow == null) {
+            throw new ExcelParseException("表头行不存在，请检查表头行号是否正确");
+        }
+        
+        // 表头和数据行共用同一个解码器，日期格式按样式缓存
+        CellDecoder decoder = CellDecoder.forWorkbook(workbook);
+        
+        // 解析表头
+        List<String> headers = new ArrayList<>();
+        int lastCellNum = headerRow.getLastCellNum();
+        for (int i = 0; i < lastCellNum; i++) {
+            Cell cell = headerRow.getCell(i);
+            String headerName = CellDecoder.toHeaderString(decoder.decode(cell));
+            // 如果表头为空，使用列索引作为表头
+            if (headerName == null || headerName.trim().isEmpty()) {
+                headerName = "Column" + (i + 1);
+            }
+            headers.add(headerName);
+        }
+        handler.onHeaders(headers);
+        int[] columnPositions = handler.getColumnPositions();
+        int rowWidth = SheetRowHandler.rowWidth(columnPositions, headers.size());
+        
+        // 解析数据行
+        for (int i = Math.max(headerRowIndex, handler.getFirstRowIndex()); i <= sheet.getLastRowNum(); i++) {
+            Row dataRow = sheet.getRow(i);
+            if (dataRow == null) continue;
+            
+            Object[] values = new Object[rowWidth];
+            for (int j = 0; j < headers.size(); j++) {
+                int position = columnPositions != null ? columnPositions[j] : j;
+                if (position < 0) continue;
+                Cell cell = dataRow.getCell(j);
+                if (cell != null) {
+                    values[position] = CellDecoder.toDataValue(decoder.decode(cell));
                 }
-            default:
-                return null;
+            }
+            handler.onRow(i, values);
+            if (handler.isFinished()) {
+                break;
+            }
         }
+        handler.onEnd();
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,205 @@
+package com.hosecloud.demo.service;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.model.SharedStrings;
+
+import java.time.LocalDateTime;
+import java.util.function.IntFunction;
+
+/**
+ * 单元格解码器，流式读取和工作簿对象模型读取的表头、数据行共用同一套取值规则
+ * <p>
+ * 每个样式索引只解析一次数字格式，判断是否为日期格式后缓存结果，
+ * 之后同一样式的数值单元格不再调用{@link DateUtil#isADateFormat(int, String)}。
+ * 缓存可以被多个线程同时读写，重复计算的结果相同。
+ */
+public class CellDecoder {
+
+    private static final byte UNKNOWN = 0;
+
+    private static final byte DATE = 1;
+
+    private static final byte NOT_DATE = 2;
+
+    private final IntFunction<? extends CellStyle> styleLookup;
+
+    private final SharedStrings sharedStrings;
+
+    private final boolean date1904;
+
+    /**
+     * 按样式索引缓存的日期格式判断结果
+     */
+    private final byte[] dateStyles;
+
+    /**
+     * @param styleLookup 按索引获取单元格样式，为null时所有数值都不是日期
+     * @param styleCount 样式数量
+     * @param sharedStrings 共享字符串表，只用于解码工作表XML
+     * @param date1904 工作簿是否使用1904日期系统
+     */
+    public CellDecoder(IntFunction<? extends CellStyle> styleLookup, int styleCount,
+                       SharedStrings sharedStrings, boolean date1904) {
+        this.styleLookup = styleLookup;
+        this.sharedStrings = sharedStrings;
+        this.date1904 = date1904;
+        this.dateStyles = new byte[Math.max(styleCount, 0)];
+    }
+
+    /**
+     * 为工作簿对象模型创建解码器
+     */
+    public static CellDecoder forWorkbook(Workbook workbook) {
+        return new CellDecoder(workbook::getCellStyleAt, workbook.getNumCellStyles(), null, false);
+    }
+
+    /**
+     * 判断数值单元格是否为日期格式，对应DateUtil.isCellDateFormatted
+     */
+    public boolean isDateFormatted(int styleIndex, double value) {
+        return DateUtil.isValidExcelDate(value) && isDateStyle(styleIndex);
+    }
+
+    private boolean isDateStyle(int styleIndex) {
+        if (styleIndex < 0 || styleIndex >= dateStyles.length) {
+            return classify(styleIndex) == DATE;
+        }
+        byte kind = dateStyles[styleIndex];
+        if (kind == UNKNOWN) {
+            kind = classify(styleIndex);
+            dateStyles[styleIndex] = kind;
+        }
+        return kind == DATE;
+    }
+
+    private byte classify(int styleIndex) {
+        CellStyle style = styleLookup != null ? styleLookup.apply(styleIndex) : null;
+        return style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString()) ? DATE : NOT_DATE;
+    }
+
+    /**
+     * 解码工作表XML中的单元格，日期以LocalDateTime返回，空白单元格返回null
+     * @param type 单元格类型（t属性）
+     * @param styleIndex 样式索引（s属性）
+     * @param value 单元格值（v元素或内联字符串），没有值时为null
+     * @param formula 公式，不是公式时为null
+     */
+    public Object decode(String type, int styleIndex, String value, String formula) {
+        boolean isFormula = formula != null;
+        if ("s".equals(type)) {
+            if (value == null) {
+                return null;
+            }
+            int index = Integer.parseInt(value.trim());
+            if (sharedStrings instanceof MappedSharedStrings) {
+                // 直接解码为字符串，不创建XSSFRichTextString
+                return ((MappedSharedStrings) sharedStrings).getString(index);
+            }
+            return sharedStrings.getItemAt(index).getString();
+        }
+        if ("inlineStr".equals(type) || "str".equals(type) || "d".equals(type)) {
+            return value == null ? "" : value;
+        }
+        if ("b".equals(type)) {
+            return isFormula ? formula : Boolean.valueOf("1".equals(value));
+        }
+        if ("e".equals(type)) {
+            return isFormula ? formula : null;
+        }
+        // 数值单元格
+        if (value == null || value.isEmpty()) {
+            // 没有缓存结果的公式按0处理，与XSSFCell.getNumericCellValue一致
+            return isFormula ? (Object) 0L : null;
+        }
+        double number = Double.parseDouble(value);
+        if (!isFormula && isDateFormatted(styleIndex, number)) {
+            return DateUtil.getLocalDateTime(number, date1904);
+        }
+        return toNumber(number);
+    }
+
+    /**
+     * 解码工作簿对象模型中的单元格，取值规则与{@link #decode(String, int, String, String)}一致
+     */
+    public Object decode(Cell cell) {
+        if (cell == null) return null;
+
+        switch (cell.getCellType()) {
+            case STRING:
+                return cell.getStringCellValue();
+            case NUMERIC:
+                double value = cell.getNumericCellValue();
+                if (isDateFormatted(cell.getCellStyle().getIndex(), value)) {
+                    return cell.getLocalDateTimeCellValue();
+                }
+                return toNumber(value);
+            case BOOLEAN:
+                return cell.getBooleanCellValue();
+            case FORMULA:
+                try {
+                    return toNumber(cell.getNumericCellValue());
+                } catch (Exception e) {
+                    try {
+                        return cell.getStringCellValue();
+                    } catch (Exception ex) {
+                        return cell.getCellFormula();
+                    }
+                }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 整数返回Long，其他返回Double
+     */
+    private static Object toNumber(double value) {
+        if (value == Math.floor(value)) {
+            return (long) value;
+        }
+        return value;
+    }
+
+    /**
+     * 表头单元格的字符串形式，空单元格为空字符串
+     */
+    public static String toHeaderString(Object value) {
+        if (value == null) {
+            return "";
+        }
+        return value.toString();
+    }
+
+    /**
+     * 数据单元格的值，日期只保留日期部分
+     */
+    public static Object toDataValue(Object value) {
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).toLocalDate();
+        }
+        return value;
+    }
+
+    /**
+     * 判断单元格值是否为空，等价于{@code value.toString().trim().isEmpty()}，但不创建字符串
+     */
+    public static boolean isBlank(Object value) {
+        if (value == null) {
+            return true;
+        }
+        if (!(value instanceof CharSequence)) {
+            // 数字、布尔值和日期的字符串形式不会为空
+            return false;
+        }
+        CharSequence text = (CharSequence) value;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,349 @@
+package com.hosecloud.demo.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV/TSV读取器，直接扫描文件内容的字节
+ * <p>
+ * 文件通过{@link WorkbookSource#getContent()}以内存映射的方式读取，分隔符、引号和换行都是ASCII字符，
+ * 在UTF-8和GBK编码中都不会出现在多字节字符内部，因此可以不解码直接按字节切分字段，
+ * 只有被选中的字段才转换为字符串。没有引号的整数直接由字节计算，不创建字符串。
+ * <p>
+ * 取值规则与Excel打开CSV文件时一致：没有引号的数字转换为数值（以0开头的整数除外，按文本保留），
+ * 空字段为null，带引号的字段始终为文本。行号按记录计算，引号内的换行不产生新行。
+ */
+public class CsvSheetReader {
+
+    /**
+     * 用于判断编码的最大字节数
+     */
+    private static final int CHARSET_PROBE_BYTES = 64 * 1024;
+
+    /**
+     * 直接按字节计算的整数的最大位数
+     */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private final ByteBuffer content;
+
+    private final byte delimiter;
+
+    private final Charset charset;
+
+    private final int start;
+
+    private final int end;
+
+    private byte[] scratch = new byte[256];
+
+    private int pos;
+
+    private int fieldStart;
+
+    private int fieldEnd;
+
+    private boolean quoted;
+
+    private boolean escapedQuote;
+
+    private boolean recordEnd;
+
+    /**
+     * @param content 文件内容
+     * @param delimiter 分隔符，逗号或制表符
+     */
+    public CsvSheetReader(ByteBuffer content, byte delimiter) {
+        this.content = content;
+        this.delimiter = delimiter;
+        this.end = content.limit();
+        boolean bom = end >= 3 && content.get(0) == (byte) 0xEF && content.get(1) == (byte) 0xBB && content.get(2) == (byte) 0xBF;
+        this.start = bom ? 3 : 0;
+        this.charset = bom || isUtf8(content, start, Math.min(end, start + CHARSET_PROBE_BYTES), end)
+                ? StandardCharsets.UTF_8 : Charset.forName("GBK");
+    }
+
+    /**
+     * 根据第一行中引号外的逗号和制表符数量判断分隔符
+     */
+    public static byte sniffDelimiter(ByteBuffer content) {
+        int commas = 0;
+        int tabs = 0;
+        boolean inQuotes = false;
+        for (int i = 0; i < content.limit(); i++) {
+            byte b = content.get(i);
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (!inQuotes) {
+                if (b == '\n' || b == '\r') {
+                    break;
+                } else if (b == ',') {
+                    commas++;
+                } else if (b == '\t') {
+                    tabs++;
+                }
+            }
+        }
+        return tabs > commas ? (byte) '\t' : (byte) ',';
+    }
+
+    /**
+     * 检查字节是否为合法的UTF-8，末尾被截断的多字节字符视为合法
+     */
+    private static boolean isUtf8(ByteBuffer content, int from, int to, int limit) {
+        int i = from;
+        while (i < to) {
+            int b = content.get(i) & 0xFF;
+            int continuation;
+            if (b < 0x80) {
+                i++;
+                continue;
+            } else if (b >= 0xC2 && b <= 0xDF) {
+                continuation = 1;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                continuation = 2;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                continuation = 3;
+            } else {
+                return false;
+            }
+            for (int k = 1; k <= continuation; k++) {
+                if (i + k >= limit) {
+                    return true;
+                }
+                if ((content.get(i + k) & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+            i += continuation + 1;
+        }
+        return true;
+    }
+
+    /**
+     * 检测到的文件编码
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * 读取文件
+     * @param headerRowIndex 表头行号（从1开始计数）
+     * @param handler 行处理器
+     */
+    public void read(int headerRowIndex, SheetRowHandler handler) {
+        int headerRow = headerRowIndex - 1;
+        List<String> headers = null;
+        int[] columnPositions = null;
+        int rowWidth = 0;
+        pos = start;
+        for (int rowIndex = 0; pos < end; rowIndex++) {
+            if (rowIndex == headerRow) {
+                headers = readHeaders();
+                handler.onHeaders(headers);
+                columnPositions = handler.getColumnPositions();
+                rowWidth = SheetRowHandler.rowWidth(columnPositions, headers.size());
+            } else if (headers == null || rowIndex < handler.getFirstRowIndex()) {
+                skipRecord();
+            } else {
+                Object[] values = new Object[rowWidth];
+                int column = 0;
+                do {
+                    nextField();
+                    int position = position(columnPositions, headers.size(), column++);
+                    if (position >= 0) {
+                        values[position] = fieldValue();
+                    }
+                } while (!recordEnd);
+                handler.onRow(rowIndex, values);
+                if (handler.isFinished()) {
+                    break;
+                }
+            }
+        }
+        if (headers == null) {
+            throw new ExcelParseException("表头行不存在，请检查表头行号是否正确");
+        }
+        handler.onEnd();
+    }
+
+    private List<String> readHeaders() {
+        List<String> headers = new ArrayList<>();
+        do {
+            nextField();
+            String headerName = CellDecoder.toHeaderString(fieldValue());
+            // 如果表头为空，使用列索引作为表头
+            if (headerName.trim().isEmpty()) {
+                headerName = "Column" + (headers.size() + 1);
+            }
+            headers.add(headerName);
+        } while (!recordEnd);
+        return headers;
+    }
+
+    private static int position(int[] columnPositions, int headerCount, int column) {
+        if (columnPositions == null) {
+            return column < headerCount ? column : -1;
+        }
+        return column < columnPositions.length ? columnPositions[column] : -1;
+    }
+
+    private void skipRecord() {
+        do {
+            nextField();
+        } while (!recordEnd);
+    }
+
+    /**
+     * 定位下一个字段，结束后pos指向下一个字段或下一条记录的开头
+     */
+    private void nextField() {
+        quoted = false;
+        escapedQuote = false;
+        int i = pos;
+        if (i < end && content.get(i) == '"') {
+            quoted = true;
+            fieldStart = ++i;
+            while (true) {
+                if (i >= end) {
+                    // 引号没有闭合，取到文件末尾
+                    fieldEnd = end;
+                    break;
+                }
+                if (content.get(i) == '"') {
+                    if (i + 1 < end && content.get(i + 1) == '"') {
+                        escapedQuote = true;
+                        i += 2;
+                        continue;
+                    }
+                    fieldEnd = i++;
+                    break;
+                }
+                i++;
+            }
+        } else {
+            fieldStart = i;
+            while (i < end) {
+                byte b = content.get(i);
+                if (b == delimiter || b == '\n' || b == '\r') {
+                    break;
+                }
+                i++;
+            }
+            fieldEnd = i;
+        }
+        // 跳到分隔符或行尾，闭合引号之后的字符忽略
+        while (i < end) {
+            byte b = content.get(i++);
+            if (b == delimiter) {
+                pos = i;
+                recordEnd = false;
+                return;
+            }
+            if (b == '\n') {
+                break;
+            }
+            if (b == '\r') {
+                if (i < end && content.get(i) == '\n') {
+                    i++;
+                }
+                break;
+            }
+        }
+        pos = i;
+        recordEnd = true;
+    }
+
+    /**
+     * 当前字段的值
+     */
+    private Object fieldValue() {
+        int length = fieldEnd - fieldStart;
+        if (quoted) {
+            return text();
+        }
+        if (length == 0) {
+            return null;
+        }
+        Object number = number();
+        return number != null ? number : text();
+    }
+
+    /**
+     * 解析没有引号的数字，不是数字时返回null
+     */
+    private Object number() {
+        int i = fieldStart;
+        boolean negative = content.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        int digitsStart = i;
+        long value = 0;
+        while (i < fieldEnd) {
+            byte b = content.get(i);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            value = value * 10 + (b - '0');
+            i++;
+        }
+        int digits = i - digitsStart;
+        if (digits == 0 || (digits > 1 && content.get(digitsStart) == '0')) {
+            // 没有整数部分或以0开头，按文本保留
+            return null;
+        }
+        if (i == fieldEnd) {
+            if (digits <= MAX_LONG_DIGITS) {
+                return negative ? -value : value;
+            }
+            return toNumber(Double.parseDouble(text()));
+        }
+        if (content.get(i) != '.' || i + 1 == fieldEnd) {
+            return null;
+        }
+        for (i++; i < fieldEnd; i++) {
+            byte b = content.get(i);
+            if (b < '0' || b > '9') {
+                return null;
+            }
+        }
+        return toNumber(Double.parseDouble(text()));
+    }
+
+    private static Object toNumber(double value) {
+        if (value == Math.floor(value) && !Double.isInfinite(value)) {
+            return (long) value;
+        }
+        return value;
+    }
+
+    /**
+     * 当前字段的文本，转义的双引号还原为一个
+     */
+    private String text() {
+        int length = fieldEnd - fieldStart;
+        if (!escapedQuote && content.hasArray()) {
+            return new String(content.array(), content.arrayOffset() + fieldStart, length, charset);
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        content.get(fieldStart, scratch, 0, length);
+        if (escapedQuote) {
+            int n = 0;
+            for (int i = 0; i < length; i++) {
+                scratch[n++] = scratch[i];
+                if (scratch[i] == '"' && i + 1 < length && scratch[i + 1] == '"') {
+                    i++;
+                }
+            }
+            length = n;
+        }
+        return new String(scratch, 0, length, charset);
+    }
+}
@@ -0,0 +1,222 @@
+package com.hosecloud.demo.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 远程工作簿的本地下载缓存
+ * <p>
+ * 每个链接对应一个缓存文件和一个记录ETag、Last-Modified的元数据文件。再次下载时发送条件请求，
+ * 服务端返回304时直接使用缓存文件。缓存总大小超过上限时按最近使用时间淘汰。
+ * <p>
+ * 同一进程中使用同一目录的所有实例共享一把锁，缓存文件的替换、淘汰和读取互斥。返回给调用方的是缓存文件的硬链接
+ * （文件系统不支持硬链接时为副本），由调用方在使用完后删除，之后缓存文件被替换或淘汰不影响正在进行的解析。
+ * 元数据文件先写入临时文件再整体替换，替换缓存文件前先删除旧的元数据，中途失败时不会出现新文件配旧校验值的情况。
+ */
+public class DownloadCache {
+
+    private static final String DATA_SUFFIX = ".xlsx";
+
+    private static final String META_SUFFIX = ".properties";
+
+    private static final String ETAG = "etag";
+
+    private static final String LAST_MODIFIED = "lastModified";
+
+    /**
+     * 取出的缓存文件链接的后缀，不计入缓存大小，也不会被淘汰
+     */
+    private static final String CHECKOUT_SUFFIX = ".checkout";
+
+    /**
+     * 每个缓存目录一把锁
+     */
+    private static final Map<Path, Object> LOCKS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+
+    private final long maxBytes;
+
+    private final Object lock;
+
+    /**
+     * @param directory 缓存目录
+     * @param maxBytes 缓存文件总大小上限（字节）
+     */
+    public DownloadCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.lock = LOCKS.computeIfAbsent(directory.toAbsolutePath().normalize(), d -> new Object());
+    }
+
+    /**
+     * 为请求添加条件头，没有可用缓存时不做修改
+     */
+    public void prepare(HttpURLConnection connection) throws IOException {
+        String key = key(connection.getURL().toString());
+        Path data = directory.resolve(key + DATA_SUFFIX);
+        Properties meta;
+        synchronized (lock) {
+            meta = readMeta(key);
+            if (meta == null || !Files.isRegularFile(data)) {
+                return;
+            }
+        }
+        String etag = meta.getProperty(ETAG);
+        if (etag != null) {
+            connection.setRequestProperty("If-None-Match", etag);
+        }
+        String lastModified = meta.getProperty(LAST_MODIFIED);
+        if (lastModified != null) {
+            connection.setRequestProperty("If-Modified-Since", lastModified);
+        }
+    }
+
+    /**
+     * 服务端返回304时取出缓存文件，并更新其最近使用时间
+     * @return 缓存文件的链接，由调用方使用完后删除；缓存文件已被淘汰时返回null
+     */
+    public File revalidated(HttpURLConnection connection) throws IOException {
+        Path data = directory.resolve(key(connection.getURL().toString()) + DATA_SUFFIX);
+        synchronized (lock) {
+            if (!Files.isRegularFile(data)) {
+                return null;
+            }
+            Files.setLastModifiedTime(data, FileTime.fromMillis(System.currentTimeMillis()));
+            return checkout(data);
+        }
+    }
+
+    /**
+     * 判断响应是否带有可用于条件请求的校验头
+     */
+    public static boolean isCacheable(HttpURLConnection connection) {
+        return connection.getHeaderField("ETag") != null || connection.getHeaderField("Last-Modified") != null;
+    }
+
+    /**
+     * 将响应内容写入缓存，下载过程不持有锁
+     * @return 缓存文件的链接，由调用方使用完后删除
+     */
+    public File store(HttpURLConnection connection, InputStream inputStream) throws IOException {
+        String key = key(connection.getURL().toString());
+        Files.createDirectories(directory);
+        Path data = directory.resolve(key + DATA_SUFFIX);
+        Path metaFile = directory.resolve(key + META_SUFFIX);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        Path metaTemp = null;
+        try {
+            Files.copy(inputStream, temp, StandardCopyOption.REPLACE_EXISTING);
+            metaTemp = Files.createTempFile(directory, key, ".tmp");
+            try (OutputStream out = Files.newOutputStream(metaTemp)) {
+                meta(connection).store(out, null);
+            }
+            synchronized (lock) {
+                // 先删除旧的校验值，替换过程中断时下次按无缓存处理
+                Files.deleteIfExists(metaFile);
+                Files.move(temp, data, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.move(metaTemp, metaFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                evict(data);
+                return checkout(data);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+            if (metaTemp != null) {
+                Files.deleteIfExists(metaTemp);
+            }
+        }
+    }
+
+    private static Properties meta(HttpURLConnection connection) {
+        Properties meta = new Properties();
+        meta.setProperty("url", connection.getURL().toString());
+        String etag = connection.getHeaderField("ETag");
+        if (etag != null) {
+            meta.setProperty(ETAG, etag);
+        }
+        String lastModified = connection.getHeaderField("Last-Modified");
+        if (lastModified != null) {
+            meta.setProperty(LAST_MODIFIED, lastModified);
+        }
+        return meta;
+    }
+
+    /**
+     * 为缓存文件创建调用方独占的硬链接，之后缓存文件被替换或删除不影响该链接
+     */
+    private File checkout(Path data) throws IOException {
+        Path link = directory.resolve(UUID.randomUUID() + CHECKOUT_SUFFIX);
+        try {
+            Files.createLink(link, data);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(data, link, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return link.toFile();
+    }
+
+    private Properties readMeta(String key) throws IOException {
+        Path file = directory.resolve(key + META_SUFFIX);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        Properties meta = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            meta.load(in);
+        }
+        return meta;
+    }
+
+    /**
+     * 按最近使用时间淘汰缓存文件，刚写入的文件保留
+     */
+    private void evict(Path keep) throws IOException {
+        List<File> files;
+        try (Stream<Path> paths = Files.list(directory)) {
+            files = paths.map(Path::toFile)
+                    .filter(f -> f.getName().endsWith(DATA_SUFFIX))
+                    .sorted(Comparator.comparingLong(File::lastModified))
+                    .collect(Collectors.toList());
+        }
+        long total = files.stream().mapToLong(File::length).sum();
+        for (File file : files) {
+            if (total <= maxBytes) {
+                break;
+            }
+            if (file.toPath().equals(keep)) {
+                continue;
+            }
+            total -= file.length();
+            String name = file.getName();
+            Files.deleteIfExists(directory.resolve(name.substring(0, name.length() - DATA_SUFFIX.length()) + META_SUFFIX));
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    private static String key(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.hosecloud.demo.service;
+
+import com.hosecloud.demo.vo.ExcelItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 按表头编译的ExcelItem绑定器
+ * <p>
+ * 每个工作表只解析一次表头，确定每个字段对应的列和取值方式，之后直接从单元格值填充ExcelItem，
+ * 不再经过中间的Map和按表头名称的查找。取值规则与按Map转换时一致：表头重复时以最后一列为准。
+ */
+public class ExcelItemBinder {
+
+    private static final String SERIAL_NUMBER = "序号";
+
+    private static final List<Field> FIELDS = List.of(
+            new Field("采购日期", ExcelItemBinder::toStringValue, ExcelItem::setPurchaseDate),
+            new Field("物品名称", ExcelItemBinder::toStringValue, ExcelItem::setItemName),
+            new Field("费用类型", ExcelItemBinder::toStringValue, ExcelItem::setExpenseType),
+            new Field("使用部门", ExcelItemBinder::toStringValue, ExcelItem::setDepartment),
+            new Field("用途摘要", ExcelItemBinder::toStringValue, ExcelItem::setPurpose),
+            new Field("数量", ExcelItemBinder::toIntValue, ExcelItem::setQuantity),
+            new Field("单位", ExcelItemBinder::toStringValue, ExcelItem::setUnit),
+            new Field("单价", ExcelItemBinder::toDoubleValue, ExcelItem::setUnitPrice),
+            new Field("金额", ExcelItemBinder::toDoubleValue, ExcelItem::setAmount),
+            new Field("照片", ExcelItemBinder::toStringValue, ExcelItem::setPhotoUrl),
+            new Field("备注", ExcelItemBinder::toStringValue, ExcelItem::setRemark)
+    );
+
+    /**
+     * 与表头同名的“序号”列，不存在时为-1，使用行序号
+     */
+    private final int serialColumn;
+
+    private final int[] columns;
+
+    private final Field[] fields;
+
+    /**
+     * 按行序号的嵌入图片引用，优先于“照片”列的值
+     */
+    private Map<Integer, String> photos;
+
+    /**
+     * @param headers 表头列表
+     */
+    public ExcelItemBinder(List<String> headers) {
+        this.serialColumn = headers.lastIndexOf(SERIAL_NUMBER);
+        List<Integer> boundColumns = new ArrayList<>();
+        List<Field> boundFields = new ArrayList<>();
+        for (Field field : FIELDS) {
+            int column = headers.lastIndexOf(field.header);
+            if (column >= 0) {
+                boundColumns.add(column);
+                boundFields.add(field);
+            }
+        }
+        this.columns = boundColumns.stream().mapToInt(Integer::intValue).toArray();
+        this.fields = boundFields.toArray(new Field[0]);
+    }
+
+    /**
+     * 设置嵌入图片，有图片的行使用图片引用作为photoUrl
+     * @param photos 行序号到图片引用
+     */
+    public void setPhotos(Map<Integer, String> photos) {
+        this.photos = photos;
+    }
+
+    /**
+     * 将一行单元格值绑定为ExcelItem
+     * @param serialNumber 行序号
+     * @param values 按列索引存放的单元格值
+     */
+    public ExcelItem bind(int serialNumber, Object[] values) {
+        ExcelItem item = new ExcelItem();
+        item.setSerialNumber(serialColumn >= 0 ? toIntValue(values[serialColumn]) : Integer.valueOf(serialNumber));
+        for (int i = 0; i < fields.length; i++) {
+            fields[i].bind(item, values[columns[i]]);
+        }
+        if (photos != null && photos.containsKey(serialNumber)) {
+            item.setPhotoUrl(photos.get(serialNumber));
+        }
+        return item;
+    }
+
+    /**
+     * 转换为字符串值
+     */
+    public static String toStringValue(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * 转换为整数值，无法转换时返回null
+     */
+    public static Integer toIntValue(Object value) {
+        if (value == null) return null;
+
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+
+        try {
+            return Integer.parseInt(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 转换为浮点数值，无法转换时返回null
+     */
+    public static Double toDoubleValue(Object value) {
+        if (value == null) return null;
+
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+
+        try {
+            return Double.parseDouble(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * ExcelItem字段与表头的对应关系
+     */
+    private static final class Field {
+
+        private final String header;
+
+        private final Function<Object, ?> converter;
+
+        private final BiConsumer<ExcelItem, Object> setter;
+
+        @SuppressWarnings("unchecked")
+        <T> Field(String header, Function<Object, T> converter, BiConsumer<ExcelItem, T> setter) {
+            this.header = header;
+            this.converter = converter;
+            this.setter = (BiConsumer<ExcelItem, Object>) setter;
+        }
+
+        void bind(ExcelItem item, Object value) {
+            setter.accept(item, converter.apply(value));
+        }
+    }
+}
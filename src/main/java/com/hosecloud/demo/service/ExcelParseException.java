@@ -0,0 +1,11 @@
+package com.hosecloud.demo.service;
+
+/**
+ * Excel解析过程中的业务异常，异常信息会直接作为解析结果返回给调用方
+ */
+public class ExcelParseException extends RuntimeException {
+
+    public ExcelParseException(String message) {
+        super(message);
+    }
+}
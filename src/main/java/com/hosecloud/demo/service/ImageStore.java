@@ -0,0 +1,23 @@
+package com.hosecloud.demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 工作表中嵌入图片的存储方，宿主可以实现该接口把图片直接写入对象存储等位置
+ * <p>
+ * 通过{@code ExcelParsePlugin.setImageStore}注册，未注册时使用{@link LocalImageStore}写入本地目录。
+ * 多工作表并行解析时会被多个线程同时调用，实现需要是线程安全的。
+ */
+public interface ImageStore {
+
+    /**
+     * 保存一张图片
+     * @param sheetName 工作表名称
+     * @param rowIndex 图片左上角所在的行在工作表中的索引（从0开始）
+     * @param fileName 图片在文件中的名称，如image1.png
+     * @param content 图片内容，直接读取zip条目的解压流，由调用方关闭
+     * @return 图片的引用，设置为对应行ExcelItem的photoUrl
+     */
+    String store(String sheetName, int rowIndex, String fileName, InputStream content) throws IOException;
+}
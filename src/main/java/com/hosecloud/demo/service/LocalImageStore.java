@@ -0,0 +1,32 @@
+package com.hosecloud.demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * 把图片写入本地目录，返回文件的file:链接
+ */
+public class LocalImageStore implements ImageStore {
+
+    private final Path directory;
+
+    /**
+     * @param directory 图片保存目录，不存在时自动创建
+     */
+    public LocalImageStore(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public String store(String sheetName, int rowIndex, String fileName, InputStream content) throws IOException {
+        Files.createDirectories(directory);
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot >= 0 ? fileName.substring(dot) : "";
+        Path file = directory.resolve("excel-image-" + UUID.randomUUID() + extension);
+        Files.copy(content, file);
+        return file.toUri().toString();
+    }
+}
@@ -0,0 +1,534 @@
+package com.hosecloud.demo.service;
+
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 内存映射的共享字符串表，字符串在查找时才解码
+ * <p>
+ * sharedStrings.xml解压到临时文件后只扫描一遍，把每个{@code <si>}条目的字节位置写入索引文件，
+ * XML和索引都以只读方式映射到内存，不在堆中保存字符串。查找时按索引定位条目，
+ * 只解码其中的{@code <t>}文本（不包含{@code <rPh>}拼音注释），取值与
+ * {@code ReadOnlySharedStringsTable(pkg, false)}一致。最近使用的字符串保存在一个小的LRU缓存中，
+ * 部门、单位等重复出现的值不会重复解码。
+ * <p>
+ * 假定文件为UTF-8编码（Excel始终如此）。可以被多个线程同时查找，临时文件在{@link #close()}时删除。
+ */
+public class MappedSharedStrings implements SharedStrings, Closeable {
+
+    /**
+     * 默认缓存的字符串数量
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private static final String TEMP_FILE_PREFIX = "excel-sst-";
+
+    /**
+     * 每个索引项的字节数：起始位置（long）和长度（int）
+     */
+    private static final int ENTRY_BYTES = 12;
+
+    private static final byte[] SI = "si".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] T = "t".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] RPH = "rPh".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] SST = "sst".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] CDATA = "<![CDATA[".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path xmlFile;
+
+    private final Path indexFile;
+
+    private final ByteBuffer xml;
+
+    private final ByteBuffer index;
+
+    private final int uniqueCount;
+
+    private final int count;
+
+    private final Map<Integer, String> hot;
+
+    private MappedSharedStrings(Path xmlFile, Path indexFile, ByteBuffer xml, ByteBuffer index,
+                                int uniqueCount, int count, int cacheSize) {
+        this.xmlFile = xmlFile;
+        this.indexFile = indexFile;
+        this.xml = xml;
+        this.index = index;
+        this.uniqueCount = uniqueCount;
+        this.count = count;
+        this.hot = new LinkedHashMap<>(cacheSize * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * 读取sharedStrings.xml并建立索引
+     * @param sharedStringsData sharedStrings.xml的内容
+     * @param cacheSize 缓存的字符串数量
+     */
+    public static MappedSharedStrings load(InputStream sharedStringsData, int cacheSize) throws IOException {
+        Path xmlFile = Files.createTempFile(TEMP_FILE_PREFIX, ".xml");
+        Path indexFile = null;
+        try {
+            Files.copy(sharedStringsData, xmlFile, StandardCopyOption.REPLACE_EXISTING);
+            ByteBuffer xml = map(xmlFile);
+            if (xml.limit() >= 2 && ((xml.get(0) == (byte) 0xFE && xml.get(1) == (byte) 0xFF)
+                    || (xml.get(0) == (byte) 0xFF && xml.get(1) == (byte) 0xFE))) {
+                throw new ExcelParseException("共享字符串表不是UTF-8编码，无法映射读取");
+            }
+            indexFile = Files.createTempFile(TEMP_FILE_PREFIX, ".idx");
+            int[] counts = buildIndex(xml, indexFile);
+            return new MappedSharedStrings(xmlFile, indexFile, xml, map(indexFile), counts[0], counts[1], cacheSize);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(xmlFile);
+            if (indexFile != null) {
+                Files.deleteIfExists(indexFile);
+            }
+            throw e;
+        }
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new ExcelParseException("共享字符串表超过2GB，无法映射读取");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * 扫描XML中的{@code <si>}条目，把内容的起始位置和长度写入索引文件
+     * @return 条目数和sst元素的count属性（没有时等于条目数）
+     */
+    private static int[] buildIndex(ByteBuffer xml, Path indexFile) throws IOException {
+        int end = xml.limit();
+        int pos = 0;
+        int siStart = -1;
+        int uniqueCount = 0;
+        int count = -1;
+        try (FileChannel out = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(ENTRY_BYTES * 4096);
+            while ((pos = indexOf(xml, (byte) '<', pos, end)) >= 0) {
+                Tag tag = Tag.read(xml, pos, end);
+                if (tag == null) {
+                    // 注释、CDATA、处理指令等
+                    pos = skipMarkup(xml, pos, end);
+                    continue;
+                }
+                if (tag.is(xml, SI)) {
+                    if (tag.endTag) {
+                        if (siStart >= 0) {
+                            writeEntry(out, buffer, siStart, pos - siStart);
+                            uniqueCount++;
+                            siStart = -1;
+                        }
+                    } else if (tag.selfClosing) {
+                        writeEntry(out, buffer, tag.end + 1, 0);
+                        uniqueCount++;
+                    } else {
+                        siStart = tag.end + 1;
+                    }
+                } else if (!tag.endTag && count < 0 && tag.is(xml, SST)) {
+                    count = tag.intAttribute(xml, "count");
+                }
+                pos = tag.end + 1;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+        return new int[]{uniqueCount, count >= 0 ? count : uniqueCount};
+    }
+
+    private static void writeEntry(FileChannel out, ByteBuffer buffer, long start, int length) throws IOException {
+        if (buffer.remaining() < ENTRY_BYTES) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+        buffer.putLong(start);
+        buffer.putInt(length);
+    }
+
+    /**
+     * 按索引获取字符串，与{@code getItemAt(idx).getString()}结果相同
+     */
+    public String getString(int idx) {
+        Objects.checkIndex(idx, uniqueCount);
+        synchronized (hot) {
+            String cached = hot.get(idx);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        String raw = rawText(idx);
+        // _xHHHH_形式的转义字符与XSSFRichTextString.getString()的处理一致
+        String value = raw.contains("_x") ? new XSSFRichTextString(raw).getString() : raw;
+        synchronized (hot) {
+            hot.put(idx, value);
+        }
+        return value;
+    }
+
+    @Override
+    public RichTextString getItemAt(int idx) {
+        Objects.checkIndex(idx, uniqueCount);
+        return new XSSFRichTextString(rawText(idx));
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public int getUniqueCount() {
+        return uniqueCount;
+    }
+
+    /**
+     * 解码一个条目中{@code <t>}元素的文本，不包含拼音注释
+     */
+    private String rawText(int idx) {
+        int start = (int) index.getLong(idx * ENTRY_BYTES);
+        int end = start + index.getInt(idx * ENTRY_BYTES + 8);
+        // 实体引用和换行规范化都不会使内容变长
+        byte[] out = new byte[end - start];
+        int n = 0;
+        int textDepth = 0;
+        int phoneticDepth = 0;
+        int pos = start;
+        while (pos < end) {
+            byte b = xml.get(pos);
+            if (b == '<') {
+                Tag tag = Tag.read(xml, pos, end);
+                if (tag == null) {
+                    if (textDepth > 0 && phoneticDepth == 0 && startsWith(xml, pos, end, CDATA)) {
+                        int contentEnd = indexOf(xml, "]]>", pos + CDATA.length, end);
+                        n = copyText(out, n, pos + CDATA.length, contentEnd);
+                    }
+                    pos = skipMarkup(xml, pos, end);
+                    continue;
+                }
+                if (!tag.selfClosing) {
+                    int delta = tag.endTag ? -1 : 1;
+                    if (tag.is(xml, T)) {
+                        textDepth = Math.max(0, textDepth + delta);
+                    } else if (tag.is(xml, RPH)) {
+                        phoneticDepth = Math.max(0, phoneticDepth + delta);
+                    }
+                }
+                pos = tag.end + 1;
+                continue;
+            }
+            int textEnd = indexOf(xml, (byte) '<', pos, end);
+            textEnd = textEnd < 0 ? end : textEnd;
+            if (textDepth > 0 && phoneticDepth == 0) {
+                n = decodeText(out, n, pos, textEnd);
+            }
+            pos = textEnd;
+        }
+        return new String(out, 0, n, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 复制文本并按XML规范把\r\n和单独的\r转换为\n
+     */
+    private int copyText(byte[] out, int n, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = xml.get(i);
+            if (b == '\r') {
+                out[n++] = '\n';
+                if (i + 1 < to && xml.get(i + 1) == '\n') {
+                    i++;
+                }
+            } else {
+                out[n++] = b;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 复制文本并还原实体引用
+     */
+    private int decodeText(byte[] out, int n, int from, int to) {
+        int i = from;
+        while (i < to) {
+            int amp = indexOf(xml, (byte) '&', i, to);
+            int plainEnd = amp < 0 ? to : amp;
+            n = copyText(out, n, i, plainEnd);
+            if (amp < 0) {
+                break;
+            }
+            int semicolon = indexOf(xml, (byte) ';', amp, to);
+            int codePoint = semicolon < 0 ? -1 : entity(amp + 1, semicolon);
+            if (codePoint < 0) {
+                // 无法识别的引用原样保留
+                out[n++] = '&';
+                i = amp + 1;
+                continue;
+            }
+            n = appendUtf8(out, n, codePoint);
+            i = semicolon + 1;
+        }
+        return n;
+    }
+
+    private int entity(int from, int to) {
+        int length = to - from;
+        if (length >= 2 && xml.get(from) == '#') {
+            boolean hex = xml.get(from + 1) == 'x';
+            int radix = hex ? 16 : 10;
+            int value = 0;
+            int digits = 0;
+            for (int i = from + (hex ? 2 : 1); i < to; i++) {
+                int digit = Character.digit(xml.get(i), radix);
+                if (digit < 0 || value > Character.MAX_CODE_POINT) {
+                    return -1;
+                }
+                value = value * radix + digit;
+                digits++;
+            }
+            return digits > 0 && value <= Character.MAX_CODE_POINT ? value : -1;
+        }
+        if (matches(from, to, "amp")) {
+            return '&';
+        } else if (matches(from, to, "lt")) {
+            return '<';
+        } else if (matches(from, to, "gt")) {
+            return '>';
+        } else if (matches(from, to, "quot")) {
+            return '"';
+        } else if (matches(from, to, "apos")) {
+            return '\'';
+        }
+        return -1;
+    }
+
+    private boolean matches(int from, int to, String name) {
+        if (to - from != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (xml.get(from + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int appendUtf8(byte[] out, int n, int codePoint) {
+        if (codePoint < 0x80) {
+            out[n++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            out[n++] = (byte) (0xC0 | (codePoint >> 6));
+            out[n++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            out[n++] = (byte) (0xE0 | (codePoint >> 12));
+            out[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            out[n++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            out[n++] = (byte) (0xF0 | (codePoint >> 18));
+            out[n++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            out[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            out[n++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return n;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找字符串的位置，找不到时返回to
+     */
+    private static int indexOf(ByteBuffer buffer, String target, int from, int to) {
+        byte[] bytes = target.getBytes(StandardCharsets.US_ASCII);
+        for (int i = from; i <= to - bytes.length; i++) {
+            if (startsWith(buffer, i, to, bytes)) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int pos, int end, byte[] prefix) {
+        if (end - pos < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(pos + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 跳过注释、CDATA、处理指令和文档类型声明
+     * @return 标记之后的位置
+     */
+    private static int skipMarkup(ByteBuffer buffer, int pos, int end) {
+        if (startsWith(buffer, pos, end, CDATA)) {
+            return Math.min(end, indexOf(buffer, "]]>", pos, end) + 3);
+        }
+        if (startsWith(buffer, pos, end, "<!--".getBytes(StandardCharsets.US_ASCII))) {
+            return Math.min(end, indexOf(buffer, "-->", pos, end) + 3);
+        }
+        if (pos + 1 < end && buffer.get(pos + 1) == '?') {
+            return Math.min(end, indexOf(buffer, "?>", pos, end) + 2);
+        }
+        int close = indexOf(buffer, (byte) '>', pos, end);
+        return close < 0 ? end : close + 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (hot) {
+            hot.clear();
+        }
+        // 映射在垃圾回收前仍然有效，Linux下可以直接删除文件
+        Files.deleteIfExists(xmlFile);
+        Files.deleteIfExists(indexFile);
+    }
+
+    /**
+     * XML开始或结束标签的位置信息
+     */
+    private static final class Tag {
+
+        private boolean endTag;
+
+        private boolean selfClosing;
+
+        /**
+         * 本地名称（去掉命名空间前缀）的起止位置
+         */
+        private int nameStart;
+
+        private int nameEnd;
+
+        /**
+         * 标签结尾的{@code >}的位置
+         */
+        private int end;
+
+        /**
+         * 读取pos处的标签，不是开始或结束标签时返回null
+         */
+        static Tag read(ByteBuffer buffer, int pos, int limit) {
+            if (pos + 1 >= limit) {
+                return null;
+            }
+            byte next = buffer.get(pos + 1);
+            if (next == '!' || next == '?') {
+                return null;
+            }
+            Tag tag = new Tag();
+            tag.endTag = next == '/';
+            int i = tag.endTag ? pos + 2 : pos + 1;
+            tag.nameStart = i;
+            while (i < limit) {
+                byte b = buffer.get(i);
+                if (b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                    break;
+                }
+                if (b == ':') {
+                    tag.nameStart = i + 1;
+                }
+                i++;
+            }
+            tag.nameEnd = i;
+            // 属性值中可能包含>，按引号跳过
+            byte quote = 0;
+            while (i < limit) {
+                byte b = buffer.get(i);
+                if (quote != 0) {
+                    if (b == quote) {
+                        quote = 0;
+                    }
+                } else if (b == '"' || b == '\'') {
+                    quote = b;
+                } else if (b == '>') {
+                    break;
+                }
+                i++;
+            }
+            if (i >= limit) {
+                throw new ExcelParseException("共享字符串表格式错误");
+            }
+            tag.end = i;
+            tag.selfClosing = !tag.endTag && buffer.get(i - 1) == '/';
+            return tag;
+        }
+
+        boolean is(ByteBuffer buffer, byte[] localName) {
+            if (nameEnd - nameStart != localName.length) {
+                return false;
+            }
+            for (int i = 0; i < localName.length; i++) {
+                if (buffer.get(nameStart + i) != localName[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 读取整数属性，不存在或无法解析时返回-1
+         */
+        int intAttribute(ByteBuffer buffer, String name) {
+            byte[] pattern = (name + "=").getBytes(StandardCharsets.US_ASCII);
+            for (int i = nameEnd; i < end - pattern.length; i++) {
+                byte before = buffer.get(i - 1);
+                if ((before == ' ' || before == '\t' || before == '\r' || before == '\n') && startsWith(buffer, i, end, pattern)) {
+                    int value = 0;
+                    boolean digits = false;
+                    for (int j = i + pattern.length + 1; j < end; j++) {
+                        int digit = Character.digit(buffer.get(j), 10);
+                        if (digit < 0) {
+                            break;
+                        }
+                        value = value * 10 + digit;
+                        digits = true;
+                    }
+                    return digits ? value : -1;
+                }
+            }
+            return -1;
+        }
+    }
+}
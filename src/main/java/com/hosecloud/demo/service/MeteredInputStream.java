@@ -0,0 +1,57 @@
+package com.hosecloud.demo.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+/**
+ * 统计读取字节数的输入流，每次读取后把累计字节数交给回调，回调抛出异常即可中止读取
+ */
+class MeteredInputStream extends FilterInputStream {
+
+    private final LongConsumer onProgress;
+
+    private long count;
+
+    /**
+     * @param in 原始输入流
+     * @param onProgress 接收累计读取的字节数
+     */
+    MeteredInputStream(InputStream in, LongConsumer onProgress) {
+        super(in);
+        this.onProgress = onProgress;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            advance(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            advance(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0) {
+            advance(skipped);
+        }
+        return skipped;
+    }
+
+    private void advance(long n) {
+        count += n;
+        onProgress.accept(count);
+    }
+}
@@ -0,0 +1,143 @@
+package com.hosecloud.demo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.hosecloud.demo.vo.CompactRow;
+import lombok.Getter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 将数据行逐行写入gzip压缩的NDJSON文件
+ * <p>
+ * 每行一个JSON对象，键与{@code dataList}中的Map一致（序号在前，随后是表头），
+ * 通过Jackson流式JsonGenerator直接写出，不在内存中保留已写入的行。
+ * 写入过程中文件名带有.part后缀，完成后改为正式文件名。
+ */
+public class NdjsonRowWriter {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .registerModule(new SimpleModule()
+                    .addSerializer(LocalDate.class, ToStringSerializer.instance)
+                    .addSerializer(LocalDateTime.class, ToStringSerializer.instance));
+
+    private final Path directory;
+
+    /**
+     * 完成后的文件
+     */
+    @Getter
+    private Path file;
+
+    private Path partFile;
+
+    private MessageDigest digest;
+
+    private JsonGenerator generator;
+
+    private CompactRow.Schema rowSchema;
+
+    @Getter
+    private int rowCount;
+
+    /**
+     * 压缩文件内容的SHA-256摘要（十六进制），完成后有值
+     */
+    @Getter
+    private String checksum;
+
+    /**
+     * @param directory 输出目录
+     */
+    public NdjsonRowWriter(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * 创建输出文件
+     * @param headers 表头列表
+     */
+    public void open(List<String> headers) {
+        try {
+            Files.createDirectories(directory);
+            String name = "excel-rows-" + UUID.randomUUID() + ".ndjson.gz";
+            file = directory.resolve(name);
+            partFile = directory.resolve(name + ".part");
+            digest = MessageDigest.getInstance("SHA-256");
+            OutputStream out = new GZIPOutputStream(new DigestOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(partFile)), digest), 64 * 1024);
+            generator = MAPPER.getFactory().createGenerator(out);
+            // 每个对象之后写换行，不使用默认的空格分隔
+            generator.setRootValueSeparator(null);
+            rowSchema = new CompactRow.Schema("序号", headers);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 写入一行
+     * @param serialNumber 序号
+     * @param values 按列索引存放的单元格值
+     */
+    public void write(int serialNumber, Object[] values) {
+        try {
+            generator.writeObject(rowSchema.newRow(serialNumber, values));
+            generator.writeRaw('\n');
+            rowCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 完成写入，关闭文件并计算摘要
+     */
+    public void finish() {
+        try {
+            generator.close();
+            checksum = HexFormat.of().formatHex(digest.digest());
+            Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 放弃写入，删除未完成的文件
+     */
+    public void discard() {
+        if (generator == null || checksum != null) {
+            return;
+        }
+        try {
+            generator.close();
+        } catch (IOException ignored) {
+            // 文件随后删除
+        }
+        try {
+            Files.deleteIfExists(partFile);
+        } catch (IOException ignored) {
+            // 临时目录中的残留文件不影响结果
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.hosecloud.demo.service;
+
+import com.hosecloud.demo.vo.ColumnType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 分页游标，记录下一页第一行在工作表中的位置
+ * <p>
+ * 续读时直接从该行开始解码，已返回的行不再解码。游标中带有解析参数的指纹，
+ * 参数变化后游标失效。启用类型推断时游标中还带有第一页确定的列类型，后续页面沿用该类型，不再重新推断。
+ */
+@Getter
+@AllArgsConstructor
+public class PageCursor {
+
+    private static final String VERSION = "v2";
+
+    /**
+     * 下一页第一行在工作表中的索引（从0开始）
+     */
+    private final int rowIndex;
+
+    /**
+     * 下一页第一行在数据列表中的偏移量
+     */
+    private final int offset;
+
+    /**
+     * 解析参数指纹
+     */
+    private final String fingerprint;
+
+    /**
+     * 已确定的列类型，未启用类型推断时为null
+     */
+    private final List<ColumnType> types;
+
+    /**
+     * 解析参数的指纹：参数文本的SHA-256摘要的前128位（十六进制）
+     * @param parameters 影响行选择和单元格取值的参数
+     */
+    public static String fingerprint(Object... parameters) {
+        String raw = Stream.of(parameters).map(String::valueOf).collect(Collectors.joining("\u0000"));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(raw.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 编码为不透明字符串
+     */
+    public String encode() {
+        StringBuilder raw = new StringBuilder(VERSION).append(':').append(rowIndex).append(':').append(offset)
+                .append(':').append(fingerprint).append(':');
+        if (types != null) {
+            for (int i = 0; i < types.size(); i++) {
+                raw.append(i > 0 ? "," : "").append(types.get(i).name());
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标字符串
+     * @param cursor 游标字符串
+     * @param expectedFingerprint 当前解析参数的指纹
+     */
+    public static PageCursor decode(String cursor, String expectedFingerprint) {
+        PageCursor pageCursor;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", -1);
+            if (parts.length != 5 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException(raw);
+            }
+            List<ColumnType> types = null;
+            if (!parts[4].isEmpty()) {
+                types = new ArrayList<>();
+                for (String type : parts[4].split(",")) {
+                    types.add(ColumnType.valueOf(type));
+                }
+            }
+            pageCursor = new PageCursor(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), parts[3], types);
+        } catch (IllegalArgumentException e) {
+            throw new ExcelParseException("分页游标无效: " + cursor);
+        }
+        if (!pageCursor.fingerprint.equals(expectedFingerprint)) {
+            throw new ExcelParseException("分页游标与当前解析参数不匹配，请重新从第一页开始读取");
+        }
+        return pageCursor;
+    }
+}
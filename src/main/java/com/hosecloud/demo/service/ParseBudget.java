@@ -0,0 +1,180 @@
+package com.hosecloud.demo.service;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单次解析的资源预算，超出任一预算时抛出{@link ExcelParseException}立即中止解析
+ * <p>
+ * 打开zip包之前先读取中央目录，按声明的大小检查解压后总大小和压缩比；
+ * 流式读取工作表时再按实际解压的字节数检查一次，防止中央目录中的大小与实际内容不符。
+ * 行数和单元格数在多个工作表之间累计。
+ * <p>
+ * POI的{@code ZipSecureFile}限制对整个进程生效，不能按单次解析设置，因此这里单独检查，
+ * {@code ZipSecureFile}的默认限制仍然有效。
+ */
+public class ParseBudget {
+
+    /**
+     * 小于该大小的条目不检查压缩比，与ZipSecureFile一致
+     */
+    private static final long GRACE_ENTRY_SIZE = 100 * 1024;
+
+    private final long maxDownloadBytes;
+
+    private final double maxInflateRatio;
+
+    private final long maxExpandedBytes;
+
+    private final long maxRows;
+
+    private final long maxCells;
+
+    /**
+     * zip条目名称到压缩后大小，检查zip包后有值
+     */
+    private Map<String, Long> compressedSizes = Collections.emptyMap();
+
+    private final AtomicLong expandedBytes = new AtomicLong();
+
+    private final AtomicLong rows = new AtomicLong();
+
+    private final AtomicLong cells = new AtomicLong();
+
+    /**
+     * 各参数为null或不大于0时表示不限制
+     * @param maxDownloadBytes 文件大小上限（字节）
+     * @param maxInflateRatio 单个zip条目解压后与压缩后大小之比的上限
+     * @param maxExpandedBytes zip包解压后的总大小上限（字节）
+     * @param maxRows 数据行数上限
+     * @param maxCells 非空单元格数上限
+     */
+    public ParseBudget(Long maxDownloadBytes, Double maxInflateRatio, Long maxExpandedBytes, Integer maxRows, Long maxCells) {
+        this.maxDownloadBytes = limit(maxDownloadBytes);
+        this.maxInflateRatio = maxInflateRatio != null && maxInflateRatio > 0 ? maxInflateRatio : Double.POSITIVE_INFINITY;
+        this.maxExpandedBytes = limit(maxExpandedBytes);
+        this.maxRows = limit(maxRows != null ? maxRows.longValue() : null);
+        this.maxCells = limit(maxCells);
+    }
+
+    private static long limit(Long value) {
+        return value != null && value > 0 ? value : Long.MAX_VALUE;
+    }
+
+    /**
+     * 检查文件大小
+     */
+    public void checkDownloadSize(long bytes) {
+        if (bytes > maxDownloadBytes) {
+            throw new ExcelParseException("文件大小超过限制（" + maxDownloadBytes + "字节）");
+        }
+    }
+
+    /**
+     * 包装下载流，读取的字节数超过上限时立即中止
+     */
+    public InputStream limitDownload(InputStream in) {
+        if (maxDownloadBytes == Long.MAX_VALUE) {
+            return in;
+        }
+        return new MeteredInputStream(in, this::checkDownloadSize);
+    }
+
+    private boolean limitsExpansion() {
+        return maxExpandedBytes != Long.MAX_VALUE || maxInflateRatio != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * 读取zip包的中央目录，按声明的大小检查解压后总大小和每个条目的压缩比，不解压任何条目
+     */
+    public void checkPackage(WorkbookSource source) throws IOException {
+        if (!limitsExpansion()) {
+            return;
+        }
+        Map<String, Long> sizes = new HashMap<>();
+        long total = 0;
+        try (ZipFile zip = openZip(source)) {
+            for (ZipArchiveEntry entry : Collections.list(zip.getEntries())) {
+                long size = entry.getSize();
+                long compressed = entry.getCompressedSize();
+                if (size < 0 || compressed < 0) {
+                    continue;
+                }
+                checkRatio(entry.getName(), size, compressed);
+                total += size;
+                if (total > maxExpandedBytes) {
+                    throw new ExcelParseException("文件解压后大小超过限制（" + maxExpandedBytes + "字节）");
+                }
+                sizes.put(entry.getName(), compressed);
+            }
+        }
+        compressedSizes = sizes;
+    }
+
+    private static ZipFile openZip(WorkbookSource source) throws IOException {
+        if (source.getFile() != null) {
+            return new ZipFile(source.getFile());
+        }
+        ByteBuffer content = source.getContent();
+        return new ZipFile(new SeekableInMemoryByteChannel(content.array()));
+    }
+
+    private void checkRatio(String entryName, long expanded, long compressed) {
+        if (expanded > GRACE_ENTRY_SIZE && expanded > compressed * maxInflateRatio) {
+            throw new ExcelParseException("文件条目" + entryName + "的压缩比超过限制（" + maxInflateRatio
+                    + "），可能是恶意构造的压缩包");
+        }
+    }
+
+    /**
+     * 包装工作表数据流，按实际解压的字节数检查压缩比和解压后总大小
+     * @param partName 工作表的部件名称，例如/xl/worksheets/sheet1.xml
+     */
+    public InputStream meterSheet(String partName, InputStream in) {
+        if (!limitsExpansion()) {
+            return in;
+        }
+        String entryName = partName.startsWith("/") ? partName.substring(1) : partName;
+        Long compressed = compressedSizes.get(entryName);
+        long[] counted = new long[1];
+        return new MeteredInputStream(in, count -> {
+            long total = expandedBytes.addAndGet(count - counted[0]);
+            counted[0] = count;
+            if (total > maxExpandedBytes) {
+                throw new ExcelParseException("文件解压后大小超过限制（" + maxExpandedBytes + "字节）");
+            }
+            if (compressed != null) {
+                checkRatio(entryName, count, compressed);
+            }
+        });
+    }
+
+    /**
+     * 是否限制行数或单元格数
+     */
+    public boolean limitsRows() {
+        return maxRows != Long.MAX_VALUE || maxCells != Long.MAX_VALUE;
+    }
+
+    /**
+     * 累计一行数据
+     * @param cellCount 该行的非空单元格数
+     */
+    public void addRow(int cellCount) {
+        if (rows.incrementAndGet() > maxRows) {
+            throw new ExcelParseException("数据行数超过限制（" + maxRows + "行）");
+        }
+        if (cellCount > 0 && cells.addAndGet(cellCount) > maxCells) {
+            throw new ExcelParseException("单元格数量超过限制（" + maxCells + "个）");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.hosecloud.demo.service;
+
+/**
+ * 解析指标的接收方，宿主可以实现该接口，把每次解析的统计数据转发到自己的指标系统
+ * <p>
+ * 通过{@code ExcelParsePlugin.setParseMetrics}注册，默认为{@link #NOOP}。
+ * 每次解析结束（包括失败和缓存命中）都会回调一次，实现需要是线程安全的，且不应长时间阻塞。
+ */
+public interface ParseMetrics {
+
+    /**
+     * 不做任何处理的默认实现
+     */
+    ParseMetrics NOOP = stats -> {
+    };
+
+    /**
+     * 记录一次解析的统计数据
+     * @param stats 统计数据，回调结束后不再修改
+     */
+    void record(ParseStats stats);
+}
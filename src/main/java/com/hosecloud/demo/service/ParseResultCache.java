@@ -0,0 +1,496 @@
+package com.hosecloud.demo.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.hosecloud.demo.vo.BatchSummary;
+import com.hosecloud.demo.vo.ColumnSchema;
+import com.hosecloud.demo.vo.CompactRow;
+import com.hosecloud.demo.vo.ExcelItem;
+import com.hosecloud.demo.vo.ExcelParseResult;
+import com.hosecloud.demo.vo.RowDelta;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 插件级的解析结果缓存，按文件内容摘要和解析参数寻址
+ * <p>
+ * 内存层按估算的占用字节数做LRU淘汰；配置缓存目录后，结果同时以gzip压缩的JSON写入磁盘，
+ * 内存未命中时从磁盘读取，磁盘层按最近访问时间淘汰。
+ * <p>
+ * 写入和命中时都复制结果，调用方修改返回的结果不影响缓存，复制出的数据行仍是共享键结构的{@link CompactRow}。
+ * 锁只保护内存层的LRU表，复制、JSON序列化和磁盘读写都在锁外进行，不会让其他解析排队等待磁盘。磁盘层的JSON中记录单元格值的类型，
+ * 读取后Long、LocalDate等类型与直接解析的结果一致；列式结果没有对应的JSON形式，只保存在内存层。
+ * 缓存在进程内共享，配置由第一次使用缓存的调用方通过{@link #initialize}确定，之后只能由宿主调用{@link #configure}修改。
+ */
+public final class ParseResultCache {
+
+    private static final ParseResultCache INSTANCE = new ParseResultCache();
+
+    private static final String FILE_SUFFIX = ".json.gz";
+
+    /**
+     * 缓存命中的层级
+     */
+    public enum Tier { MEMORY, DISK }
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new SimpleModule()
+                    .addSerializer(LocalDate.class, ToStringSerializer.instance)
+                    .addSerializer(LocalDateTime.class, ToStringSerializer.instance)
+                    .addDeserializer(LocalDate.class, new TextDeserializer<>(LocalDate.class, LocalDate::parse))
+                    .addDeserializer(LocalDateTime.class, new TextDeserializer<>(LocalDateTime.class, LocalDateTime::parse)))
+            // 声明为Object的单元格值带上类型，Long、LocalDate等读取后类型不变
+            .activateDefaultTyping(BasicPolymorphicTypeValidator.builder()
+                    .allowIfSubType("java.lang.")
+                    .allowIfSubType("java.time.")
+                    .allowIfSubType("java.util.")
+                    .build(), ObjectMapper.DefaultTyping.JAVA_LANG_OBJECT);
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 磁盘层淘汰的锁，与内存层的锁分开
+     */
+    private final Object diskLock = new Object();
+
+    private long maxMemoryBytes;
+
+    private long usedMemoryBytes;
+
+    private Path directory;
+
+    private long maxDiskBytes;
+
+    private boolean configured;
+
+    private ParseResultCache() {
+    }
+
+    public static ParseResultCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 更新缓存配置，内存预算变小时立即淘汰多余的条目
+     * @param maxMemoryBytes 内存层预算（字节）
+     * @param directory 磁盘层目录，为null时不使用磁盘层
+     * @param maxDiskBytes 磁盘层预算（字节）
+     */
+    public synchronized void configure(long maxMemoryBytes, Path directory, long maxDiskBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = normalize(directory);
+        this.maxDiskBytes = maxDiskBytes;
+        this.configured = true;
+        evictMemory();
+    }
+
+    /**
+     * 尚未配置时设置缓存配置，已配置时不做修改，避免单次调用的参数影响其他调用方
+     * @param maxMemoryBytes 内存层预算（字节）
+     * @param directory 磁盘层目录，为null时不使用磁盘层
+     * @param maxDiskBytes 磁盘层预算（字节）
+     * @return 生效的配置与传入的配置是否一致
+     */
+    public synchronized boolean initialize(long maxMemoryBytes, Path directory, long maxDiskBytes) {
+        if (!configured) {
+            configure(maxMemoryBytes, directory, maxDiskBytes);
+            return true;
+        }
+        return this.maxMemoryBytes == maxMemoryBytes && Objects.equals(this.directory, normalize(directory))
+                && (this.directory == null || this.maxDiskBytes == maxDiskBytes);
+    }
+
+    /**
+     * 当前生效的配置，用于日志
+     */
+    public synchronized String describe() {
+        return "内存层" + maxMemoryBytes / (1024 * 1024) + "MB，"
+                + (directory != null ? "磁盘层目录" + directory + "、" + maxDiskBytes / (1024 * 1024) + "MB" : "不使用磁盘层");
+    }
+
+    private static Path normalize(Path directory) {
+        return directory != null ? directory.toAbsolutePath().normalize() : null;
+    }
+
+    /**
+     * 生成缓存键
+     * @param contentHash 文件内容摘要
+     * @param parameters 影响解析结果的参数
+     */
+    public static String key(String contentHash, Object... parameters) {
+        String raw = contentHash + "|" + Stream.of(parameters).map(String::valueOf).collect(Collectors.joining("|"));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(raw.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 查询缓存
+     * @return 缓存结果的副本和命中层级，未命中时返回null
+     */
+    public Hit get(String key) {
+        Entry entry;
+        Path disk;
+        synchronized (this) {
+            entry = entries.get(key);
+            disk = directory;
+        }
+        // 缓存中的结果不会被修改，复制不需要持有锁
+        if (entry != null) {
+            return new Hit(copy(entry.result), Tier.MEMORY);
+        }
+        ExcelParseResult result = readFromDisk(disk, key);
+        if (result == null) {
+            return null;
+        }
+        // 从JSON读出的数据行是普通Map，复制一次转为共享键结构的行后再放入内存层
+        ExcelParseResult stored = copy(result);
+        putInMemory(key, stored);
+        return new Hit(copy(stored), Tier.DISK);
+    }
+
+    /**
+     * 写入缓存，缓存中保存的是结果的副本
+     */
+    public void put(String key, ExcelParseResult result) throws IOException {
+        ExcelParseResult stored = copy(result);
+        putInMemory(key, stored);
+        if (hasColumnarData(stored)) {
+            return;
+        }
+        Path disk;
+        long diskBudget;
+        synchronized (this) {
+            disk = directory;
+            diskBudget = maxDiskBytes;
+        }
+        writeToDisk(disk, diskBudget, key, stored);
+    }
+
+    /**
+     * 清空内存层，磁盘文件保留
+     */
+    public synchronized void clear() {
+        entries.clear();
+        usedMemoryBytes = 0;
+    }
+
+    private void putInMemory(String key, ExcelParseResult result) {
+        long size = estimateSize(result);
+        synchronized (this) {
+            // 超过预算的结果不进入内存层
+            if (size > maxMemoryBytes) {
+                return;
+            }
+            Entry old = entries.put(key, new Entry(result, size));
+            if (old != null) {
+                usedMemoryBytes -= old.size;
+            }
+            usedMemoryBytes += size;
+            evictMemory();
+        }
+    }
+
+    private void evictMemory() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (usedMemoryBytes > maxMemoryBytes && iterator.hasNext()) {
+            usedMemoryBytes -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+
+    private ExcelParseResult readFromDisk(Path directory, String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = directory.resolve(key + FILE_SUFFIX);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            ExcelParseResult result = mapper.readValue(in, ExcelParseResult.class);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return result;
+        } catch (IOException e) {
+            // 损坏的缓存文件直接丢弃
+            file.toFile().delete();
+            return null;
+        }
+    }
+
+    private void writeToDisk(Path directory, long maxDiskBytes, String key, ExcelParseResult result) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        Files.createDirectories(directory);
+        Path target = directory.resolve(key + FILE_SUFFIX);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                mapper.writeValue(out, result);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        synchronized (diskLock) {
+            evictDisk(directory, maxDiskBytes);
+        }
+    }
+
+    private static void evictDisk(Path directory, long maxDiskBytes) throws IOException {
+        List<File> files;
+        try (Stream<Path> paths = Files.list(directory)) {
+            files = paths.map(Path::toFile)
+                    .filter(f -> f.getName().endsWith(FILE_SUFFIX))
+                    .sorted(Comparator.comparingLong(File::lastModified))
+                    .collect(Collectors.toList());
+        }
+        long total = files.stream().mapToLong(File::length).sum();
+        for (File file : files) {
+            if (total <= maxDiskBytes) {
+                break;
+            }
+            total -= file.length();
+            file.delete();
+        }
+    }
+
+    private static boolean hasColumnarData(ExcelParseResult result) {
+        if (result.getColumnarData() != null) {
+            return true;
+        }
+        return result.getSheetResults() != null
+                && result.getSheetResults().values().stream().anyMatch(ParseResultCache::hasColumnarData);
+    }
+
+    /**
+     * 复制结果，数据行和ExcelItem逐个复制；单元格值都是不可变对象，直接共用。
+     * 列式数据只能通过按需生成新对象的只读视图访问，视图和列式数据直接共用
+     */
+    static ExcelParseResult copy(ExcelParseResult source) {
+        if (source == null) {
+            return null;
+        }
+        ExcelParseResult copy = new ExcelParseResult(source.getMessage());
+        copy.setHeaders(copyList(source.getHeaders(), Function.identity()));
+        if (source.getColumnarData() != null) {
+            copy.setColumnarData(source.getColumnarData());
+            copy.setDataList(source.getDataList());
+            copy.setItems(source.getItems());
+        } else {
+            copy.setDataList(copyRows(source.getDataList()));
+            copy.setItems(copyList(source.getItems(), item -> new ExcelItem(item.getSerialNumber(), item.getPurchaseDate(),
+                    item.getItemName(), item.getExpenseType(), item.getDepartment(), item.getPurpose(), item.getQuantity(),
+                    item.getUnit(), item.getUnitPrice(), item.getAmount(), item.getPhotoUrl(), item.getRemark())));
+        }
+        copy.setAggregates(copyList(source.getAggregates(), LinkedHashMap::new));
+        copy.setSchema(copyList(source.getSchema(),
+                column -> new ColumnSchema(column.getName(), column.getType(), column.getMismatchCount())));
+        copy.setRowCount(source.getRowCount());
+        copy.setOutputFile(source.getOutputFile());
+        copy.setOutputChecksum(source.getOutputChecksum());
+        copy.setHasMore(source.getHasMore());
+        copy.setNextCursor(source.getNextCursor());
+        copy.setSheetResults(copyMap(source.getSheetResults()));
+        RowDelta delta = source.getDelta();
+        if (delta != null) {
+            copy.setDelta(new RowDelta(delta.isBaseline(), delta.getTotalRows(), copyList(delta.getAdded(), Function.identity()),
+                    copyList(delta.getChanged(), Function.identity()), copyList(delta.getRemoved(), Function.identity())));
+        }
+        copy.setBatchResults(copyMap(source.getBatchResults()));
+        BatchSummary summary = source.getBatchSummary();
+        if (summary != null) {
+            copy.setBatchSummary(new BatchSummary(summary.getFileCount(), summary.getSuccessCount(), summary.getFailureCount(),
+                    summary.getRowCount(), summary.getBytesDownloaded(), summary.getTotalMillis()));
+        }
+        return copy;
+    }
+
+    /**
+     * 复制数据行：{@link CompactRow}复制值数组并共用键结构；其他Map（如从磁盘读取的行）按键结构分组转为CompactRow，
+     * 键相同的连续行共用一个键结构
+     */
+    private static List<Map<String, Object>> copyRows(List<Map<String, Object>> rows) {
+        if (rows == null) {
+            return null;
+        }
+        List<Map<String, Object>> copy = new ArrayList<>(rows.size());
+        List<String> keys = null;
+        CompactRow.Schema schema = null;
+        for (Map<String, Object> row : rows) {
+            if (row == null) {
+                copy.add(null);
+            } else if (row instanceof CompactRow) {
+                copy.add(((CompactRow) row).copy());
+            } else if (row.isEmpty()) {
+                copy.add(new LinkedHashMap<>());
+            } else {
+                if (!sameKeys(keys, row)) {
+                    keys = new ArrayList<>(row.keySet());
+                    schema = new CompactRow.Schema(keys.get(0), keys.subList(1, keys.size()));
+                }
+                Object[] values = new Object[keys.size() - 1];
+                for (int i = 1; i < keys.size(); i++) {
+                    values[i - 1] = row.get(keys.get(i));
+                }
+                copy.add(schema.newRow(row.get(keys.get(0)), values));
+            }
+        }
+        return copy;
+    }
+
+    private static boolean sameKeys(List<String> keys, Map<String, Object> row) {
+        if (keys == null || keys.size() != row.size()) {
+            return false;
+        }
+        int i = 0;
+        for (String key : row.keySet()) {
+            if (!key.equals(keys.get(i++))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <T, R> List<R> copyList(List<T> source, Function<? super T, ? extends R> copier) {
+        if (source == null) {
+            return null;
+        }
+        List<R> copy = new ArrayList<>(source.size());
+        for (T element : source) {
+            copy.add(element != null ? copier.apply(element) : null);
+        }
+        return copy;
+    }
+
+    private static Map<String, ExcelParseResult> copyMap(Map<String, ExcelParseResult> source) {
+        if (source == null) {
+            return null;
+        }
+        Map<String, ExcelParseResult> copy = new LinkedHashMap<>();
+        source.forEach((name, result) -> copy.put(name, copy(result)));
+        return copy;
+    }
+
+    /**
+     * 估算结果在堆上的占用，只用于缓存预算，不要求精确
+     */
+    static long estimateSize(ExcelParseResult result) {
+        long size = 64;
+        if (result.getHeaders() != null) {
+            for (String header : result.getHeaders()) {
+                size += estimateValue(header);
+            }
+        }
+        if (result.getColumnarData() != null) {
+            // 列式数据按每个单元格平均12字节估算
+            size += (long) result.getColumnarData().size() * (result.getColumnarData().getHeaders().size() * 12L + 4);
+        } else if (result.getDataList() != null) {
+            for (Map<String, Object> row : result.getDataList()) {
+                size += 32 + 8L * row.size();
+                for (Object value : row.values()) {
+                    size += estimateValue(value);
+                }
+            }
+        }
+        if (result.getItems() != null && result.getColumnarData() == null) {
+            for (ExcelItem item : result.getItems()) {
+                size += 64 + estimateValue(item.getPurchaseDate()) + estimateValue(item.getItemName())
+                        + estimateValue(item.getExpenseType()) + estimateValue(item.getDepartment())
+                        + estimateValue(item.getPurpose()) + estimateValue(item.getUnit())
+                        + estimateValue(item.getPhotoUrl()) + estimateValue(item.getRemark()) + 64;
+            }
+        }
+        if (result.getSheetResults() != null) {
+            for (Map.Entry<String, ExcelParseResult> entry : result.getSheetResults().entrySet()) {
+                size += estimateValue(entry.getKey()) + estimateSize(entry.getValue());
+            }
+        }
+        return size;
+    }
+
+    private static long estimateValue(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return 40 + 2L * ((String) value).length();
+        }
+        return 24;
+    }
+
+    /**
+     * 缓存命中结果
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Hit {
+
+        private final ExcelParseResult result;
+
+        private final Tier tier;
+    }
+
+    /**
+     * 按文本形式读取日期时间
+     */
+    private static final class TextDeserializer<T> extends StdDeserializer<T> {
+
+        private final Function<String, T> parser;
+
+        TextDeserializer(Class<T> type, Function<String, T> parser) {
+            super(type);
+            this.parser = parser;
+        }
+
+        @Override
+        public T deserialize(JsonParser p, DeserializationContext context) throws IOException {
+            return parser.apply(p.getText());
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class Entry {
+
+        private final ExcelParseResult result;
+
+        private final long size;
+    }
+}
@@ -0,0 +1,181 @@
+package com.hosecloud.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一次解析的分阶段耗时和吞吐量统计
+ * <p>
+ * 各阶段按发生顺序记录，只出现实际执行过的阶段。堆内存在开始时和每个阶段结束时采样，
+ * {@code peakHeapDeltaBytes}是采样值中的最大值与开始时的差，阶段内部的瞬时峰值不计入。
+ */
+public class ParseStats {
+
+    /**
+     * 下载文件，使用下载缓存时包括条件请求
+     */
+    public static final String PHASE_DOWNLOAD = "download";
+
+    /**
+     * 批量解析时文件下载完成后等待解析线程的时间
+     */
+    public static final String PHASE_QUEUE = "queue";
+
+    /**
+     * 计算文件摘要并查询结果缓存
+     */
+    public static final String PHASE_CACHE_LOOKUP = "cacheLookup";
+
+    /**
+     * 打开zip包（读取中央目录）或映射文本文件
+     */
+    public static final String PHASE_OPEN = "open";
+
+    /**
+     * 流式模式下加载共享字符串表和样式表
+     */
+    public static final String PHASE_SHARED_STRINGS = "sharedStrings";
+
+    /**
+     * 工作簿模式下构建完整的工作簿对象模型
+     */
+    public static final String PHASE_LOAD_WORKBOOK = "loadWorkbook";
+
+    /**
+     * 解压并解码数据行，包括ExcelItem绑定和NDJSON写入
+     */
+    public static final String PHASE_DECODE = "decode";
+
+    /**
+     * 生成解析结果
+     */
+    public static final String PHASE_BUILD_RESULT = "buildResult";
+
+    /**
+     * 写入结果缓存
+     */
+    public static final String PHASE_CACHE_STORE = "cacheStore";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final long startNanos = System.nanoTime();
+
+    private long phaseStartNanos = startNanos;
+
+    private final long startHeapBytes = usedHeap();
+
+    private long peakHeapBytes = startHeapBytes;
+
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+
+    /**
+     * 实际下载的字节数，使用本地文件或下载缓存未修改时为0
+     */
+    @Getter
+    private long bytesDownloaded;
+
+    /**
+     * 解码的数据行数，包括空行和分页跳过的行
+     */
+    @Getter
+    private long rowsDecoded;
+
+    /**
+     * 解码的非空单元格数
+     */
+    @Getter
+    private long cellsDecoded;
+
+    @Getter
+    private long totalMillis;
+
+    /**
+     * 按总耗时计算的每秒解码行数
+     */
+    @Getter
+    private long rowsPerSecond;
+
+    @Getter
+    private long peakHeapDeltaBytes;
+
+    @Getter
+    private boolean success;
+
+    /**
+     * 结果是否来自结果缓存
+     */
+    @Getter
+    private boolean cacheHit;
+
+    /**
+     * 各阶段耗时（毫秒），按发生顺序排列
+     */
+    public Map<String, Long> getPhaseMillis() {
+        return Collections.unmodifiableMap(phases);
+    }
+
+    /**
+     * 结束当前阶段，记录从上一阶段结束到现在的耗时
+     * @param phase 阶段名称，同名阶段的耗时累加
+     */
+    public void endPhase(String phase) {
+        long now = System.nanoTime();
+        phases.merge(phase, (now - phaseStartNanos) / 1_000_000, Long::sum);
+        phaseStartNanos = now;
+        sampleHeap();
+    }
+
+    public void setBytesDownloaded(long bytesDownloaded) {
+        this.bytesDownloaded = bytesDownloaded;
+    }
+
+    public void setCacheHit(boolean cacheHit) {
+        this.cacheHit = cacheHit;
+    }
+
+    /**
+     * 累加解码的行数和单元格数
+     */
+    public void addDecoded(long rows, long cells) {
+        rowsDecoded += rows;
+        cellsDecoded += cells;
+    }
+
+    /**
+     * 结束统计
+     * @param success 解析是否成功
+     */
+    public void finish(boolean success) {
+        this.success = success;
+        sampleHeap();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        totalMillis = elapsedNanos / 1_000_000;
+        rowsPerSecond = elapsedNanos > 0 ? rowsDecoded * 1_000_000_000L / elapsedNanos : 0;
+        peakHeapDeltaBytes = Math.max(0, peakHeapBytes - startHeapBytes);
+    }
+
+    private void sampleHeap() {
+        peakHeapBytes = Math.max(peakHeapBytes, usedHeap());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * 以JSON形式输出统计数据，用于执行日志
+     */
+    public String toJson() {
+        try {
+            return MAPPER.writeValueAsString(this);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.hosecloud.demo.service;
+
+import com.hosecloud.demo.vo.ExcelItem;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 预处理后的数据行，由{@link SheetRowHandler#prepareRow(int, Object[])}生成
+ */
+@Getter
+@Setter
+public class PreparedRow {
+
+    /**
+     * 行在工作表中的索引（从0开始）
+     */
+    private final int rowIndex;
+
+    /**
+     * 单元格值
+     */
+    private final Object[] values;
+
+    /**
+     * 是否包含非空单元格
+     */
+    private boolean hasData = true;
+
+    /**
+     * 预先绑定的ExcelItem，未绑定时为null
+     */
+    private ExcelItem item;
+
+    public PreparedRow(int rowIndex, Object[] values) {
+        this.rowIndex = rowIndex;
+        this.values = values;
+    }
+}
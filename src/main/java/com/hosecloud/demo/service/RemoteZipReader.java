@@ -0,0 +1,741 @@
+package com.hosecloud.demo.service;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 通过HTTP Range请求按需读取远程xlsx文件
+ * <p>
+ * 先读取文件末尾的中央目录，再根据{@code _rels/.rels}、工作簿和工作簿关系确定工作表对应的条目，
+ * 只下载解析需要的条目。图片（不提取图片时）、嵌入对象和未选中的工作表在本地重新组装的zip包中以空条目代替，
+ * 包结构和关系保持不变，后续的解析流程与完整下载的文件相同。
+ * 相邻的条目合并为一个请求，间隔较小时连同间隔一起下载以减少请求次数。
+ * <p>
+ * 只有关系文件和工作簿等少量元数据条目读入内存用于解析，工作表等其他条目在下载时直接写入组装后的文件中
+ * 对应的位置，不在堆中缓存压缩数据。
+ */
+public class RemoteZipReader {
+
+    private static final String TEMP_FILE_PREFIX = "excel-download-";
+
+    /**
+     * 文件末尾读取的字节数，包括中央目录结束记录和最长的注释
+     */
+    private static final int TAIL_BYTES = 64 * 1024 + 22;
+
+    /**
+     * 两个待下载区间的间隔小于该值时合并为一个请求
+     */
+    private static final long MERGE_GAP_BYTES = 16 * 1024;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+    private static final String OFFICE_DOCUMENT_REL = "/officeDocument";
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+)");
+
+    /**
+     * 不需要解析的二进制条目，以空条目代替
+     */
+    private static final String[] SKIPPED_PREFIXES = {"xl/media/", "xl/embeddings/", "docProps/thumbnail"};
+
+    private static final String MEDIA_PREFIX = "xl/media/";
+
+    /**
+     * 读入内存解析的元数据条目（关系文件、工作簿）的大小上限
+     */
+    private static final long MAX_METADATA_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * 组装后的文件在内存中时的大小上限，超过后总是写入临时文件
+     */
+    private static final long MAX_IN_MEMORY_BYTES = Integer.MAX_VALUE - 8;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final URL url;
+
+    private final ParseBudget budget;
+
+    private final boolean includeMedia;
+
+    private long length;
+
+    /**
+     * 读取文件末尾时服务端返回的强ETag或Last-Modified，之后的Range请求通过If-Range带上，为null时不校验
+     */
+    private String validator;
+
+    /**
+     * 记录校验值的响应头，ETag或Last-Modified
+     */
+    private String validatorHeader;
+
+    private long fetchedBytes;
+
+    private RemoteZipReader(URL url, ParseBudget budget, boolean includeMedia) {
+        this.url = url;
+        this.budget = budget;
+        this.includeMedia = includeMedia;
+    }
+
+    /**
+     * 按需下载远程xlsx文件
+     * @param url 文件链接，必须是HTTP或HTTPS链接
+     * @param spillThresholdBytes 落盘阈值，组装后的文件不小于该值时写入临时文件
+     * @param budget 资源预算，为null时不限制下载大小
+     * @param sheetSelector 由工作簿中的工作表名称（按顺序）选出需要解析的工作表
+     * @param includeMedia 是否下载图片，提取嵌入图片时需要
+     * @return 组装后的文件；服务端不支持Range请求、文件不是zip包、使用了ZIP64格式或下载过程中文件被修改时返回null，
+     * 由调用方下载完整文件
+     */
+    public static WorkbookSource fetch(URL url, long spillThresholdBytes, ParseBudget budget,
+                                       UnaryOperator<List<String>> sheetSelector, boolean includeMedia) throws IOException {
+        try {
+            return new RemoteZipReader(url, budget, includeMedia).fetch(spillThresholdBytes, sheetSelector);
+        } catch (FileModifiedException e) {
+            return null;
+        }
+    }
+
+    private WorkbookSource fetch(long spillThresholdBytes, UnaryOperator<List<String>> sheetSelector) throws IOException {
+        byte[] tail = readTail();
+        if (tail == null) {
+            return null;
+        }
+        long tailStart = length - tail.length;
+        int eocd = findEndOfCentralDirectory(tail);
+        if (eocd < 0) {
+            return null;
+        }
+        int entryCount = readShort(tail, eocd + 10);
+        long centralSize = readInt(tail, eocd + 12);
+        long centralOffset = readInt(tail, eocd + 16);
+        if (entryCount == 0xFFFF || centralSize == 0xFFFFFFFFL || centralOffset == 0xFFFFFFFFL
+                || centralOffset + centralSize > tailStart + eocd || centralSize > MAX_METADATA_BYTES) {
+            return null;
+        }
+        byte[] central = centralOffset >= tailStart
+                ? slice(tail, (int) (centralOffset - tailStart), (int) centralSize)
+                : readRange(centralOffset, centralSize);
+        List<Entry> entries = parseCentralDirectory(central, centralOffset);
+        if (entries == null) {
+            return null;
+        }
+
+        Map<String, Entry> byName = new HashMap<>();
+        for (Entry entry : entries) {
+            byName.put(entry.name, entry);
+        }
+        // 元数据条目的原始记录（本地文件头和压缩数据）
+        Map<Entry, byte[]> records = new HashMap<>();
+        // 由包关系找到工作簿，再由工作簿关系找到每个工作表的条目
+        String workbookPart = null;
+        for (Relationship rel : readRelationships(byName, records, "", "_rels/.rels")) {
+            if (rel.type.endsWith(OFFICE_DOCUMENT_REL)) {
+                workbookPart = rel.target;
+            }
+        }
+        if (workbookPart == null || !byName.containsKey(workbookPart)) {
+            throw new ExcelParseException("文件中找不到工作簿，请确认文件为xlsx格式");
+        }
+        String workbookRels = relationshipsPart(workbookPart);
+        fetchMetadata(byName.get(workbookPart), records);
+        Map<String, String> sheetParts = readSheets(inflate(byName.get(workbookPart), records));
+        Map<String, String> targets = new HashMap<>();
+        for (Relationship rel : readRelationships(byName, records, workbookPart, workbookRels)) {
+            targets.put(rel.id, rel.target);
+        }
+
+        Set<String> skipped = new HashSet<>();
+        List<String> sheetNames = new ArrayList<>(sheetParts.keySet());
+        Set<String> selected = new HashSet<>(sheetSelector.apply(sheetNames));
+        for (Map.Entry<String, String> sheet : sheetParts.entrySet()) {
+            String part = targets.get(sheet.getValue());
+            if (part != null && !selected.contains(sheet.getKey())) {
+                skipped.add(part);
+            }
+        }
+        for (Entry entry : entries) {
+            entry.placeholder = skipped.contains(entry.name) || isSkippedBinary(entry.name);
+        }
+        return assemble(entries, records, spillThresholdBytes);
+    }
+
+    /**
+     * 读取文件末尾，服务端不支持Range请求时返回null
+     */
+    private byte[] readTail() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestProperty("Range", "bytes=-" + TAIL_BYTES);
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+            connection.disconnect();
+            return null;
+        }
+        Matcher matcher = CONTENT_RANGE.matcher(String.valueOf(connection.getHeaderField("Content-Range")));
+        if (!matcher.matches()) {
+            connection.disconnect();
+            return null;
+        }
+        length = Long.parseLong(matcher.group(3));
+        long start = Long.parseLong(matcher.group(1));
+        long end = Long.parseLong(matcher.group(2));
+        if (end != length - 1) {
+            connection.disconnect();
+            return null;
+        }
+        // 弱ETag不能用于If-Range，此时使用Last-Modified
+        String etag = connection.getHeaderField("ETag");
+        if (etag != null && !etag.startsWith("W/")) {
+            validatorHeader = "ETag";
+            validator = etag;
+        } else if (connection.getHeaderField("Last-Modified") != null) {
+            validatorHeader = "Last-Modified";
+            validator = connection.getHeaderField("Last-Modified");
+        }
+        return readBody(connection, end - start + 1);
+    }
+
+    /**
+     * 下载文件中的一段到内存，只用于中央目录和元数据条目
+     */
+    private byte[] readRange(long offset, long size) throws IOException {
+        return readBody(openRange(offset, size), size);
+    }
+
+    /**
+     * 请求文件中的一段，检查预算和服务端返回的范围。
+     * 请求带上读取文件末尾时记录的校验值（If-Range），文件已被修改时服务端返回完整文件（200），
+     * 此时以及返回的校验值或文件长度变化时抛出{@link FileModifiedException}，由调用方改为下载完整文件
+     */
+    private HttpURLConnection openRange(long offset, long size) throws IOException {
+        if (budget != null) {
+            budget.checkDownloadSize(fetchedBytes + size);
+        }
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestProperty("Range", "bytes=" + offset + "-" + (offset + size - 1));
+        if (validator != null) {
+            connection.setRequestProperty("If-Range", validator);
+        }
+        int status = connection.getResponseCode();
+        if (status == HttpURLConnection.HTTP_OK) {
+            connection.disconnect();
+            throw new FileModifiedException();
+        }
+        if (status != HttpURLConnection.HTTP_PARTIAL) {
+            connection.disconnect();
+            throw new IOException("服务端未按Range请求返回文件内容，HTTP状态码: " + status);
+        }
+        Matcher matcher = CONTENT_RANGE.matcher(String.valueOf(connection.getHeaderField("Content-Range")));
+        if (!matcher.matches() || Long.parseLong(matcher.group(1)) != offset) {
+            connection.disconnect();
+            throw new IOException("服务端返回的内容范围与请求不一致: " + url);
+        }
+        // 响应中没有校验值时以If-Range的结果为准
+        String current = validator != null ? connection.getHeaderField(validatorHeader) : null;
+        if (Long.parseLong(matcher.group(3)) != length || current != null && !current.equals(validator)) {
+            connection.disconnect();
+            throw new FileModifiedException();
+        }
+        return connection;
+    }
+
+    private byte[] readBody(HttpURLConnection connection, long size) throws IOException {
+        if (budget != null) {
+            budget.checkDownloadSize(fetchedBytes + size);
+        }
+        if (size > MAX_METADATA_BYTES) {
+            connection.disconnect();
+            throw new IOException("zip元数据过大: " + size + "字节");
+        }
+        byte[] body;
+        try (InputStream in = connection.getInputStream()) {
+            body = in.readNBytes((int) size);
+        }
+        if (body.length != size) {
+            throw new IOException("响应内容不完整: " + url);
+        }
+        fetchedBytes += size;
+        return body;
+    }
+
+    private static int findEndOfCentralDirectory(byte[] tail) {
+        for (int i = tail.length - 22; i >= 0; i--) {
+            if (readInt(tail, i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 解析中央目录，使用了ZIP64扩展的条目返回null
+     */
+    private List<Entry> parseCentralDirectory(byte[] central, long centralOffset) {
+        List<Entry> entries = new ArrayList<>();
+        int pos = 0;
+        while (pos + 46 <= central.length && readInt(central, pos) == CENTRAL_HEADER_SIGNATURE) {
+            int nameLength = readShort(central, pos + 28);
+            int recordLength = 46 + nameLength + readShort(central, pos + 30) + readShort(central, pos + 32);
+            Entry entry = new Entry();
+            entry.name = new String(central, pos + 46, nameLength, StandardCharsets.UTF_8);
+            entry.method = readShort(central, pos + 10);
+            entry.compressedSize = readInt(central, pos + 20);
+            entry.size = readInt(central, pos + 24);
+            entry.localOffset = readInt(central, pos + 42);
+            entry.central = slice(central, pos, recordLength);
+            if (entry.compressedSize == 0xFFFFFFFFL || entry.size == 0xFFFFFFFFL || entry.localOffset == 0xFFFFFFFFL) {
+                return null;
+            }
+            entries.add(entry);
+            pos += recordLength;
+        }
+        // 条目在文件中的范围从本地文件头开始，到下一个条目或中央目录为止，包括数据描述符
+        List<Entry> ordered = new ArrayList<>(entries);
+        ordered.sort(Comparator.comparingLong(entry -> entry.localOffset));
+        for (int i = 0; i < ordered.size(); i++) {
+            ordered.get(i).end = i + 1 < ordered.size() ? ordered.get(i + 1).localOffset : centralOffset;
+        }
+        return entries;
+    }
+
+    /**
+     * 下载需要在内存中解析的元数据条目
+     */
+    private void fetchMetadata(Entry entry, Map<Entry, byte[]> records) throws IOException {
+        if (!records.containsKey(entry)) {
+            records.put(entry, readRange(entry.localOffset, entry.end - entry.localOffset));
+        }
+    }
+
+    /**
+     * 下载条目并直接写入组装后的文件，相邻或间隔较小的条目合并为一个请求，间隔中的内容读取后丢弃
+     * @param pending 待下载的条目
+     * @param offsets 条目在组装后的文件中的位置
+     */
+    private void streamEntries(List<Entry> pending, Map<Entry, Long> offsets, Sink sink) throws IOException {
+        pending.sort(Comparator.comparingLong(entry -> entry.localOffset));
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int i = 0;
+        while (i < pending.size()) {
+            int j = i;
+            while (j + 1 < pending.size() && pending.get(j + 1).localOffset - pending.get(j).end <= MERGE_GAP_BYTES) {
+                j++;
+            }
+            long start = pending.get(i).localOffset;
+            long size = pending.get(j).end - start;
+            HttpURLConnection connection = openRange(start, size);
+            try (InputStream in = connection.getInputStream()) {
+                long position = start;
+                for (int k = i; k <= j; k++) {
+                    Entry entry = pending.get(k);
+                    copy(in, entry.localOffset - position, -1, sink, buffer);
+                    copy(in, entry.end - entry.localOffset, offsets.get(entry), sink, buffer);
+                    position = entry.end;
+                }
+            }
+            fetchedBytes += size;
+            i = j + 1;
+        }
+    }
+
+    /**
+     * 从响应中读取指定字节数写入组装后的文件，target为负数时丢弃
+     */
+    private void copy(InputStream in, long count, long target, Sink sink, byte[] buffer) throws IOException {
+        while (count > 0) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, count));
+            if (n < 0) {
+                throw new IOException("响应内容不完整: " + url);
+            }
+            if (target >= 0) {
+                sink.write(target, buffer, 0, n);
+                target += n;
+            }
+            count -= n;
+        }
+    }
+
+    /**
+     * 下载并解析关系文件，关系文件不存在时返回空列表
+     */
+    private List<Relationship> readRelationships(Map<String, Entry> byName, Map<Entry, byte[]> records,
+                                                 String sourcePart, String relsPart) throws IOException {
+        Entry entry = byName.get(relsPart);
+        if (entry == null) {
+            return List.of();
+        }
+        fetchMetadata(entry, records);
+        List<Relationship> relationships = new ArrayList<>();
+        XMLStreamReader reader = newXmlReader(inflate(entry, records));
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(reader.getLocalName())
+                        && !"External".equals(reader.getAttributeValue(null, "TargetMode"))) {
+                    Relationship rel = new Relationship();
+                    rel.id = reader.getAttributeValue(null, "Id");
+                    rel.type = String.valueOf(reader.getAttributeValue(null, "Type"));
+                    rel.target = resolve(sourcePart, reader.getAttributeValue(null, "Target"));
+                    relationships.add(rel);
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("无法解析关系文件" + relsPart, e);
+        }
+        return relationships;
+    }
+
+    /**
+     * 读取工作簿中的工作表名称和关系ID，按工作簿中的顺序
+     */
+    private static Map<String, String> readSheets(byte[] workbookXml) throws IOException {
+        Map<String, String> sheets = new LinkedHashMap<>();
+        XMLStreamReader reader = newXmlReader(workbookXml);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "sheet".equals(reader.getLocalName())) {
+                    String id = null;
+                    for (int i = 0; i < reader.getAttributeCount(); i++) {
+                        String namespace = reader.getAttributeNamespace(i);
+                        if ("id".equals(reader.getAttributeLocalName(i)) && namespace != null && !namespace.isEmpty()) {
+                            id = reader.getAttributeValue(i);
+                        }
+                    }
+                    sheets.put(reader.getAttributeValue(null, "name"), id);
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("无法解析工作簿", e);
+        }
+        return sheets;
+    }
+
+    private static XMLStreamReader newXmlReader(byte[] xml) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            return factory.createXMLStreamReader(new ByteArrayInputStream(xml));
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * 解压已下载的条目
+     */
+    private static byte[] inflate(Entry entry, Map<Entry, byte[]> records) throws IOException {
+        byte[] record = records.get(entry);
+        if (readInt(record, 0) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("zip条目" + entry.name + "的本地文件头无效");
+        }
+        int dataStart = 30 + readShort(record, 26) + readShort(record, 28);
+        if (entry.size > MAX_METADATA_BYTES || dataStart + entry.compressedSize > record.length) {
+            throw new IOException("zip条目" + entry.name + "的大小无效");
+        }
+        if (entry.method == 0) {
+            return slice(record, dataStart, (int) entry.size);
+        }
+        if (entry.method != 8) {
+            throw new IOException("不支持的压缩方式: " + entry.method);
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(record, dataStart, (int) entry.compressedSize);
+            byte[] out = new byte[(int) entry.size];
+            int n = 0;
+            while (n < out.length && !inflater.finished()) {
+                int inflated = inflater.inflate(out, n, out.length - n);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += inflated;
+            }
+            if (n != out.length) {
+                throw new IOException("zip条目" + entry.name + "解压后的大小与中央目录不一致");
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IOException("无法解压zip条目" + entry.name, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 组装新的zip包：需要的条目按原样复制，其余条目写为空的存储条目，中央目录中的偏移量重新计算。
+     * 各条目在新文件中的位置先计算出来，元数据条目从内存写入，其他条目下载时直接写入对应位置
+     */
+    private WorkbookSource assemble(List<Entry> entries, Map<Entry, byte[]> records, long spillThresholdBytes)
+            throws IOException {
+        List<Entry> ordered = new ArrayList<>(entries);
+        ordered.sort(Comparator.comparingLong(entry -> entry.localOffset));
+        Map<Entry, Long> offsets = new HashMap<>();
+        long written = 0;
+        for (Entry entry : ordered) {
+            offsets.put(entry, written);
+            written += entry.placeholder ? 30 + readShort(entry.central, 28) : entry.end - entry.localOffset;
+        }
+        long centralOffset = written;
+        for (Entry entry : entries) {
+            written += entry.central.length;
+        }
+        long total = written + 22;
+
+        Path tempFile = total >= spillThresholdBytes || total > MAX_IN_MEMORY_BYTES
+                ? Files.createTempFile(TEMP_FILE_PREFIX, ".xlsx") : null;
+        byte[] data = tempFile == null ? new byte[(int) total] : null;
+        try (Sink sink = tempFile != null ? new FileSink(tempFile) : new ArraySink(data)) {
+            List<Entry> pending = new ArrayList<>();
+            for (Entry entry : ordered) {
+                if (entry.placeholder) {
+                    byte[] header = placeholderHeader(entry);
+                    sink.write(offsets.get(entry), header, 0, header.length);
+                } else if (records.containsKey(entry)) {
+                    byte[] record = records.get(entry);
+                    sink.write(offsets.get(entry), record, 0, record.length);
+                } else {
+                    pending.add(entry);
+                }
+            }
+            streamEntries(pending, offsets, sink);
+
+            long position = centralOffset;
+            for (Entry entry : entries) {
+                byte[] central = entry.central.clone();
+                writeInt(central, 42, offsets.get(entry));
+                if (entry.placeholder) {
+                    // 存储方式，大小和CRC为0，清除数据描述符标志
+                    writeShort(central, 8, readShort(central, 8) & ~0x08);
+                    writeShort(central, 10, 0);
+                    writeInt(central, 16, 0);
+                    writeInt(central, 20, 0);
+                    writeInt(central, 24, 0);
+                }
+                sink.write(position, central, 0, central.length);
+                position += central.length;
+            }
+            byte[] end = new byte[22];
+            writeInt(end, 0, END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+            writeShort(end, 8, entries.size());
+            writeShort(end, 10, entries.size());
+            writeInt(end, 12, position - centralOffset);
+            writeInt(end, 16, centralOffset);
+            sink.write(position, end, 0, end.length);
+        } catch (IOException | RuntimeException e) {
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+            }
+            throw e;
+        }
+        return WorkbookSource.partial(tempFile != null ? tempFile.toFile() : null, data, fetchedBytes, length);
+    }
+
+    private static byte[] placeholderHeader(Entry entry) {
+        int nameLength = readShort(entry.central, 28);
+        byte[] header = new byte[30 + nameLength];
+        writeInt(header, 0, LOCAL_HEADER_SIGNATURE);
+        writeShort(header, 4, readShort(entry.central, 6));
+        // 只保留文件名编码标志
+        writeShort(header, 6, readShort(entry.central, 8) & 0x0800);
+        writeShort(header, 26, nameLength);
+        System.arraycopy(entry.central, 46, header, 30, nameLength);
+        return header;
+    }
+
+    private boolean isSkippedBinary(String name) {
+        if (includeMedia && name.startsWith(MEDIA_PREFIX)) {
+            return false;
+        }
+        for (String prefix : SKIPPED_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 关系文件的路径，如xl/workbook.xml对应xl/_rels/workbook.xml.rels
+     */
+    private static String relationshipsPart(String part) {
+        int slash = part.lastIndexOf('/');
+        return part.substring(0, slash + 1) + "_rels/" + part.substring(slash + 1) + ".rels";
+    }
+
+    /**
+     * 将关系目标解析为zip条目名称，相对路径相对于源部件所在目录
+     */
+    private static String resolve(String sourcePart, String target) {
+        if (target == null) {
+            return null;
+        }
+        Deque<String> segments = new ArrayDeque<>();
+        if (!target.startsWith("/")) {
+            String[] base = sourcePart.split("/");
+            for (int i = 0; i < base.length - 1; i++) {
+                segments.addLast(base[i]);
+            }
+        }
+        for (String segment : target.split("/")) {
+            if (segment.isEmpty() || ".".equals(segment)) {
+                continue;
+            }
+            if ("..".equals(segment)) {
+                segments.pollLast();
+            } else {
+                segments.addLast(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    private static byte[] slice(byte[] bytes, int from, int length) {
+        byte[] result = new byte[length];
+        System.arraycopy(bytes, from, result, 0, length);
+        return result;
+    }
+
+    private static int readShort(byte[] bytes, int pos) {
+        return (bytes[pos] & 0xFF) | (bytes[pos + 1] & 0xFF) << 8;
+    }
+
+    private static long readInt(byte[] bytes, int pos) {
+        return (readShort(bytes, pos) | (long) readShort(bytes, pos + 2) << 16) & 0xFFFFFFFFL;
+    }
+
+    private static void writeShort(byte[] bytes, int pos, int value) {
+        bytes[pos] = (byte) value;
+        bytes[pos + 1] = (byte) (value >>> 8);
+    }
+
+    private static void writeInt(byte[] bytes, int pos, long value) {
+        writeShort(bytes, pos, (int) value);
+        writeShort(bytes, pos + 2, (int) (value >>> 16));
+    }
+
+    /**
+     * 按需下载过程中远程文件已被修改，已下载的条目不能组装为同一个文件
+     */
+    private static final class FileModifiedException extends IOException {
+
+        FileModifiedException() {
+            super("按需下载过程中文件已被修改");
+        }
+    }
+
+    /**
+     * 组装后的文件，按位置写入
+     */
+    private interface Sink extends Closeable {
+
+        void write(long position, byte[] bytes, int offset, int length) throws IOException;
+    }
+
+    private static final class ArraySink implements Sink {
+
+        private final byte[] data;
+
+        ArraySink(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public void write(long position, byte[] bytes, int offset, int length) {
+            System.arraycopy(bytes, offset, data, (int) position, length);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class FileSink implements Sink {
+
+        private final FileChannel channel;
+
+        FileSink(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        }
+
+        @Override
+        public void write(long position, byte[] bytes, int offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * 中央目录中的一个条目
+     */
+    private static class Entry {
+
+        private String name;
+
+        private int method;
+
+        private long compressedSize;
+
+        private long size;
+
+        private long localOffset;
+
+        /**
+         * 条目在文件中的结束位置（不含）
+         */
+        private long end;
+
+        private byte[] central;
+
+        private boolean placeholder;
+    }
+
+    private static class Relationship {
+
+        private String id;
+
+        private String type;
+
+        private String target;
+    }
+}
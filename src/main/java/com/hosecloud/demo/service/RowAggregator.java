@@ -0,0 +1,290 @@
+package com.hosecloud.demo.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 在读取行的同时计算分组聚合
+ * <p>
+ * 分组表达式为列名或{@code month(列名)}（按年月分组，结果为yyyy-MM），
+ * 聚合表达式为{@code count(*)}、{@code count(列名)}、{@code sum(列名)}、{@code min(列名)}、
+ * {@code max(列名)}或{@code avg(列名)}。表达式在创建时解析一次，读取表头后绑定到列索引；
+ * 每个分组只保存基本类型的累加器，不保留数据行。
+ * <p>
+ * 数值按{@link ExcelItemBinder#toDoubleValue(Object)}转换，空值和无法转换的值不参与sum、min、max和avg，
+ * {@code count(列名)}统计非空值的个数。分组按第一次出现的顺序输出。
+ */
+public class RowAggregator {
+
+    private static final Pattern FUNCTION = Pattern.compile("^\\s*(\\w+)\\s*\\(\\s*(.*?)\\s*\\)\\s*$");
+
+    private static final Pattern YEAR_MONTH = Pattern.compile("^(\\d{4})[-/.年](\\d{1,2})");
+
+    private static final String COUNT = "count";
+
+    private static final String SUM = "sum";
+
+    private static final String MIN = "min";
+
+    private static final String MAX = "max";
+
+    private static final String AVG = "avg";
+
+    private static final String MONTH = "month";
+
+    private final List<Expression> groupBy = new ArrayList<>();
+
+    private final List<Expression> aggregates = new ArrayList<>();
+
+    private int[] groupColumns;
+
+    private int[] aggregateColumns;
+
+    private final Map<Object, Group> groups = new LinkedHashMap<>();
+
+    /**
+     * @param groupBy 分组表达式，为空时所有行为一组
+     * @param aggregates 聚合表达式
+     */
+    public RowAggregator(List<String> groupBy, List<String> aggregates) {
+        if (groupBy != null) {
+            for (String text : groupBy) {
+                Expression expression = Expression.parse(text);
+                if (expression.function != null && !MONTH.equals(expression.function)) {
+                    throw new ExcelParseException("不支持的分组表达式: " + text);
+                }
+                this.groupBy.add(expression);
+            }
+        }
+        for (String text : aggregates) {
+            Expression expression = Expression.parse(text);
+            if (!List.of(COUNT, SUM, MIN, MAX, AVG).contains(expression.function)
+                    || (expression.column == null && !COUNT.equals(expression.function))) {
+                throw new ExcelParseException("不支持的聚合表达式: " + text);
+            }
+            this.aggregates.add(expression);
+        }
+    }
+
+    /**
+     * 按表头确定每个表达式对应的列
+     * @param headers 表头列表
+     */
+    public void bind(List<String> headers) {
+        groupColumns = columns(groupBy, headers);
+        aggregateColumns = columns(aggregates, headers);
+    }
+
+    private static int[] columns(List<Expression> expressions, List<String> headers) {
+        int[] columns = new int[expressions.size()];
+        for (int i = 0; i < columns.length; i++) {
+            String column = expressions.get(i).column;
+            columns[i] = column != null ? headers.lastIndexOf(column) : -1;
+            if (column != null && columns[i] < 0) {
+                throw new ExcelParseException("找不到指定的列: " + column);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * 累加一行
+     * @param values 按列索引存放的单元格值
+     */
+    public void accept(Object[] values) {
+        Object key;
+        if (groupColumns.length == 1) {
+            key = groupValue(0, values);
+        } else {
+            Object[] keys = new Object[groupColumns.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = groupValue(i, values);
+            }
+            key = Arrays.asList(keys);
+        }
+        Group group = groups.get(key);
+        if (group == null) {
+            group = new Group(key, aggregates.size());
+            groups.put(key, group);
+        }
+        group.rows++;
+        for (int i = 0; i < aggregateColumns.length; i++) {
+            if (aggregateColumns[i] < 0) {
+                continue;
+            }
+            Object value = values[aggregateColumns[i]];
+            if (COUNT.equals(aggregates.get(i).function)) {
+                if (!CellDecoder.isBlank(value)) {
+                    group.counts[i]++;
+                }
+                continue;
+            }
+            Double number = ExcelItemBinder.toDoubleValue(value);
+            if (number == null || number.isNaN()) {
+                continue;
+            }
+            double v = number;
+            if (group.counts[i]++ == 0) {
+                group.mins[i] = v;
+                group.maxs[i] = v;
+            } else {
+                group.mins[i] = Math.min(group.mins[i], v);
+                group.maxs[i] = Math.max(group.maxs[i], v);
+            }
+            group.sums[i] += v;
+        }
+    }
+
+    private Object groupValue(int index, Object[] values) {
+        Object value = values[groupColumns[index]];
+        return MONTH.equals(groupBy.get(index).function) ? yearMonth(value) : value;
+    }
+
+    /**
+     * 日期所在的年月（yyyy-MM），无法识别时返回null
+     */
+    static String yearMonth(Object value) {
+        if (value instanceof LocalDate) {
+            LocalDate date = (LocalDate) value;
+            return String.format("%04d-%02d", date.getYear(), date.getMonthValue());
+        }
+        if (value instanceof LocalDateTime) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            return String.format("%04d-%02d", dateTime.getYear(), dateTime.getMonthValue());
+        }
+        if (value instanceof String) {
+            Matcher matcher = YEAR_MONTH.matcher(((String) value).trim());
+            if (matcher.find()) {
+                int month = Integer.parseInt(matcher.group(2));
+                if (month >= 1 && month <= 12) {
+                    return matcher.group(1) + "-" + (month < 10 ? "0" : "") + month;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 聚合结果，每个分组一个Map，键为分组表达式和聚合表达式
+     */
+    public List<Map<String, Object>> getResults() {
+        List<Map<String, Object>> results = new ArrayList<>(groups.size());
+        for (Group group : groups.values()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < groupBy.size(); i++) {
+                Object key = groupBy.size() == 1 ? group.key : ((List<?>) group.key).get(i);
+                row.put(groupBy.get(i).text, key);
+            }
+            for (int i = 0; i < aggregates.size(); i++) {
+                row.put(aggregates.get(i).text, group.result(aggregates.get(i).function, i, aggregateColumns[i] < 0));
+            }
+            results.add(row);
+        }
+        return results;
+    }
+
+    /**
+     * 整数值的结果转换为long，与数据列表中的数字一致
+     */
+    private static Object toNumber(double value) {
+        if (value == Math.floor(value) && !Double.isInfinite(value) && Math.abs(value) < Long.MAX_VALUE) {
+            return (long) value;
+        }
+        return value;
+    }
+
+    /**
+     * 分组或聚合表达式
+     */
+    private static final class Expression {
+
+        private final String text;
+
+        /**
+         * 函数名（小写），为null表示直接引用列
+         */
+        private final String function;
+
+        /**
+         * 列名，count(*)时为null
+         */
+        private final String column;
+
+        private Expression(String text, String function, String column) {
+            this.text = text;
+            this.function = function;
+            this.column = column;
+        }
+
+        static Expression parse(String text) {
+            if (text == null || text.trim().isEmpty()) {
+                throw new ExcelParseException("聚合表达式不能为空");
+            }
+            String trimmed = text.trim();
+            Matcher matcher = FUNCTION.matcher(trimmed);
+            if (!matcher.matches()) {
+                return new Expression(trimmed, null, trimmed);
+            }
+            String argument = matcher.group(2);
+            if (argument.isEmpty()) {
+                throw new ExcelParseException("无法解析聚合表达式: " + text);
+            }
+            return new Expression(trimmed, matcher.group(1).toLowerCase(), "*".equals(argument) ? null : argument);
+        }
+    }
+
+    /**
+     * 一个分组的累加器
+     */
+    private static final class Group {
+
+        private final Object key;
+
+        private long rows;
+
+        /**
+         * count为非空值个数，其他聚合为参与计算的数值个数
+         */
+        private final long[] counts;
+
+        private final double[] sums;
+
+        private final double[] mins;
+
+        private final double[] maxs;
+
+        Group(Object key, int size) {
+            this.key = key;
+            this.counts = new long[size];
+            this.sums = new double[size];
+            this.mins = new double[size];
+            this.maxs = new double[size];
+        }
+
+        Object result(String function, int i, boolean allRows) {
+            if (COUNT.equals(function)) {
+                return allRows ? rows : counts[i];
+            }
+            if (counts[i] == 0) {
+                return null;
+            }
+            switch (function) {
+                case SUM:
+                    return toNumber(sums[i]);
+                case MIN:
+                    return toNumber(mins[i]);
+                case MAX:
+                    return toNumber(maxs[i]);
+                default:
+                    return sums[i] / counts[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.hosecloud.demo.service;
+
+import com.hosecloud.demo.vo.RowDelta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * 按行内容摘要比较本次解析与上一次解析的结果
+ * <p>
+ * 每个逻辑数据源在本地保存一个状态文件，记录上一次解析时每个非空行的序号、键摘要和64位内容摘要。
+ * 未指定键列时行按序号对应：数据行按序号递增的顺序到达，与上一次的记录做归并比较，每行只需计算一次摘要，不需要查找表，
+ * 但在中间插入或删除一行会使之后的所有行都错位为变化。指定键列时行按键列的值对应，上一次的记录按键摘要排序后二分查找，
+ * 插入或删除的行只影响自身；键重复时按出现顺序依次对应。
+ * 状态文件在{@link #commit()}时整体替换，解析失败时保持不变。
+ */
+public class RowDeltaTracker {
+
+    private static final int MAGIC = 0x52444C54;
+
+    private static final int VERSION = 2;
+
+    private static final long PRIME = 0x100000001B3L;
+
+    private static final long OFFSET_BASIS = 0xCBF29CE484222325L;
+
+    private final Path stateFile;
+
+    private final String options;
+
+    /**
+     * 用于对应行的键列名称，为空时按序号对应
+     */
+    private final List<String> keyColumns;
+
+    private int[] keyIndexes;
+
+    private String signature;
+
+    private boolean baseline = true;
+
+    private int[] previousSerials = new int[0];
+
+    private long[] previousKeys = new long[0];
+
+    private long[] previousHashes = new long[0];
+
+    private int previousPosition;
+
+    /**
+     * 按键摘要排序后上一次记录的下标，按键对应时使用
+     */
+    private int[] previousOrder;
+
+    private long[] sortedKeys;
+
+    private boolean[] matched;
+
+    private int[] serials = new int[1024];
+
+    private long[] keys = new long[1024];
+
+    private long[] hashes = new long[1024];
+
+    private int size;
+
+    private final List<Integer> added = new ArrayList<>();
+
+    private final List<Integer> changed = new ArrayList<>();
+
+    private final List<Integer> removed = new ArrayList<>();
+
+    /**
+     * @param directory 状态文件目录
+     * @param sourceKey 逻辑数据源标识，同一标识的解析结果互相比较
+     * @param options 影响单元格取值的解析参数，与上一次不同时上一次的记录作废
+     */
+    public RowDeltaTracker(Path directory, String sourceKey, String options) {
+        this(directory, sourceKey, options, null);
+    }
+
+    /**
+     * @param directory 状态文件目录
+     * @param sourceKey 逻辑数据源标识，同一标识的解析结果互相比较
+     * @param options 影响单元格取值的解析参数，与上一次不同时上一次的记录作废
+     * @param keyColumns 用于对应行的键列名称，为空时按序号对应
+     */
+    public RowDeltaTracker(Path directory, String sourceKey, String options, List<String> keyColumns) {
+        this.stateFile = directory.resolve(sha256(sourceKey) + ".rows");
+        this.keyColumns = keyColumns != null ? keyColumns : List.of();
+        this.options = options + "\u0000" + String.join("\u0001", this.keyColumns);
+    }
+
+    /**
+     * 读取上一次的记录，表头或解析参数与上一次不同时重新建立基线
+     * @param headers 本次解析的表头
+     */
+    public void start(List<String> headers) {
+        if (!keyColumns.isEmpty()) {
+            keyIndexes = new int[keyColumns.size()];
+            for (int i = 0; i < keyIndexes.length; i++) {
+                keyIndexes[i] = headers.lastIndexOf(keyColumns.get(i));
+                if (keyIndexes[i] < 0) {
+                    throw new ExcelParseException("找不到指定的增量键列: " + keyColumns.get(i));
+                }
+            }
+        }
+        signature = sha256(options + "\u0000" + String.join("\u0000", headers));
+        if (Files.isRegularFile(stateFile)) {
+            load();
+        }
+        if (keyIndexes != null) {
+            indexPrevious();
+        }
+    }
+
+    private void load() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !signature.equals(in.readUTF())) {
+                return;
+            }
+            int count = in.readInt();
+            int[] loadedSerials = new int[count];
+            long[] loadedKeys = new long[count];
+            long[] loadedHashes = new long[count];
+            for (int i = 0; i < count; i++) {
+                loadedSerials[i] = in.readInt();
+                loadedKeys[i] = in.readLong();
+                loadedHashes[i] = in.readLong();
+            }
+            previousSerials = loadedSerials;
+            previousKeys = loadedKeys;
+            previousHashes = loadedHashes;
+            baseline = false;
+        } catch (IOException e) {
+            // 状态文件损坏时重新建立基线
+        }
+    }
+
+    /**
+     * 按键摘要排序上一次的记录，键相同的行保持原来的顺序
+     */
+    private void indexPrevious() {
+        int count = previousKeys.length;
+        previousOrder = IntStream.range(0, count).boxed()
+                .sorted(Comparator.comparingLong((Integer i) -> previousKeys[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        sortedKeys = new long[count];
+        for (int i = 0; i < count; i++) {
+            sortedKeys[i] = previousKeys[previousOrder[i]];
+        }
+        matched = new boolean[count];
+    }
+
+    /**
+     * 记录一行，按序号递增的顺序调用
+     * @return 新增或内容变化时返回true，与上一次相同时返回false
+     */
+    public boolean accept(int serialNumber, Object[] values) {
+        long hash = hash(values);
+        long key = keyIndexes != null ? keyHash(values) : serialNumber;
+        if (size == serials.length) {
+            serials = Arrays.copyOf(serials, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        serials[size] = serialNumber;
+        keys[size] = key;
+        hashes[size] = hash;
+        size++;
+        if (keyIndexes != null) {
+            return acceptByKey(serialNumber, key, hash);
+        }
+
+        while (previousPosition < previousSerials.length && previousSerials[previousPosition] < serialNumber) {
+            removed.add(previousSerials[previousPosition++]);
+        }
+        if (previousPosition < previousSerials.length && previousSerials[previousPosition] == serialNumber) {
+            boolean same = previousHashes[previousPosition++] == hash;
+            if (!same) {
+                changed.add(serialNumber);
+            }
+            return !same;
+        }
+        added.add(serialNumber);
+        return true;
+    }
+
+    /**
+     * 按键对应一行，键相同的多行依次对应上一次键相同的行
+     */
+    private boolean acceptByKey(int serialNumber, long key, long hash) {
+        int position = Arrays.binarySearch(sortedKeys, key);
+        if (position >= 0) {
+            while (position > 0 && sortedKeys[position - 1] == key) {
+                position--;
+            }
+            for (; position < sortedKeys.length && sortedKeys[position] == key; position++) {
+                if (!matched[position]) {
+                    matched[position] = true;
+                    boolean same = previousHashes[previousOrder[position]] == hash;
+                    if (!same) {
+                        changed.add(serialNumber);
+                    }
+                    return !same;
+                }
+            }
+        }
+        added.add(serialNumber);
+        return true;
+    }
+
+    /**
+     * 结束比较，上一次记录中剩余的行视为已删除
+     */
+    public RowDelta finish() {
+        if (keyIndexes != null) {
+            boolean[] used = new boolean[previousSerials.length];
+            for (int i = 0; i < matched.length; i++) {
+                used[previousOrder[i]] = matched[i];
+            }
+            for (int i = 0; i < used.length; i++) {
+                if (!used[i]) {
+                    removed.add(previousSerials[i]);
+                }
+            }
+            previousPosition = previousSerials.length;
+        }
+        while (previousPosition < previousSerials.length) {
+            removed.add(previousSerials[previousPosition++]);
+        }
+        return new RowDelta(baseline, size, added, changed, removed);
+    }
+
+    /**
+     * 用本次的记录替换状态文件
+     */
+    public void commit() {
+        try {
+            Files.createDirectories(stateFile.getParent());
+            Path temp = Files.createTempFile(stateFile.getParent(), stateFile.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeUTF(signature);
+                    out.writeInt(size);
+                    for (int i = 0; i < size; i++) {
+                        out.writeInt(serials[i]);
+                        out.writeLong(keys[i]);
+                        out.writeLong(hashes[i]);
+                    }
+                }
+                Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 行内容的64位摘要（FNV-1a），值的类型参与计算，文本"1"与数字1不同
+     */
+    static long hash(Object[] values) {
+        long h = OFFSET_BASIS;
+        for (Object value : values) {
+            if (value == null) {
+                h = (h ^ 0xFF) * PRIME;
+            } else if (value instanceof String) {
+                h = text(h ^ 1, (String) value);
+            } else if (value instanceof Long) {
+                h = mix(h ^ 2, (Long) value);
+            } else if (value instanceof Double) {
+                h = mix(h ^ 3, Double.doubleToLongBits((Double) value));
+            } else if (value instanceof Boolean) {
+                h = mix(h ^ 4, (Boolean) value ? 1 : 0);
+            } else {
+                // 日期时间等其他类型按文本形式计算
+                h = text(h ^ 5, value.toString());
+            }
+        }
+        return h;
+    }
+
+    /**
+     * 键列值的64位摘要
+     */
+    private long keyHash(Object[] values) {
+        Object[] keyValues = new Object[keyIndexes.length];
+        for (int i = 0; i < keyIndexes.length; i++) {
+            keyValues[i] = keyIndexes[i] < values.length ? values[keyIndexes[i]] : null;
+        }
+        return hash(keyValues);
+    }
+
+    private static long text(long h, String text) {
+        h *= PRIME;
+        for (int i = 0; i < text.length(); i++) {
+            h = (h ^ text.charAt(i)) * PRIME;
+        }
+        return (h ^ text.length()) * PRIME;
+    }
+
+    private static long mix(long h, long value) {
+        for (int i = 0; i < 8; i++) {
+            h = (h ^ (value & 0xFF)) * PRIME;
+            value >>>= 8;
+        }
+        return h;
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
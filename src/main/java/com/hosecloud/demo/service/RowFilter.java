@@ -0,0 +1,382 @@
+package com.hosecloud.demo.service;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 行过滤条件
+ * <p>
+ * 条件由比较（{@code 列名 运算符 值}）通过AND、OR和括号组合而成，例如{@code 使用部门 = '研发部' AND 金额 > 1000}。
+ * 运算符为{@code =}、{@code !=}（或{@code <>}）、{@code >}、{@code >=}、{@code <}、{@code <=}，
+ * 值为单引号括起的文本（两个单引号表示一个单引号）或数字；列名包含空格或运算符时用双引号括起。
+ * 条件在创建时解析一次，读取表头后绑定到列索引，之后每行只按列索引比较，不生成中间对象。
+ * <p>
+ * 值为数字时按数字比较；值为日期文本（yyyy-MM-dd，分隔符也可以是/或.）且单元格是日期时按日期比较；
+ * 其他情况按单元格的文本比较。空单元格和无法转换为数字的单元格不满足任何比较。
+ */
+public class RowFilter {
+
+    private static final Pattern DATE = Pattern.compile("^(\\d{4})[-/.](\\d{1,2})[-/.](\\d{1,2})");
+
+    private static final String OPERATOR_CHARS = "=!<>";
+
+    private final Node root;
+
+    private final List<Comparison> comparisons = new ArrayList<>();
+
+    /**
+     * @param text 过滤条件
+     */
+    public RowFilter(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new ExcelParseException("过滤条件不能为空");
+        }
+        Parser parser = new Parser(text);
+        this.root = parser.parseOr();
+        if (parser.peek() != null) {
+            throw parser.error();
+        }
+    }
+
+    /**
+     * 按表头确定每个比较对应的列
+     * @param headers 表头列表
+     */
+    public void bind(List<String> headers) {
+        for (Comparison comparison : comparisons) {
+            comparison.column = headers.lastIndexOf(comparison.name);
+            if (comparison.column < 0) {
+                throw new ExcelParseException("找不到指定的列: " + comparison.name);
+            }
+        }
+    }
+
+    /**
+     * 判断一行是否满足条件
+     * @param values 按列索引存放的单元格值
+     */
+    public boolean test(Object[] values) {
+        return root.test(values);
+    }
+
+    /**
+     * 单元格中的日期，不是日期时返回null
+     */
+    private static LocalDate toDate(Object value) {
+        if (value instanceof LocalDate) {
+            return (LocalDate) value;
+        }
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).toLocalDate();
+        }
+        if (value instanceof String) {
+            return parseDate((String) value);
+        }
+        return null;
+    }
+
+    private static LocalDate parseDate(String text) {
+        Matcher matcher = DATE.matcher(text.trim());
+        if (!matcher.find()) {
+            return null;
+        }
+        int month = Integer.parseInt(matcher.group(2));
+        int day = Integer.parseInt(matcher.group(3));
+        if (month < 1 || month > 12 || day < 1 || day > 31) {
+            return null;
+        }
+        try {
+            return LocalDate.of(Integer.parseInt(matcher.group(1)), month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 单元格的文本，整数形式的小数与数据列表中的显示一致
+     */
+    private static String toText(Object value) {
+        if (value instanceof Double) {
+            double number = (Double) value;
+            if (number == Math.floor(number) && !Double.isInfinite(number)) {
+                return Long.toString((long) number);
+            }
+        }
+        return value.toString();
+    }
+
+    /**
+     * 条件树的节点
+     */
+    private interface Node {
+
+        boolean test(Object[] values);
+    }
+
+    private static final class And implements Node {
+
+        private final Node left;
+
+        private final Node right;
+
+        And(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(Object[] values) {
+            return left.test(values) && right.test(values);
+        }
+    }
+
+    private static final class Or implements Node {
+
+        private final Node left;
+
+        private final Node right;
+
+        Or(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(Object[] values) {
+            return left.test(values) || right.test(values);
+        }
+    }
+
+    /**
+     * 单个列与常量的比较
+     */
+    private static final class Comparison implements Node {
+
+        private final String name;
+
+        private final String operator;
+
+        /**
+         * 值为数字时的数值，否则为null
+         */
+        private final Double number;
+
+        private final String literal;
+
+        /**
+         * 值为日期文本时的日期，否则为null
+         */
+        private final LocalDate date;
+
+        private int column = -1;
+
+        Comparison(String name, String operator, Double number, String literal) {
+            this.name = name;
+            this.operator = operator;
+            this.number = number;
+            this.literal = literal;
+            this.date = number == null ? parseDate(literal) : null;
+        }
+
+        @Override
+        public boolean test(Object[] values) {
+            Object value = column < values.length ? values[column] : null;
+            if (CellDecoder.isBlank(value)) {
+                return false;
+            }
+            if (number != null) {
+                Double cell = ExcelItemBinder.toDoubleValue(value);
+                return cell != null && !cell.isNaN() && matches(Double.compare(cell, number));
+            }
+            if (date != null) {
+                LocalDate cell = toDate(value);
+                if (cell != null) {
+                    return matches(cell.compareTo(date));
+                }
+            }
+            return matches(toText(value).compareTo(literal));
+        }
+
+        private boolean matches(int comparison) {
+            switch (operator) {
+                case "=":
+                    return comparison == 0;
+                case "!=":
+                case "<>":
+                    return comparison != 0;
+                case ">":
+                    return comparison > 0;
+                case ">=":
+                    return comparison >= 0;
+                case "<":
+                    return comparison < 0;
+                default:
+                    return comparison <= 0;
+            }
+        }
+    }
+
+    /**
+     * 递归下降解析，AND的优先级高于OR
+     */
+    private final class Parser {
+
+        private final String input;
+
+        private int position;
+
+        Parser(String input) {
+            this.input = input;
+        }
+
+        Node parseOr() {
+            Node node = parseAnd();
+            while (keyword("OR")) {
+                node = new Or(node, parseAnd());
+            }
+            return node;
+        }
+
+        private Node parseAnd() {
+            Node node = parsePrimary();
+            while (keyword("AND")) {
+                node = new And(node, parsePrimary());
+            }
+            return node;
+        }
+
+        private Node parsePrimary() {
+            Character c = peek();
+            if (c != null && c == '(') {
+                position++;
+                Node node = parseOr();
+                Character close = peek();
+                if (close == null || close != ')') {
+                    throw error();
+                }
+                position++;
+                return node;
+            }
+            String name = name();
+            String operator = operator();
+            Comparison comparison = literal(name, operator);
+            comparisons.add(comparison);
+            return comparison;
+        }
+
+        private String name() {
+            Character c = peek();
+            if (c == null) {
+                throw error();
+            }
+            if (c == '"') {
+                int end = input.indexOf('"', position + 1);
+                if (end < 0) {
+                    throw error();
+                }
+                String name = input.substring(position + 1, end);
+                position = end + 1;
+                return name;
+            }
+            int start = position;
+            while (position < input.length() && !Character.isWhitespace(input.charAt(position))
+                    && OPERATOR_CHARS.indexOf(input.charAt(position)) < 0 && "()'\"".indexOf(input.charAt(position)) < 0) {
+                position++;
+            }
+            if (position == start) {
+                throw error();
+            }
+            return input.substring(start, position);
+        }
+
+        private String operator() {
+            peek();
+            int start = position;
+            while (position < input.length() && OPERATOR_CHARS.indexOf(input.charAt(position)) >= 0) {
+                position++;
+            }
+            String operator = input.substring(start, position);
+            if (!List.of("=", "!=", "<>", ">", ">=", "<", "<=").contains(operator)) {
+                position = start;
+                throw error();
+            }
+            return operator;
+        }
+
+        private Comparison literal(String name, String operator) {
+            Character c = peek();
+            if (c == null) {
+                throw error();
+            }
+            if (c == '\'') {
+                StringBuilder literal = new StringBuilder();
+                position++;
+                while (true) {
+                    if (position >= input.length()) {
+                        throw error();
+                    }
+                    char ch = input.charAt(position++);
+                    if (ch == '\'') {
+                        if (position < input.length() && input.charAt(position) == '\'') {
+                            literal.append('\'');
+                            position++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        literal.append(ch);
+                    }
+                }
+                return new Comparison(name, operator, null, literal.toString());
+            }
+            int start = position;
+            while (position < input.length() && !Character.isWhitespace(input.charAt(position))
+                    && input.charAt(position) != ')') {
+                position++;
+            }
+            String token = input.substring(start, position);
+            try {
+                double number = Double.parseDouble(token);
+                return new Comparison(name, operator, number, token);
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error();
+            }
+        }
+
+        /**
+         * 读取关键字（不区分大小写），关键字之后必须是空白或括号
+         */
+        private boolean keyword(String keyword) {
+            Character c = peek();
+            int end = position + keyword.length();
+            if (c == null || end > input.length() || !input.regionMatches(true, position, keyword, 0, keyword.length())) {
+                return false;
+            }
+            if (end < input.length() && !Character.isWhitespace(input.charAt(end)) && input.charAt(end) != '(') {
+                return false;
+            }
+            position = end;
+            return true;
+        }
+
+        /**
+         * 跳过空白并返回下一个字符，已到末尾时返回null
+         */
+        Character peek() {
+            while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+                position++;
+            }
+            return position < input.length() ? input.charAt(position) : null;
+        }
+
+        ExcelParseException error() {
+            return new ExcelParseException("无法解析过滤条件（第" + (position + 1) + "个字符）: " + input);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.hosecloud.demo.service;
+
+import com.hosecloud.demo.vo.ColumnSchema;
+import com.hosecloud.demo.vo.ColumnType;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 根据采样行推断每一列的类型，并把之后的单元格值转换为该类型
+ * <p>
+ * 采样时记录每列出现过的值类型，空单元格不参与推断：只有整数为INTEGER，整数和小数混合为DECIMAL，
+ * 只有日期为DATE，只有布尔值为BOOLEAN，其他情况为TEXT。类型确定后由行处理器把读取器已解码的值转换为列类型，
+ * 无法转换的值保留原样并计入{@link ColumnSchema#getMismatchCount()}。
+ * <p>
+ * 转换是在单元格解码之后额外进行的一步，只用于统一各列的值类型，读取器仍按通用规则解码每个单元格，
+ * 启用类型推断不会加快解析。
+ */
+public class SchemaInferrer {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+
+    private static final int SEEN_INTEGER = 1;
+
+    private static final int SEEN_DECIMAL = 1 << 1;
+
+    private static final int SEEN_DATE = 1 << 2;
+
+    private static final int SEEN_BOOLEAN = 1 << 3;
+
+    private static final int SEEN_TEXT = 1 << 4;
+
+    private final List<String> headers;
+
+    /**
+     * “日期”列，这些列中的日期已格式化为字符串
+     */
+    private final boolean[] dateColumns;
+
+    private final int[] seen;
+
+    private ColumnType[] types;
+
+    private int[] mismatches;
+
+    /**
+     * @param headers 表头列表
+     * @param dateColumns 表头中包含“日期”的列
+     */
+    public SchemaInferrer(List<String> headers, boolean[] dateColumns) {
+        this.headers = headers;
+        this.dateColumns = dateColumns;
+        this.seen = new int[headers.size()];
+    }
+
+    /**
+     * 记录一行采样数据
+     */
+    public void sample(Object[] values) {
+        for (int j = 0; j < values.length; j++) {
+            Object value = values[j];
+            if (CellDecoder.isBlank(value)) {
+                continue;
+            }
+            if (value instanceof Long) {
+                seen[j] |= SEEN_INTEGER;
+            } else if (value instanceof Double) {
+                seen[j] |= SEEN_DECIMAL;
+            } else if (value instanceof Boolean) {
+                seen[j] |= SEEN_BOOLEAN;
+            } else if (value instanceof LocalDate || (dateColumns[j] && isFormattedDate(value))) {
+                seen[j] |= SEEN_DATE;
+            } else {
+                seen[j] |= SEEN_TEXT;
+            }
+        }
+    }
+
+    /**
+     * 根据已采样的数据确定列类型
+     */
+    public void infer() {
+        types = new ColumnType[seen.length];
+        mismatches = new int[seen.length];
+        for (int j = 0; j < seen.length; j++) {
+            types[j] = typeOf(seen[j]);
+        }
+    }
+
+    /**
+     * 直接使用已确定的列类型，不再采样，用于分页续读时沿用第一页的类型
+     * @param fixed 每列的类型，数量必须与表头一致
+     */
+    public void infer(List<ColumnType> fixed) {
+        if (fixed.size() != seen.length) {
+            throw new ExcelParseException("分页游标与当前解析参数不匹配，请重新从第一页开始读取");
+        }
+        types = fixed.toArray(new ColumnType[0]);
+        mismatches = new int[seen.length];
+    }
+
+    /**
+     * 已确定的列类型，需在{@link #infer()}之后调用
+     */
+    public List<ColumnType> getTypes() {
+        return Arrays.asList(types.clone());
+    }
+
+    private static ColumnType typeOf(int seen) {
+        if (seen == SEEN_INTEGER) {
+            return ColumnType.INTEGER;
+        }
+        if (seen == SEEN_DECIMAL || seen == (SEEN_INTEGER | SEEN_DECIMAL)) {
+            return ColumnType.DECIMAL;
+        }
+        if (seen == SEEN_DATE) {
+            return ColumnType.DATE;
+        }
+        if (seen == SEEN_BOOLEAN) {
+            return ColumnType.BOOLEAN;
+        }
+        return ColumnType.TEXT;
+    }
+
+    /**
+     * 把一行的值转换为列类型，空单元格保持不变
+     */
+    public void coerce(Object[] values) {
+        for (int j = 0; j < values.length; j++) {
+            Object value = values[j];
+            if (value == null) {
+                continue;
+            }
+            Object converted = convert(types[j], j, value);
+            if (converted == null) {
+                if (!CellDecoder.isBlank(value)) {
+                    mismatches[j]++;
+                }
+                continue;
+            }
+            values[j] = converted;
+        }
+    }
+
+    /**
+     * 转换单个值，无法转换时返回null
+     */
+    private Object convert(ColumnType type, int column, Object value) {
+        switch (type) {
+            case INTEGER:
+                if (value instanceof Long) {
+                    return value;
+                }
+                if (value instanceof String) {
+                    try {
+                        return Long.parseLong(((String) value).trim());
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+                return null;
+            case DECIMAL:
+                if (value instanceof Double) {
+                    return value;
+                }
+                if (value instanceof Long) {
+                    return ((Long) value).doubleValue();
+                }
+                if (value instanceof String) {
+                    try {
+                        return Double.parseDouble(((String) value).trim());
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+                return null;
+            case DATE:
+                if (value instanceof LocalDate || (dateColumns[column] && isFormattedDate(value))) {
+                    return value;
+                }
+                return null;
+            case BOOLEAN:
+                if (value instanceof Boolean) {
+                    return value;
+                }
+                if (value instanceof String) {
+                    String text = ((String) value).trim();
+                    if ("true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text)) {
+                        return Boolean.valueOf(text);
+                    }
+                }
+                return null;
+            default:
+                return value instanceof String ? value : value.toString();
+        }
+    }
+
+    private static boolean isFormattedDate(Object value) {
+        if (!(value instanceof String)) {
+            return false;
+        }
+        try {
+            LocalDate.parse((String) value, DATE_FORMATTER);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 推断出的列类型，需在{@link #infer()}之后调用
+     */
+    public List<ColumnSchema> getSchema() {
+        List<ColumnSchema> schema = new ArrayList<>(types.length);
+        for (int j = 0; j < types.length; j++) {
+            schema.add(new ColumnSchema(headers.get(j), types[j], mismatches[j]));
+        }
+        return schema;
+    }
+}
@@ -0,0 +1,571 @@
+package com.hosecloud.demo.service;
+
+import com.hosecloud.demo.vo.ColumnSchema;
+import com.hosecloud.demo.vo.ColumnType;
+import com.hosecloud.demo.vo.ColumnarTable;
+import com.hosecloud.demo.vo.CompactRow;
+import com.hosecloud.demo.vo.ExcelItem;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 将工作表行转换为数据列表（每一行是一个Map，键为表头，值为单元格内容）和ExcelItem列表
+ * <p>
+ * ExcelItem在读取行的同时通过{@link ExcelItemBinder}直接由单元格值生成，不依赖数据列表。
+ */
+public class SheetDataCollector implements SheetRowHandler {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+
+    private final int headerRowIndex;
+
+    private final boolean columnar;
+
+    @Getter
+    private List<String> headers;
+
+    private List<Map<String, Object>> rows;
+
+    private CompactRow.Schema rowSchema;
+
+    private boolean includeRows = true;
+
+    private boolean includeItems = true;
+
+    private ExcelItemBinder itemBinder;
+
+    /**
+     * 需要读取的列名，为空表示全部列
+     */
+    private Set<String> selectedColumns;
+
+    private int[] columnPositions;
+
+    private List<ExcelItem> items;
+
+    /**
+     * 表头中包含“日期”的列，每个工作表只计算一次
+     */
+    private boolean[] dateColumns;
+
+    /**
+     * 列式存储的数据，仅在列式模式下有值
+     */
+    @Getter
+    private ColumnarTable table;
+
+    private int rowCount;
+
+    /**
+     * 读取器交给收集器的数据行数，包括空行和分页跳过的行
+     */
+    @Getter
+    private long decodedRows;
+
+    /**
+     * 读取器解码的非空单元格数
+     */
+    @Getter
+    private long decodedCells;
+
+    private int firstRowIndex;
+
+    private int skipRows;
+
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * 是否分页读取
+     */
+    @Getter
+    private boolean paged;
+
+    /**
+     * 下一页的游标位置，没有更多数据时为null
+     */
+    @Getter
+    private PageCursor nextPage;
+
+    private int nextOffset;
+
+    private String fingerprint;
+
+    /**
+     * 类型推断的采样行数，0表示不推断
+     */
+    private int sampleRows;
+
+    private SchemaInferrer inferrer;
+
+    /**
+     * 上一页确定的列类型，分页续读时沿用，不再采样
+     */
+    private List<ColumnType> fixedTypes;
+
+    /**
+     * 等待类型确定的采样行
+     */
+    private List<PreparedRow> pendingRows;
+
+    /**
+     * 数据行的输出文件，设置后数据行直接写入文件，不保留在内存中
+     */
+    @Getter
+    private NdjsonRowWriter rowSink;
+
+    /**
+     * 资源预算，为null时不限制行数和单元格数
+     */
+    private ParseBudget budget;
+
+    /**
+     * 增量比较，设置后与上一次解析相同的行不再输出
+     */
+    @Getter
+    private RowDeltaTracker deltaTracker;
+
+    /**
+     * 分组聚合，设置后每个保存的数据行都参与聚合
+     */
+    @Getter
+    private RowAggregator aggregator;
+
+    /**
+     * 行过滤条件，不满足条件的行按空行处理
+     */
+    private RowFilter filter;
+
+    /**
+     * 工作表中按行锚定的图片，键为行在工作表中的索引
+     */
+    private Map<Integer, String> images;
+
+    /**
+     * @param headerRowIndex 表头行号（从1开始计数）
+     */
+    public SheetDataCollector(int headerRowIndex) {
+        this(headerRowIndex, false);
+    }
+
+    /**
+     * @param headerRowIndex 表头行号（从1开始计数）
+     * @param columnar 是否按列存储数据
+     */
+    public SheetDataCollector(int headerRowIndex, boolean columnar) {
+        this.headerRowIndex = headerRowIndex;
+        this.columnar = columnar;
+    }
+
+    /**
+     * 设置需要生成的结果，列式模式下数据始终按列保存
+     * @param includeRows 是否生成数据列表
+     * @param includeItems 是否生成ExcelItem列表
+     */
+    public void setOutputs(boolean includeRows, boolean includeItems) {
+        this.includeRows = includeRows;
+        this.includeItems = includeItems;
+    }
+
+    /**
+     * 设置需要读取的列，未选中的列在读取时直接跳过，不解码
+     * @param columns 列名列表，为空表示全部列
+     */
+    public void setColumns(List<String> columns) {
+        this.selectedColumns = columns != null && !columns.isEmpty() ? new LinkedHashSet<>(columns) : null;
+    }
+
+    /**
+     * 设置分页范围
+     * @param firstRowIndex 从该行（工作表行索引）开始读取，之前的行不解码
+     * @param skipRows 从起始行开始需要跳过的非空数据行数
+     * @param offset 本页第一行在数据列表中的偏移量
+     * @param limit 每页最多返回的行数
+     * @param fingerprint 解析参数指纹，写入下一页游标
+     */
+    public void setPage(int firstRowIndex, int skipRows, int offset, int limit, String fingerprint) {
+        this.firstRowIndex = firstRowIndex;
+        this.skipRows = skipRows;
+        this.nextOffset = offset;
+        this.limit = limit;
+        this.fingerprint = fingerprint;
+        this.paged = true;
+    }
+
+    /**
+     * 启用列类型推断，根据前若干行确定每列的类型，之后所有行的值都转换为该类型
+     * @param sampleRows 采样行数
+     */
+    public void setSchemaInference(int sampleRows) {
+        this.sampleRows = sampleRows;
+    }
+
+    /**
+     * 设置分页续读时沿用的列类型，启用类型推断时不再采样
+     * @param types 游标中记录的列类型，为null时重新推断
+     */
+    public void setSchemaTypes(List<ColumnType> types) {
+        this.fixedTypes = types;
+    }
+
+    /**
+     * 将数据行写入NDJSON文件，不再生成数据列表和ExcelItem列表
+     */
+    public void setRowSink(NdjsonRowWriter rowSink) {
+        this.rowSink = rowSink;
+        setOutputs(false, false);
+    }
+
+    /**
+     * 设置资源预算，行数或单元格数超出预算时抛出{@link ExcelParseException}
+     */
+    public void setBudget(ParseBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * 启用增量模式，只输出与上一次解析相比新增或内容变化的行
+     */
+    public void setDeltaTracker(RowDeltaTracker deltaTracker) {
+        this.deltaTracker = deltaTracker;
+    }
+
+    /**
+     * 在读取行的同时计算分组聚合，聚合覆盖读取范围内的所有非空数据行，与输出内容无关
+     */
+    public void setAggregator(RowAggregator aggregator) {
+        this.aggregator = aggregator;
+    }
+
+    /**
+     * 设置行过滤条件，在规范化和绑定ExcelItem之前判断。不满足条件的行按空行处理，不计入行数和分页，
+     * 也不生成数据行和ExcelItem；序号仍按行在工作表中的位置计算，过滤后不连续
+     */
+    public void setFilter(RowFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * 推断出的列类型，未启用类型推断时为null
+     */
+    public List<ColumnSchema> getSchema() {
+        return inferrer != null ? inferrer.getSchema() : null;
+    }
+
+    /**
+     * 数据列表，列式模式下为按需生成Map的行视图
+     */
+    public List<Map<String, Object>> getDataList() {
+        if (!includeRows) {
+            return null;
+        }
+        if (columnar) {
+            return table != null ? table.asRowList() : new ArrayList<>();
+        }
+        return rows != null ? rows : new ArrayList<>();
+    }
+
+    /**
+     * ExcelItem列表，列式模式下为按需绑定的视图
+     */
+    public List<ExcelItem> getItems() {
+        if (!includeItems) {
+            return null;
+        }
+        if (columnar && table != null) {
+            return new AbstractList<>() {
+                @Override
+                public ExcelItem get(int index) {
+                    return itemBinder.bind(table.getSerialNumber(index), table.getRowValues(index));
+                }
+
+                @Override
+                public int size() {
+                    return table.size();
+                }
+            };
+        }
+        return items != null ? items : new ArrayList<>();
+    }
+
+    /**
+     * 已收集的数据行数
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int[] getColumnPositions() {
+        return columnPositions;
+    }
+
+    @Override
+    public int getFirstRowIndex() {
+        return firstRowIndex;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return nextPage != null;
+    }
+
+    @Override
+    public void onHeaders(List<String> headers) {
+        if (selectedColumns != null) {
+            headers = project(headers);
+        }
+        this.headers = headers;
+        dateColumns = new boolean[headers.size()];
+        for (int j = 0; j < headers.size(); j++) {
+            dateColumns[j] = headers.get(j).contains("日期");
+        }
+        if (includeItems) {
+            itemBinder = new ExcelItemBinder(headers);
+            if (images != null && !images.isEmpty()) {
+                Map<Integer, String> photos = new HashMap<>();
+                images.forEach((rowIndex, reference) -> photos.put(rowIndex - headerRowIndex + 1, reference));
+                itemBinder.setPhotos(photos);
+            }
+        }
+        if (deltaTracker != null) {
+            deltaTracker.start(headers);
+        }
+        if (aggregator != null) {
+            aggregator.bind(headers);
+        }
+        if (filter != null) {
+            filter.bind(headers);
+        }
+        if (sampleRows > 0) {
+            inferrer = new SchemaInferrer(headers, dateColumns);
+            if (fixedTypes != null) {
+                inferrer.infer(fixedTypes);
+            } else {
+                pendingRows = new ArrayList<>();
+            }
+        }
+        if (columnar) {
+            table = new ColumnarTable(headers);
+            if (fixedTypes != null && inferrer != null) {
+                table.setColumnTypes(fixedTypes);
+            }
+            return;
+        }
+        if (includeRows) {
+            rowSchema = new CompactRow.Schema("序号", headers);
+            rows = new ArrayList<>();
+        }
+        if (includeItems) {
+            items = new ArrayList<>();
+        }
+        if (rowSink != null) {
+            rowSink.open(headers);
+        }
+    }
+
+    @Override
+    public void onImages(Map<Integer, String> images) {
+        this.images = images;
+    }
+
+    /**
+     * 按选中的列投影表头，列顺序与工作表一致
+     */
+    private List<String> project(List<String> sheetHeaders) {
+        Set<String> missing = new LinkedHashSet<>(selectedColumns);
+        missing.removeAll(sheetHeaders);
+        if (!missing.isEmpty()) {
+            throw new ExcelParseException("找不到指定的列: " + String.join(", ", missing));
+        }
+        List<String> projected = new ArrayList<>();
+        columnPositions = new int[sheetHeaders.size()];
+        for (int j = 0; j < sheetHeaders.size(); j++) {
+            if (selectedColumns.contains(sheetHeaders.get(j))) {
+                columnPositions[j] = projected.size();
+                projected.add(sheetHeaders.get(j));
+            } else {
+                columnPositions[j] = -1;
+            }
+        }
+        return projected;
+    }
+
+    @Override
+    public void onRow(int rowIndex, Object[] values) {
+        countDecoded(values);
+        accept(rowIndex, values, matches(values) && normalize(values), null);
+    }
+
+    /**
+     * 规范化单元格值并绑定ExcelItem，只读取表头确定的状态，可以并行调用
+     */
+    @Override
+    public PreparedRow prepareRow(int rowIndex, Object[] values) {
+        PreparedRow row = new PreparedRow(rowIndex, values);
+        row.setHasData(matches(values) && normalize(values));
+        if (row.isHasData() && includeItems && !columnar) {
+            row.setItem(itemBinder.bind(rowIndex - headerRowIndex + 1, values));
+        }
+        return row;
+    }
+
+    @Override
+    public void onPreparedRow(PreparedRow row) {
+        countDecoded(row.getValues());
+        accept(row.getRowIndex(), row.getValues(), row.isHasData(), row.getItem());
+    }
+
+    private void countDecoded(Object[] values) {
+        int cells = 0;
+        for (Object value : values) {
+            if (value != null) {
+                cells++;
+            }
+        }
+        decodedRows++;
+        decodedCells += cells;
+        if (budget != null) {
+            budget.addRow(cells);
+        }
+    }
+
+    /**
+     * 判断一行是否满足过滤条件，未设置条件时返回true
+     */
+    private boolean matches(Object[] values) {
+        return filter == null || filter.test(values);
+    }
+
+    /**
+     * 规范化一行中的日期和数字
+     * @return 是否包含非空单元格
+     */
+    private boolean normalize(Object[] values) {
+        boolean hasData = false;
+
+        for (int j = 0; j < values.length; j++) {
+            Object cellValue = values[j];
+
+            // 特殊处理日期格式
+            if (dateColumns[j] && cellValue instanceof LocalDate) {
+                cellValue = ((LocalDate) cellValue).format(DATE_FORMATTER);
+            }
+
+            // 特殊处理数字格式
+            if (cellValue instanceof Double) {
+                Double numValue = (Double) cellValue;
+                // 如果是整数，转换为整数显示
+                if (numValue == Math.floor(numValue)) {
+                    cellValue = numValue.longValue();
+                }
+            }
+
+            values[j] = cellValue;
+            if (!CellDecoder.isBlank(cellValue)) {
+                hasData = true;
+            }
+        }
+        return hasData;
+    }
+
+    /**
+     * 按行顺序处理分页并保存数据
+     * @param item 已绑定的ExcelItem，为null时按需绑定
+     */
+    private void accept(int rowIndex, Object[] values, boolean hasData, ExcelItem item) {
+        // 只添加非空行
+        if (!hasData) {
+            return;
+        }
+        if (skipRows > 0) {
+            skipRows--;
+            return;
+        }
+        if (rowCount >= limit) {
+            // 本页已满，记录下一页第一行的位置和本页确定的列类型
+            if (pendingRows != null) {
+                fixSchema();
+            }
+            nextPage = new PageCursor(rowIndex, nextOffset, fingerprint, inferrer != null ? inferrer.getTypes() : null);
+            return;
+        }
+
+        rowCount++;
+        nextOffset++;
+        if (pendingRows != null) {
+            // 类型确定之前先保存采样行
+            inferrer.sample(values);
+            pendingRows.add(new PreparedRow(rowIndex, values));
+            if (pendingRows.size() >= sampleRows) {
+                fixSchema();
+            }
+            return;
+        }
+        if (inferrer != null) {
+            inferrer.coerce(values);
+            // 预先绑定的ExcelItem使用的是转换前的值
+            item = null;
+        }
+        store(rowIndex, values, item);
+    }
+
+    @Override
+    public void onEnd() {
+        if (pendingRows != null) {
+            fixSchema();
+        }
+        if (rowSink != null) {
+            rowSink.finish();
+        }
+    }
+
+    /**
+     * 根据采样行确定列类型，并保存转换后的采样行
+     */
+    private void fixSchema() {
+        inferrer.infer();
+        if (table != null) {
+            table.setColumnTypes(inferrer.getTypes());
+        }
+        List<PreparedRow> sampled = pendingRows;
+        pendingRows = null;
+        for (PreparedRow row : sampled) {
+            inferrer.coerce(row.getValues());
+            store(row.getRowIndex(), row.getValues(), null);
+        }
+    }
+
+    private void store(int rowIndex, Object[] values, ExcelItem item) {
+        int serialNumber = rowIndex - headerRowIndex + 1;
+        if (aggregator != null) {
+            aggregator.accept(values);
+        }
+        if (deltaTracker != null && !deltaTracker.accept(serialNumber, values)) {
+            // 与上一次相同的行不输出，也不计入行数
+            rowCount--;
+            return;
+        }
+        if (rowSink != null) {
+            rowSink.write(serialNumber, values);
+        } else if (columnar) {
+            table.addRow(serialNumber, values);
+        } else {
+            if (includeRows) {
+                // 添加序号字段，所有行共享同一个键结构
+                rows.add(rowSchema.newRow(serialNumber, values));
+            }
+            if (includeItems) {
+                items.add(item != null ? item : itemBinder.bind(serialNumber, values));
+            }
+        }
+    }
+}
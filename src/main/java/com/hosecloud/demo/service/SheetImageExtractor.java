@@ -0,0 +1,173 @@
+package com.hosecloud.demo.service;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 提取工作表中按行锚定的图片
+ * <p>
+ * 通过StAX逐个读取工作表绘图部件中的锚点（twoCellAnchor、oneCellAnchor），取锚点左上角所在的行，
+ * 再按绘图关系找到图片部件，把zip条目的解压流直接交给{@link ImageStore}，图片内容不在堆中缓存，
+ * 也不构建POI的绘图对象模型。同一行有多张图片时取绘图中的第一张，不按单元格定位的absoluteAnchor忽略。
+ */
+public class SheetImageExtractor {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final ImageStore store;
+
+    private final AtomicInteger imageCount = new AtomicInteger();
+
+    /**
+     * @param store 图片存储方
+     */
+    public SheetImageExtractor(ImageStore store) {
+        this.store = store;
+    }
+
+    /**
+     * 已保存的图片数，同一图片部件在一个工作表中只保存一次
+     */
+    public int getImageCount() {
+        return imageCount.get();
+    }
+
+    /**
+     * 提取一个工作表中的图片
+     * @param sheetName 工作表名称
+     * @param sheetPart 工作表部件
+     * @return 图片左上角所在的行在工作表中的索引（从0开始）到图片引用
+     */
+    public Map<Integer, String> extract(String sheetName, PackagePart sheetPart) throws IOException {
+        Map<Integer, String> images = new HashMap<>();
+        try {
+            for (PackageRelationship rel : sheetPart.getRelationshipsByType(XSSFRelation.DRAWINGS.getRelation())) {
+                PackagePart drawingPart = sheetPart.getRelatedPart(rel);
+                if (drawingPart != null) {
+                    extractDrawing(sheetName, drawingPart, images);
+                }
+            }
+        } catch (InvalidFormatException e) {
+            throw new IOException("无法读取工作表" + sheetName + "的绘图部件", e);
+        }
+        return images;
+    }
+
+    private void extractDrawing(String sheetName, PackagePart drawingPart, Map<Integer, String> images)
+            throws IOException, InvalidFormatException {
+        Map<String, String> stored = new HashMap<>();
+        for (Anchor anchor : readAnchors(drawingPart)) {
+            if (images.containsKey(anchor.row)) {
+                continue;
+            }
+            for (String embed : anchor.embeds) {
+                PackageRelationship rel = drawingPart.getRelationship(embed);
+                PackagePart imagePart = rel != null ? drawingPart.getRelatedPart(rel) : null;
+                if (imagePart == null) {
+                    continue;
+                }
+                String partName = imagePart.getPartName().getName();
+                String reference = stored.get(partName);
+                if (reference == null) {
+                    String fileName = partName.substring(partName.lastIndexOf('/') + 1);
+                    try (InputStream content = imagePart.getInputStream()) {
+                        reference = store.store(sheetName, anchor.row, fileName, content);
+                    }
+                    stored.put(partName, reference);
+                    imageCount.incrementAndGet();
+                }
+                images.put(anchor.row, reference);
+                break;
+            }
+        }
+    }
+
+    /**
+     * 读取绘图中按单元格定位的锚点，按绘图中的顺序
+     */
+    private static List<Anchor> readAnchors(PackagePart drawingPart) throws IOException {
+        List<Anchor> anchors = new ArrayList<>();
+        try (InputStream in = drawingPart.getInputStream()) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                Anchor anchor = null;
+                boolean inFrom = false;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = reader.getLocalName();
+                        if ("twoCellAnchor".equals(name) || "oneCellAnchor".equals(name)) {
+                            anchor = new Anchor();
+                        } else if (anchor != null && "from".equals(name)) {
+                            inFrom = true;
+                        } else if (inFrom && "row".equals(name)) {
+                            anchor.row = Integer.parseInt(reader.getElementText().trim());
+                        } else if (anchor != null && "blip".equals(name)) {
+                            String embed = embedId(reader);
+                            if (embed != null) {
+                                anchor.embeds.add(embed);
+                            }
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        String name = reader.getLocalName();
+                        if ("from".equals(name)) {
+                            inFrom = false;
+                        } else if (anchor != null && ("twoCellAnchor".equals(name) || "oneCellAnchor".equals(name))) {
+                            if (anchor.row >= 0 && !anchor.embeds.isEmpty()) {
+                                anchors.add(anchor);
+                            }
+                            anchor = null;
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException("无法解析绘图部件" + drawingPart.getPartName().getName(), e);
+        }
+        return anchors;
+    }
+
+    /**
+     * 图片的关系ID（r:embed属性）
+     */
+    private static String embedId(XMLStreamReader reader) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String namespace = reader.getAttributeNamespace(i);
+            if ("embed".equals(reader.getAttributeLocalName(i)) && namespace != null && !namespace.isEmpty()) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 绘图中的一个锚点
+     */
+    private static class Anchor {
+
+        private int row = -1;
+
+        private final List<String> embeds = new ArrayList<>();
+    }
+}
@@ -0,0 +1,99 @@
+package com.hosecloud.demo.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 工作表行处理器，由工作表读取器按行顺序回调
+ */
+public interface SheetRowHandler {
+
+    /**
+     * 表头解析完成后回调一次
+     * @param headers 表头列表
+     */
+    void onHeaders(List<String> headers);
+
+    /**
+     * 每读取到表头之后的一行数据回调一次
+     * @param rowIndex 行在工作表中的索引（从0开始）
+     * @param values 单元格值，按{@link #getColumnPositions()}确定的位置存放，缺失的单元格为null；
+     *               读取器为每一行创建新数组，处理器可以直接修改或持有
+     */
+    void onRow(int rowIndex, Object[] values);
+
+    /**
+     * 行预处理，只能读取{@link #onHeaders(List)}中确定的状态，可以在多个线程中并行调用
+     * <p>
+     * 并行解码时读取器在工作线程中调用本方法，再按行顺序把结果交给{@link #onPreparedRow(PreparedRow)}。
+     * @param rowIndex 行在工作表中的索引（从0开始）
+     * @param values 单元格值，与{@link #onRow(int, Object[])}相同
+     */
+    default PreparedRow prepareRow(int rowIndex, Object[] values) {
+        return new PreparedRow(rowIndex, values);
+    }
+
+    /**
+     * 按行顺序接收{@link #prepareRow(int, Object[])}的结果
+     */
+    default void onPreparedRow(PreparedRow row) {
+        onRow(row.getRowIndex(), row.getValues());
+    }
+
+    /**
+     * 工作表中按行锚定的图片，启用图片提取时在读取表头之前回调一次
+     * @param images 图片左上角所在的行在工作表中的索引（从0开始）到图片引用
+     */
+    default void onImages(Map<Integer, String> images) {
+    }
+
+    /**
+     * 工作表读取结束后回调一次，包括因{@link #isFinished()}提前结束的情况
+     */
+    default void onEnd() {
+    }
+
+    /**
+     * 列投影，在{@link #onHeaders(List)}之后调用一次
+     * <p>
+     * 返回数组的下标为工作表列索引，值为该列在行数组中的位置，-1表示不读取该列，读取器不会解码这些单元格。
+     * 行数组的长度为非-1位置的个数。
+     * @return 列位置，返回null表示读取全部列，行数组与表头一一对应
+     */
+    default int[] getColumnPositions() {
+        return null;
+    }
+
+    /**
+     * 根据列投影计算行数组的长度
+     * @param columnPositions 列位置，可以为null
+     * @param headerCount 表头数量
+     */
+    static int rowWidth(int[] columnPositions, int headerCount) {
+        if (columnPositions == null) {
+            return headerCount;
+        }
+        int width = 0;
+        for (int position : columnPositions) {
+            if (position >= 0) {
+                width++;
+            }
+        }
+        return width;
+    }
+
+    /**
+     * 数据行的起始位置，索引小于该值的数据行不解码直接跳过
+     * @return 行在工作表中的索引（从0开始）
+     */
+    default int getFirstRowIndex() {
+        return 0;
+    }
+
+    /**
+     * 是否已读取到足够的数据，返回true时读取器不再读取后续行
+     */
+    default boolean isFinished() {
+        return false;
+    }
+}
@@ -0,0 +1,701 @@
+package com.hosecloud.demo.service;
+
+import org.apache.poi.ooxml.POIXMLTypeLoader;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorkbookPr;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.WorkbookDocument;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * 基于POI事件模型（XSSFReader + SAX）的工作表读取器
+ * <p>
+ * 逐行扫描工作表XML，不构建整个工作簿的对象模型，内存占用与行数基本无关。
+ * 单元格取值规则与{@code XSSFWorkbook}模式保持一致。
+ */
+public class StreamingSheetReader implements Closeable {
+
+    /**
+     * 每个并行解码任务处理的行数
+     */
+    private static final int BLOCK_SIZE = 512;
+
+    private final XSSFReader reader;
+
+    private final CellDecoder decoder;
+
+    private ForkJoinPool decodePool;
+
+    private int parallelRowThreshold;
+
+    private ParseBudget budget;
+
+    /**
+     * 嵌入图片提取器，为null时不提取图片
+     */
+    private SheetImageExtractor imageExtractor;
+
+    /**
+     * 内存映射的共享字符串表，未启用时为null
+     */
+    private final MappedSharedStrings mappedStrings;
+
+    public StreamingSheetReader(OPCPackage pkg) throws Exception {
+        this(pkg, false);
+    }
+
+    /**
+     * @param pkg 工作簿文件
+     * @param mappedSharedStrings 是否使用内存映射的共享字符串表，字符串在查找时才解码，不在堆中保存
+     */
+    public StreamingSheetReader(OPCPackage pkg, boolean mappedSharedStrings) throws Exception {
+        this.reader = new XSSFReader(pkg);
+        List<PackagePart> sharedStringsParts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+        SharedStrings sharedStrings;
+        if (mappedSharedStrings && !sharedStringsParts.isEmpty()) {
+            try (InputStream in = sharedStringsParts.get(0).getInputStream()) {
+                mappedStrings = MappedSharedStrings.load(in, MappedSharedStrings.DEFAULT_CACHE_SIZE);
+            }
+            sharedStrings = mappedStrings;
+        } else {
+            mappedStrings = null;
+            // 与XSSFRichTextString.getString()一致，不包含拼音注释
+            sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+        }
+        StylesTable styles = reader.getStylesTable();
+        this.decoder = styles != null
+                ? new CellDecoder(styles::getStyleAt, styles.getNumCellStyles(), sharedStrings, isDate1904(reader))
+                : new CellDecoder(null, 0, sharedStrings, isDate1904(reader));
+    }
+
+    /**
+     * 启用行的并行解码
+     * <p>
+     * 工作表XML仍由一个线程顺序扫描，数据行超过阈值后，之后的行只记录原始单元格内容，
+     * 按块交给线程池解码和预处理，再按原始行顺序交给行处理器。行数不超过阈值的工作表始终单线程处理。
+     * @param pool 解码使用的线程池
+     * @param rowThreshold 单线程处理的数据行数
+     */
+    public void setParallelDecoding(ForkJoinPool pool, int rowThreshold) {
+        this.decodePool = pool;
+        this.parallelRowThreshold = rowThreshold;
+    }
+
+    /**
+     * 设置资源预算，工作表数据按实际解压的字节数检查
+     */
+    public void setBudget(ParseBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * 启用嵌入图片提取，读取每个工作表的数据行之前先提取按行锚定的图片
+     */
+    public void setImageExtractor(SheetImageExtractor imageExtractor) {
+        this.imageExtractor = imageExtractor;
+    }
+
+    /**
+     * 读取指定工作表
+     * @param sheetName 工作表名称，为空则读取第一个工作表
+     * @param headerRowIndex 表头行号（从1开始计数）
+     * @param handler 行处理器
+     */
+    public void read(String sheetName, int headerRowIndex, SheetRowHandler handler) throws Exception {
+        XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+        boolean byName = sheetName != null && !sheetName.trim().isEmpty();
+        while (sheets.hasNext()) {
+            try (InputStream sheetData = sheets.next()) {
+                if (byName && !sheetName.equalsIgnoreCase(sheets.getSheetName())) {
+                    continue;
+                }
+                extractImages(sheets.getSheetName(), sheets.getSheetPart(), handler);
+                parse(meter(sheets.getSheetPart(), sheetData), headerRowIndex, handler, null);
+                return;
+            }
+        }
+        if (byName) {
+            throw new ExcelParseException("找不到名为 '" + sheetName + "' 的工作表");
+        }
+        throw new IllegalStateException("工作簿中不包含任何工作表");
+    }
+
+    /**
+     * 工作簿中所有工作表的名称，按工作簿中的顺序
+     */
+    public List<String> getSheetNames() throws Exception {
+        List<String> names = new ArrayList<>();
+        XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+        while (sheets.hasNext()) {
+            try (InputStream ignored = sheets.next()) {
+                names.add(sheets.getSheetName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 在线程池中并行读取多个工作表
+     * <p>
+     * 所有工作表共享同一个OPC包、共享字符串表和样式表，它们在读取过程中只读，可以被多个线程同时访问。
+     * 每个工作表的数据流在各自的任务中打开和关闭，由一个线程解析。任一工作表失败时通知其他任务停止，
+     * 等待所有任务结束后才抛出异常，返回或抛出之后不会再有线程读取OPC包。
+     * @param sheetNames 需要读取的工作表名称，必须与工作簿中的名称一致
+     * @param headerRowIndex 表头行号（从1开始计数）
+     * @param handlerFactory 按工作表名称创建行处理器
+     * @param executor 解析使用的线程池
+     * @return 工作表名称到行处理器，按工作簿中的顺序
+     */
+    public <H extends SheetRowHandler> Map<String, H> readAll(Collection<String> sheetNames, int headerRowIndex,
+                                                             Function<String, H> handlerFactory,
+                                                             ExecutorService executor) throws Exception {
+        Map<String, H> handlers = new LinkedHashMap<>();
+        Map<String, PackagePart> parts = new LinkedHashMap<>();
+        XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+        while (sheets.hasNext()) {
+            try (InputStream ignored = sheets.next()) {
+                String name = sheets.getSheetName();
+                if (sheetNames.contains(name) && !parts.containsKey(name)) {
+                    parts.put(name, sheets.getSheetPart());
+                }
+            }
+        }
+        AtomicBoolean aborted = new AtomicBoolean();
+        List<Future<?>> futures = new ArrayList<>();
+        boolean completed = false;
+        try {
+            for (Map.Entry<String, PackagePart> entry : parts.entrySet()) {
+                String name = entry.getKey();
+                PackagePart sheetPart = entry.getValue();
+                H handler = handlerFactory.apply(name);
+                handlers.put(name, handler);
+                futures.add(executor.submit(() -> {
+                    if (aborted.get()) {
+                        return null;
+                    }
+                    try (InputStream in = meter(sheetPart, sheetPart.getInputStream())) {
+                        extractImages(name, sheetPart, handler);
+                        parse(in, headerRowIndex, handler, aborted);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            completed = true;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } finally {
+            if (!completed) {
+                aborted.set(true);
+                awaitAll(futures);
+            }
+        }
+        return handlers;
+    }
+
+    /**
+     * 等待所有任务结束，调用方关闭OPC包之前不能有任务仍在读取
+     * <p>
+     * 未开始的任务看到中止标记后直接返回，正在解析的任务在下一行开始时停止。等待期间的中断在结束后恢复。
+     */
+    private static void awaitAll(List<Future<?>> futures) {
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | CancellationException ignored) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void extractImages(String sheetName, PackagePart sheetPart, SheetRowHandler handler) throws IOException {
+        if (imageExtractor != null) {
+            handler.onImages(imageExtractor.extract(sheetName, sheetPart));
+        }
+    }
+
+    private InputStream meter(PackagePart sheetPart, InputStream sheetData) {
+        if (budget == null) {
+            return sheetData;
+        }
+        return budget.meterSheet(sheetPart.getPartName().getName(), sheetData);
+    }
+
+    /**
+     * @param aborted 中止标记，置位后在下一行开始时停止解析，为null时不检查
+     */
+    private void parse(InputStream sheetData, int headerRowIndex, SheetRowHandler handler,
+                       AtomicBoolean aborted) throws Exception {
+        XMLReader xmlReader = XMLHelper.newXMLReader();
+        SheetHandler sheetHandler = new SheetHandler(headerRowIndex - 1, handler, aborted);
+        xmlReader.setContentHandler(sheetHandler);
+        try {
+            xmlReader.parse(new InputSource(sheetData));
+        } catch (StopReading ignored) {
+            // 行处理器已读取到足够的数据
+        } finally {
+            if (sheetHandler.parallel != null) {
+                sheetHandler.parallel.cancel();
+            }
+        }
+        handler.onEnd();
+    }
+
+    /**
+     * 删除内存映射共享字符串表的临时文件
+     */
+    @Override
+    public void close() throws IOException {
+        if (mappedStrings != null) {
+            mappedStrings.close();
+        }
+    }
+
+    private static boolean isDate1904(XSSFReader reader) throws Exception {
+        try (InputStream workbookData = reader.getWorkbookData()) {
+            CTWorkbookPr workbookPr = WorkbookDocument.Factory
+                    .parse(workbookData, POIXMLTypeLoader.DEFAULT_XML_OPTIONS)
+                    .getWorkbook()
+                    .getWorkbookPr();
+            return workbookPr != null && workbookPr.getDate1904();
+        }
+    }
+
+    private static int columnIndex(String cellRef) {
+        int column = 0;
+        for (int i = 0; i < cellRef.length(); i++) {
+            char c = cellRef.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    /**
+     * 工作表XML的SAX处理器
+     */
+    private class SheetHandler extends DefaultHandler {
+
+        private final int headerRow;
+
+        private final SheetRowHandler handler;
+
+        private List<String> headers;
+
+        private int[] columnPositions;
+
+        private int rowWidth;
+
+        private final List<String> headerCells = new ArrayList<>();
+
+        private Object[] values;
+
+        private int rowIndex = -1;
+
+        private boolean inHeaderRow;
+
+        private boolean inDataRow;
+
+        private int column;
+
+        private boolean cellSelected;
+
+        private String cellType;
+
+        private int styleIndex;
+
+        private String formula;
+
+        private boolean hasValue;
+
+        private String valueText;
+
+        private final StringBuilder text = new StringBuilder();
+
+        private boolean capturing;
+
+        /**
+         * 并行解码器，数据行超过阈值后创建
+         */
+        private ParallelDecoder parallel;
+
+        private RawRow rawRow;
+
+        private int dataRows;
+
+        private int phoneticDepth;
+
+        private final AtomicBoolean aborted;
+
+        SheetHandler(int headerRow, SheetRowHandler handler, AtomicBoolean aborted) {
+            this.headerRow = headerRow;
+            this.handler = handler;
+            this.aborted = aborted;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    if (aborted != null && aborted.get()) {
+                        throw new CancellationException("其他工作表解析失败，已停止读取");
+                    }
+                    String r = attributes.getValue("r");
+                    rowIndex = r != null ? Integer.parseInt(r) - 1 : rowIndex + 1;
+                    if (headers == null && rowIndex > headerRow) {
+                        throw headerRowMissing();
+                    }
+                    inHeaderRow = rowIndex == headerRow;
+                    inDataRow = headers != null && rowIndex > headerRow && rowIndex >= handler.getFirstRowIndex();
+                    if (inHeaderRow) {
+                        headerCells.clear();
+                    } else if (inDataRow) {
+                        if (parallel != null) {
+                            rawRow = new RawRow(rowIndex, rowWidth);
+                        } else {
+                            values = new Object[rowWidth];
+                        }
+                    }
+                    column = -1;
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    column = ref != null ? columnIndex(ref) : column + 1;
+                    cellSelected = inHeaderRow || (inDataRow && position(column) >= 0);
+                    if (cellSelected) {
+                        cellType = attributes.getValue("t");
+                        String s = attributes.getValue("s");
+                        styleIndex = s != null ? Integer.parseInt(s) : 0;
+                        formula = null;
+                        hasValue = false;
+                        if (inHeaderRow) {
+                            while (headerCells.size() <= column) {
+                                headerCells.add(null);
+                            }
+                        }
+                    }
+                    break;
+                case "v":
+                case "f":
+                    startCapture();
+                    break;
+                case "t":
+                    if (phoneticDepth == 0) {
+                        if (!hasValue) {
+                            text.setLength(0);
+                            hasValue = true;
+                        }
+                        capturing = cellSelected;
+                    }
+                    break;
+                case "rPh":
+                    phoneticDepth++;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * 列在行数组中的位置，-1表示不读取
+         */
+        private int position(int column) {
+            if (columnPositions == null) {
+                return column < headers.size() ? column : -1;
+            }
+            return column < columnPositions.length ? columnPositions[column] : -1;
+        }
+
+        private void startCapture() {
+            text.setLength(0);
+            capturing = cellSelected;
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (capturing) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                    capturing = false;
+                    hasValue = true;
+                    valueText = text.toString();
+                    break;
+                case "f":
+                    capturing = false;
+                    formula = text.toString();
+                    break;
+                case "t":
+                    capturing = false;
+                    valueText = text.toString();
+                    break;
+                case "rPh":
+                    phoneticDepth--;
+                    break;
+                case "c":
+                    if (cellSelected && parallel != null && !inHeaderRow) {
+                        rawRow.add(position(column), cellType, styleIndex, hasValue ? valueText : null, formula);
+                    } else if (cellSelected) {
+                        Object value = decoder.decode(cellType, styleIndex, hasValue ? valueText : null, formula);
+                        if (inHeaderRow) {
+                            headerCells.set(column, CellDecoder.toHeaderString(value));
+                        } else {
+                            values[position(column)] = CellDecoder.toDataValue(value);
+                        }
+                    }
+                    cellSelected = false;
+                    valueText = null;
+                    break;
+                case "row":
+                    if (inHeaderRow) {
+                        List<String> parsedHeaders = new ArrayList<>(headerCells.size());
+                        for (int i = 0; i < headerCells.size(); i++) {
+                            String headerName = headerCells.get(i);
+                            // 如果表头为空，使用列索引作为表头
+                            if (headerName == null || headerName.trim().isEmpty()) {
+                                headerName = "Column" + (i + 1);
+                            }
+                            parsedHeaders.add(headerName);
+                        }
+                        headers = parsedHeaders;
+                        handler.onHeaders(headers);
+                        columnPositions = handler.getColumnPositions();
+                        rowWidth = SheetRowHandler.rowWidth(columnPositions, headers.size());
+                    } else if (inDataRow && parallel != null) {
+                        parallel.add(rawRow);
+                        rawRow = null;
+                    } else if (inDataRow) {
+                        handler.onRow(rowIndex, values);
+                        if (handler.isFinished()) {
+                            throw StopReading.INSTANCE;
+                        }
+                        if (decodePool != null && ++dataRows >= parallelRowThreshold) {
+                            parallel = new ParallelDecoder(handler, rowWidth);
+                        }
+                    }
+                    inHeaderRow = false;
+                    inDataRow = false;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endDocument() {
+            if (headers == null) {
+                throw headerRowMissing();
+            }
+            if (parallel != null) {
+                parallel.finish();
+            }
+        }
+
+        private ExcelParseException headerRowMissing() {
+            return new ExcelParseException("表头行不存在，请检查表头行号是否正确");
+        }
+    }
+
+    /**
+     * 按块并行解码数据行，并按原始行顺序交给行处理器
+     */
+    private final class ParallelDecoder {
+
+        private final SheetRowHandler handler;
+
+        private final int rowWidth;
+
+        /**
+         * 同时处理的块数上限，限制等待合并的行占用的内存
+         */
+        private final int maxInFlight;
+
+        private final Deque<Future<PreparedRow[]>> pending = new ArrayDeque<>();
+
+        private List<RawRow> block = new ArrayList<>(BLOCK_SIZE);
+
+        ParallelDecoder(SheetRowHandler handler, int rowWidth) {
+            this.handler = handler;
+            this.rowWidth = rowWidth;
+            this.maxInFlight = decodePool.getParallelism() * 2;
+        }
+
+        void add(RawRow row) {
+            block.add(row);
+            if (block.size() == BLOCK_SIZE) {
+                submit();
+            }
+        }
+
+        /**
+         * 提交剩余的行并等待所有块合并完成
+         */
+        void finish() {
+            if (!block.isEmpty()) {
+                submit();
+            }
+            while (!pending.isEmpty()) {
+                mergeNext();
+            }
+        }
+
+        void cancel() {
+            for (Future<PreparedRow[]> future : pending) {
+                future.cancel(true);
+            }
+            pending.clear();
+        }
+
+        private void submit() {
+            List<RawRow> rows = block;
+            block = new ArrayList<>(BLOCK_SIZE);
+            while (pending.size() >= maxInFlight) {
+                mergeNext();
+            }
+            pending.add(decodePool.submit(() -> decode(rows)));
+        }
+
+        private void mergeNext() {
+            for (PreparedRow row : await(pending.poll())) {
+                handler.onPreparedRow(row);
+                if (handler.isFinished()) {
+                    throw StopReading.INSTANCE;
+                }
+            }
+        }
+
+        private PreparedRow[] decode(List<RawRow> rows) {
+            PreparedRow[] prepared = new PreparedRow[rows.size()];
+            for (int i = 0; i < prepared.length; i++) {
+                RawRow row = rows.get(i);
+                Object[] values = new Object[rowWidth];
+                for (int j = 0; j < row.size; j++) {
+                    values[row.positions[j]] = CellDecoder.toDataValue(
+                            decoder.decode(row.types[j], row.styles[j], row.values[j], row.formulas[j]));
+                }
+                prepared[i] = handler.prepareRow(row.rowIndex, values);
+            }
+            return prepared;
+        }
+
+        private PreparedRow[] await(Future<PreparedRow[]> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("解析线程被中断", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * 尚未解码的数据行，保存选中单元格的原始内容
+     */
+    private static final class RawRow {
+
+        private final int rowIndex;
+
+        private int[] positions;
+
+        private String[] types;
+
+        private int[] styles;
+
+        private String[] values;
+
+        private String[] formulas;
+
+        private int size;
+
+        RawRow(int rowIndex, int capacity) {
+            int initial = Math.max(capacity, 1);
+            this.rowIndex = rowIndex;
+            this.positions = new int[initial];
+            this.types = new String[initial];
+            this.styles = new int[initial];
+            this.values = new String[initial];
+            this.formulas = new String[initial];
+        }
+
+        void add(int position, String type, int style, String value, String formula) {
+            if (size == positions.length) {
+                int capacity = size * 2;
+                positions = Arrays.copyOf(positions, capacity);
+                types = Arrays.copyOf(types, capacity);
+                styles = Arrays.copyOf(styles, capacity);
+                values = Arrays.copyOf(values, capacity);
+                formulas = Arrays.copyOf(formulas, capacity);
+            }
+            positions[size] = position;
+            types[size] = type;
+            styles[size] = style;
+            values[size] = value;
+            formulas[size] = formula;
+            size++;
+        }
+    }
+
+    /**
+     * 用于提前结束SAX解析的信号
+     */
+    private static final class StopReading extends RuntimeException {
+
+        static final StopReading INSTANCE = new StopReading();
+
+        private StopReading() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.hosecloud.demo.service;
+
+import lombok.Getter;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * 待解析的工作簿文件，内容位于本地磁盘或内存中
+ * <p>
+ * 远程文件超过落盘阈值时写入临时文件，以便按随机访问方式读取zip条目；
+ * 临时文件和从下载缓存中取出的文件链接在{@link #close()}时删除。
+ */
+public class WorkbookSource implements Closeable {
+
+    private static final String TEMP_FILE_PREFIX = "excel-download-";
+
+    private static final long TRANSFER_CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * 本地文件，内容在内存中时为null
+     */
+    @Getter
+    private final File file;
+
+    private final byte[] data;
+
+    private final boolean temporary;
+
+    /**
+     * 是否因服务端返回304而直接使用了下载缓存
+     */
+    @Getter
+    private boolean notModified;
+
+    private String contentHash;
+
+    /**
+     * 本次实际下载的字节数，本地文件或下载缓存未修改时为0
+     */
+    @Getter
+    private long downloadedBytes;
+
+    /**
+     * 是否通过Range请求只下载了部分条目
+     */
+    @Getter
+    private boolean partial;
+
+    /**
+     * 按需下载时远程文件的完整大小
+     */
+    @Getter
+    private long remoteSize;
+
+    private WorkbookSource(File file, byte[] data, boolean temporary) {
+        this.file = file;
+        this.data = data;
+        this.temporary = temporary;
+    }
+
+    /**
+     * 由按需下载组装的zip包创建
+     * @param file 临时文件，内容在内存中时为null
+     * @param data 文件内容，写入临时文件时为null
+     * @param downloadedBytes 实际下载的字节数
+     * @param remoteSize 远程文件的完整大小
+     */
+    static WorkbookSource partial(File file, byte[] data, long downloadedBytes, long remoteSize) {
+        WorkbookSource source = new WorkbookSource(file, data, file != null);
+        source.downloadedBytes = downloadedBytes;
+        source.partial = true;
+        source.remoteSize = remoteSize;
+        return source;
+    }
+
+    /**
+     * 下载Excel文件
+     * @param excelUrl 文件链接
+     * @param spillThresholdBytes 落盘阈值，文件大小未知或不小于该值时写入临时文件
+     */
+    public static WorkbookSource download(String excelUrl, long spillThresholdBytes) throws IOException {
+        return download(excelUrl, spillThresholdBytes, null);
+    }
+
+    /**
+     * 下载Excel文件，HTTP链接通过下载缓存发送条件请求
+     * @param excelUrl 文件链接
+     * @param spillThresholdBytes 落盘阈值，文件大小未知或不小于该值时写入临时文件
+     * @param downloadCache 下载缓存，为null时不使用缓存
+     */
+    public static WorkbookSource download(String excelUrl, long spillThresholdBytes, DownloadCache downloadCache) throws IOException {
+        return download(excelUrl, spillThresholdBytes, downloadCache, null);
+    }
+
+    /**
+     * 下载Excel文件，文件大小超过预算时立即中止
+     * @param excelUrl 文件链接
+     * @param spillThresholdBytes 落盘阈值，文件大小未知或不小于该值时写入临时文件
+     * @param downloadCache 下载缓存，为null时不使用缓存
+     * @param budget 资源预算，为null时不限制文件大小
+     */
+    public static WorkbookSource download(String excelUrl, long spillThresholdBytes, DownloadCache downloadCache,
+                                          ParseBudget budget) throws IOException {
+        return download(excelUrl, spillThresholdBytes, downloadCache, budget, null, false);
+    }
+
+    /**
+     * 下载Excel文件，指定工作表选择时HTTP链接先尝试通过Range请求只下载需要的条目，
+     * 服务端不支持Range请求或文件不是xlsx时下载完整文件
+     * @param excelUrl 文件链接
+     * @param spillThresholdBytes 落盘阈值，文件大小未知或不小于该值时写入临时文件
+     * @param downloadCache 下载缓存，为null时不使用缓存；使用下载缓存时总是下载完整文件
+     * @param budget 资源预算，为null时不限制文件大小
+     * @param sheetSelector 由工作簿中的工作表名称选出需要解析的工作表，为null时下载完整文件
+     * @param includeMedia 按需下载时是否下载图片
+     */
+    public static WorkbookSource download(String excelUrl, long spillThresholdBytes, DownloadCache downloadCache,
+                                          ParseBudget budget, UnaryOperator<List<String>> sheetSelector,
+                                          boolean includeMedia) throws IOException {
+        WorkbookSource source = null;
+        if (sheetSelector != null && downloadCache == null) {
+            URL url = new URL(excelUrl);
+            if ("http".equalsIgnoreCase(url.getProtocol()) || "https".equalsIgnoreCase(url.getProtocol())) {
+                source = RemoteZipReader.fetch(url, spillThresholdBytes, budget, sheetSelector, includeMedia);
+            }
+        }
+        if (source == null) {
+            source = fetch(excelUrl, spillThresholdBytes, downloadCache, budget);
+        }
+        if (budget != null) {
+            try {
+                // 本地文件和未修改的缓存文件没有经过下载流，在这里检查
+                budget.checkDownloadSize(source.getSize());
+            } catch (ExcelParseException e) {
+                source.close();
+                throw e;
+            }
+        }
+        return source;
+    }
+
+    private static WorkbookSource fetch(String excelUrl, long spillThresholdBytes, DownloadCache downloadCache,
+                                        ParseBudget budget) throws IOException {
+        URL url = new URL(excelUrl);
+        // 本地文件直接读取，无需复制
+        if ("file".equalsIgnoreCase(url.getProtocol())) {
+            try {
+                File file = Paths.get(url.toURI()).toFile();
+                if (!file.isFile()) {
+                    throw new FileNotFoundException("文件不存在: " + file);
+                }
+                return new WorkbookSource(file, null, false);
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                throw new IOException("无效的文件链接: " + excelUrl, e);
+            }
+        }
+
+        URLConnection connection = url.openConnection();
+        if (downloadCache != null && connection instanceof HttpURLConnection) {
+            return downloadWithCache((HttpURLConnection) connection, downloadCache, spillThresholdBytes, budget);
+        }
+        return read(connection, spillThresholdBytes, budget);
+    }
+
+    /**
+     * 读取响应内容，文件大小未知或不小于落盘阈值时写入临时文件
+     */
+    private static WorkbookSource read(URLConnection connection, long spillThresholdBytes, ParseBudget budget)
+            throws IOException {
+        long contentLength = connection.getContentLengthLong();
+        if (budget != null) {
+            // 声明的大小已超出预算时不读取响应内容
+            budget.checkDownloadSize(contentLength);
+        }
+        try (InputStream inputStream = limitDownload(connection.getInputStream(), budget)) {
+            if (contentLength >= 0 && contentLength < spillThresholdBytes) {
+                WorkbookSource source = new WorkbookSource(null, inputStream.readAllBytes(), false);
+                source.downloadedBytes = source.data.length;
+                return source;
+            }
+            Path tempFile = Files.createTempFile(TEMP_FILE_PREFIX, ".xlsx");
+            long transferred;
+            try {
+                transferred = transferTo(inputStream, tempFile);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(tempFile);
+                throw e;
+            }
+            WorkbookSource source = new WorkbookSource(tempFile.toFile(), null, true);
+            source.downloadedBytes = transferred;
+            return source;
+        }
+    }
+
+    /**
+     * 发送条件请求，文件未修改或响应可缓存时返回缓存文件，否则按普通方式读取响应
+     */
+    private static WorkbookSource downloadWithCache(HttpURLConnection connection, DownloadCache downloadCache,
+                                                    long spillThresholdBytes, ParseBudget budget) throws IOException {
+        downloadCache.prepare(connection);
+        if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            connection.disconnect();
+            File file = downloadCache.revalidated(connection);
+            if (file != null) {
+                WorkbookSource source = new WorkbookSource(file, null, true);
+                source.notModified = true;
+                return source;
+            }
+            // 缓存文件在条件请求期间被淘汰，不带条件头重新下载
+            connection = (HttpURLConnection) connection.getURL().openConnection();
+        }
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK || !DownloadCache.isCacheable(connection)) {
+            return read(connection, spillThresholdBytes, budget);
+        }
+        if (budget != null) {
+            budget.checkDownloadSize(connection.getContentLengthLong());
+        }
+        try (InputStream inputStream = limitDownload(connection.getInputStream(), budget)) {
+            WorkbookSource source = new WorkbookSource(downloadCache.store(connection, inputStream), null, true);
+            source.downloadedBytes = source.file.length();
+            return source;
+        }
+    }
+
+    private static InputStream limitDownload(InputStream inputStream, ParseBudget budget) {
+        return budget != null ? budget.limitDownload(inputStream) : inputStream;
+    }
+
+    /**
+     * @return 写入的字节数
+     */
+    private static long transferTo(InputStream inputStream, Path target) throws IOException {
+        try (ReadableByteChannel source = Channels.newChannel(inputStream);
+             FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            long position = 0;
+            long transferred;
+            while ((transferred = channel.transferFrom(source, position, TRANSFER_CHUNK_SIZE)) > 0) {
+                position += transferred;
+            }
+            return position;
+        }
+    }
+
+    /**
+     * 以只读方式打开OPC包，磁盘文件按随机访问读取zip条目
+     */
+    public OPCPackage openPackage() throws Exception {
+        if (file != null) {
+            return OPCPackage.open(file, PackageAccess.READ);
+        }
+        return OPCPackage.open(new ByteArrayInputStream(data));
+    }
+
+    /**
+     * 文件内容，磁盘文件以只读方式映射到内存，不复制到堆中
+     */
+    public ByteBuffer getContent() throws IOException {
+        if (file == null) {
+            return ByteBuffer.wrap(data);
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new ExcelParseException("文件超过2GB，无法按文本文件解析");
+            }
+            // 映射在通道关闭后仍然有效
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * 文件是否为二进制工作簿（xlsx的zip压缩包或xls的OLE2文件），根据文件头判断
+     */
+    public boolean isBinaryWorkbook() throws IOException {
+        byte[] header = new byte[4];
+        if (file != null) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                if (in.readNBytes(header, 0, header.length) < header.length) {
+                    return false;
+                }
+            }
+        } else if (data.length >= header.length) {
+            System.arraycopy(data, 0, header, 0, header.length);
+        } else {
+            return false;
+        }
+        boolean zip = header[0] == 'P' && header[1] == 'K' && header[2] == 3 && header[3] == 4;
+        boolean ole2 = header[0] == (byte) 0xD0 && header[1] == (byte) 0xCF && header[2] == 0x11 && header[3] == (byte) 0xE0;
+        return zip || ole2;
+    }
+
+    /**
+     * 文件内容的SHA-256摘要（十六进制），首次调用时计算
+     */
+    public String getContentHash() throws IOException {
+        if (contentHash == null) {
+            MessageDigest digest = newDigest();
+            if (file != null) {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                    while (channel.read(buffer) > 0) {
+                        buffer.flip();
+                        digest.update(buffer);
+                        buffer.clear();
+                    }
+                }
+            } else {
+                digest.update(data);
+            }
+            contentHash = HexFormat.of().formatHex(digest.digest());
+        }
+        return contentHash;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 文件大小（字节）
+     */
+    public long getSize() {
+        return file != null ? file.length() : data.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (temporary) {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.hosecloud.demo.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量解析的汇总统计
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSummary {
+    /**
+     * 文件总数
+     */
+    private int fileCount;
+    
+    /**
+     * 解析成功的文件数
+     */
+    private int successCount;
+    
+    /**
+     * 下载或解析失败的文件数
+     */
+    private int failureCount;
+    
+    /**
+     * 所有文件解析出的数据行数之和
+     */
+    private long rowCount;
+    
+    /**
+     * 所有文件实际下载的字节数之和
+     */
+    private long bytesDownloaded;
+    
+    /**
+     * 从开始下载到所有文件解析完成的耗时（毫秒）
+     */
+    private long totalMillis;
+}
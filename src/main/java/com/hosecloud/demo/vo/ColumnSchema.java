@@ -0,0 +1,28 @@
+package com.hosecloud.demo.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 列的类型信息
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ColumnSchema {
+    /**
+     * 列名（表头）
+     */
+    private String name;
+    
+    /**
+     * 根据采样行推断出的类型
+     */
+    private ColumnType type;
+    
+    /**
+     * 无法转换为该类型、保留原始值的单元格数量
+     */
+    private int mismatchCount;
+}
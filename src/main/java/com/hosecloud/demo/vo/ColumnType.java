@@ -0,0 +1,27 @@
+package com.hosecloud.demo.vo;
+
+/**
+ * 推断出的列类型
+ */
+public enum ColumnType {
+    /**
+     * 整数，值为Long
+     */
+    INTEGER,
+    /**
+     * 小数，值为Double
+     */
+    DECIMAL,
+    /**
+     * 日期，“日期”列为yyyy/MM/dd格式的字符串，其他列为LocalDate
+     */
+    DATE,
+    /**
+     * 布尔值，值为Boolean
+     */
+    BOOLEAN,
+    /**
+     * 文本，值为String
+     */
+    TEXT
+}
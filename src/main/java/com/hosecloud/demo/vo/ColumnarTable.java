@@ -0,0 +1,339 @@
+package com.hosecloud.demo.vo;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按列存储的解析结果，每个表头对应一列
+ * <p>
+ * 数值列使用long[]/double[]加空值位图存储，低基数字符串列使用字典加int[]编码存储，
+ * 其他类型按对象存储。通过{@link #asRowList()}提供行视图，读取时与行式结果一致。
+ */
+public class ColumnarTable {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final List<String> headers;
+
+    private final Column[] columns;
+
+    private final CompactRow.Schema rowSchema;
+
+    private int[] serialNumbers = new int[INITIAL_CAPACITY];
+
+    private int size;
+
+    public ColumnarTable(List<String> headers) {
+        this.headers = headers;
+        this.columns = new Column[headers.size()];
+        this.rowSchema = new CompactRow.Schema("序号", headers);
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column();
+        }
+    }
+
+    /**
+     * 追加一行
+     * @param serialNumber 序号
+     * @param values 按列索引存放的单元格值
+     */
+    public void addRow(int serialNumber, Object[] values) {
+        if (size == serialNumbers.length) {
+            serialNumbers = Arrays.copyOf(serialNumbers, size * 2);
+        }
+        serialNumbers[size] = serialNumber;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].add(size, values[i]);
+        }
+        size++;
+    }
+
+    /**
+     * 设置推断出的列类型，DECIMAL列的整数值仍按Double返回，与类型推断后的行式结果一致
+     * @param types 每列的类型，按列索引
+     */
+    public void setColumnTypes(List<ColumnType> types) {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].decimal = types.get(i) == ColumnType.DECIMAL;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public List<String> getHeaders() {
+        return headers;
+    }
+
+    public int getSerialNumber(int row) {
+        return serialNumbers[row];
+    }
+
+    /**
+     * 获取单元格的值
+     * @param row 行索引
+     * @param column 列索引
+     */
+    public Object getValue(int row, int column) {
+        return columns[column].get(row);
+    }
+
+    /**
+     * 获取一行数据，与行式结果中的Map一致
+     */
+    public Map<String, Object> getRow(int row) {
+        return rowSchema.newRow(serialNumbers[row], getRowValues(row));
+    }
+
+    /**
+     * 获取一行中按列索引存放的单元格值
+     */
+    public Object[] getRowValues(int row) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].get(row);
+        }
+        return values;
+    }
+
+    /**
+     * 行视图，按需生成每一行的Map
+     */
+    public List<Map<String, Object>> asRowList() {
+        return new AbstractList<>() {
+            @Override
+            public Map<String, Object> get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                }
+                return getRow(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * 单列存储，根据写入的值自动选择存储方式
+     */
+    private static final class Column {
+
+        /**
+         * 字典编码的最大基数，超过后改为直接存储字符串
+         */
+        private static final int MAX_DICTIONARY_SIZE = 4096;
+
+        private static final int NO_VALUE = -1;
+
+        private enum Kind { EMPTY, LONG, DOUBLE, DICTIONARY, OBJECT }
+
+        private Kind kind = Kind.EMPTY;
+
+        /**
+         * 推断为DECIMAL的列，值不转换为Long
+         */
+        private boolean decimal;
+
+        private long[] longs;
+
+        private double[] doubles;
+
+        private BitSet present;
+
+        private int[] codes;
+
+        private List<String> dictionary;
+
+        private Map<String, Integer> dictionaryIndex;
+
+        private Object[] objects;
+
+        void add(int row, Object value) {
+            switch (kind) {
+                case EMPTY:
+                    if (value == null) {
+                        return;
+                    }
+                    initialize(row, value);
+                    add(row, value);
+                    return;
+                case LONG:
+                    if (value == null) {
+                        ensureCapacity(row);
+                        return;
+                    }
+                    if (value instanceof Long) {
+                        ensureCapacity(row);
+                        longs[row] = (Long) value;
+                        present.set(row);
+                        return;
+                    }
+                    if (value instanceof Double) {
+                        toDoubles(row);
+                        add(row, value);
+                        return;
+                    }
+                    break;
+                case DOUBLE:
+                    if (value == null) {
+                        ensureCapacity(row);
+                        return;
+                    }
+                    if (value instanceof Double || (value instanceof Long && isExactDouble((Long) value))) {
+                        ensureCapacity(row);
+                        doubles[row] = ((Number) value).doubleValue();
+                        present.set(row);
+                        return;
+                    }
+                    break;
+                case DICTIONARY:
+                    if (value == null) {
+                        ensureCapacity(row);
+                        codes[row] = NO_VALUE;
+                        return;
+                    }
+                    if (value instanceof String) {
+                        Integer code = dictionaryIndex.get(value);
+                        if (code == null) {
+                            if (dictionary.size() >= MAX_DICTIONARY_SIZE) {
+                                break;
+                            }
+                            code = dictionary.size();
+                            dictionary.add((String) value);
+                            dictionaryIndex.put((String) value, code);
+                        }
+                        ensureCapacity(row);
+                        codes[row] = code;
+                        return;
+                    }
+                    break;
+                default:
+                    ensureCapacity(row);
+                    objects[row] = value;
+                    return;
+            }
+            // 类型不一致，改为按对象存储
+            toObjects(row);
+            add(row, value);
+        }
+
+        Object get(int row) {
+            switch (kind) {
+                case LONG:
+                    return row < longs.length && present.get(row) ? (Object) longs[row] : null;
+                case DOUBLE:
+                    if (row >= doubles.length || !present.get(row)) {
+                        return null;
+                    }
+                    // 未推断类型时整数值在行式结果中为Long
+                    double value = doubles[row];
+                    return !decimal && value == Math.floor(value) ? (Object) (long) value : (Object) value;
+                case DICTIONARY:
+                    if (row >= codes.length) {
+                        return null;
+                    }
+                    int code = codes[row];
+                    return code == NO_VALUE ? null : dictionary.get(code);
+                case OBJECT:
+                    return row < objects.length ? objects[row] : null;
+                default:
+                    return null;
+            }
+        }
+
+        private void initialize(int row, Object value) {
+            int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(row) * 2);
+            if (value instanceof Long) {
+                kind = Kind.LONG;
+                longs = new long[capacity];
+                present = new BitSet();
+            } else if (value instanceof Double) {
+                kind = Kind.DOUBLE;
+                doubles = new double[capacity];
+                present = new BitSet();
+            } else if (value instanceof String) {
+                kind = Kind.DICTIONARY;
+                codes = new int[capacity];
+                // 之前的行均为空值
+                Arrays.fill(codes, NO_VALUE);
+                dictionary = new ArrayList<>();
+                dictionaryIndex = new HashMap<>();
+            } else {
+                kind = Kind.OBJECT;
+                objects = new Object[capacity];
+            }
+        }
+
+        private void ensureCapacity(int row) {
+            switch (kind) {
+                case LONG:
+                    if (row >= longs.length) {
+                        longs = Arrays.copyOf(longs, longs.length * 2);
+                    }
+                    break;
+                case DOUBLE:
+                    if (row >= doubles.length) {
+                        doubles = Arrays.copyOf(doubles, doubles.length * 2);
+                    }
+                    break;
+                case DICTIONARY:
+                    if (row >= codes.length) {
+                        int oldLength = codes.length;
+                        codes = Arrays.copyOf(codes, oldLength * 2);
+                        Arrays.fill(codes, oldLength, codes.length, NO_VALUE);
+                    }
+                    break;
+                case OBJECT:
+                    if (row >= objects.length) {
+                        objects = Arrays.copyOf(objects, objects.length * 2);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private static boolean isExactDouble(long value) {
+            return (long) (double) value == value;
+        }
+
+        private void toDoubles(int rows) {
+            for (int i = 0; i < rows; i++) {
+                if (present.get(i) && !isExactDouble(longs[i])) {
+                    toObjects(rows);
+                    return;
+                }
+            }
+            doubles = new double[longs.length];
+            for (int i = 0; i < rows; i++) {
+                doubles[i] = longs[i];
+            }
+            longs = null;
+            kind = Kind.DOUBLE;
+        }
+
+        private void toObjects(int rows) {
+            Object[] converted = new Object[Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(rows, 1)) * 2)];
+            for (int i = 0; i < rows; i++) {
+                converted[i] = get(i);
+            }
+            longs = null;
+            doubles = null;
+            present = null;
+            codes = null;
+            dictionary = null;
+            dictionaryIndex = null;
+            objects = converted;
+            kind = Kind.OBJECT;
+        }
+    }
+}
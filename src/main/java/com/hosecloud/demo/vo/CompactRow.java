@@ -0,0 +1,282 @@
+package com.hosecloud.demo.vo;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 紧凑的行数据Map，同一工作表的所有行共享一个表头到下标的{@link Schema}，值存放在数组中
+ * <p>
+ * 键的顺序与按表头依次put到LinkedHashMap时一致，支持新增和删除键，
+ * 可以作为普通的有序Map使用。
+ */
+public class CompactRow extends AbstractMap<String, Object> {
+
+    /**
+     * 已删除的键
+     */
+    private static final Object ABSENT = new Object();
+
+    private final Schema schema;
+
+    private final Object[] values;
+
+    private int removed;
+
+    /**
+     * 不在结构中的键，按需创建
+     */
+    private Map<String, Object> extra;
+
+    private CompactRow(Schema schema, Object[] values) {
+        this.schema = schema;
+        this.values = values;
+    }
+
+    /**
+     * 复制一行，与原行共用键结构，之后两行的修改互不影响
+     */
+    public CompactRow copy() {
+        CompactRow copy = new CompactRow(schema, values.clone());
+        copy.removed = removed;
+        if (extra != null) {
+            copy.extra = new LinkedHashMap<>(extra);
+        }
+        return copy;
+    }
+
+    @Override
+    public int size() {
+        return values.length - removed + (extra != null ? extra.size() : 0);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int slot = schema.slotOf(key);
+        if (slot >= 0 && values[slot] != ABSENT) {
+            return true;
+        }
+        return extra != null && extra.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        int slot = schema.slotOf(key);
+        if (slot >= 0 && values[slot] != ABSENT) {
+            return values[slot];
+        }
+        return extra != null ? extra.get(key) : null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int slot = schema.slotOf(key);
+        if (slot >= 0 && values[slot] != ABSENT) {
+            Object old = values[slot];
+            values[slot] = value;
+            return old;
+        }
+        // 新增或删除后重新加入的键排在末尾，与LinkedHashMap一致
+        if (extra == null) {
+            extra = new LinkedHashMap<>();
+        }
+        return extra.put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int slot = schema.slotOf(key);
+        if (slot >= 0 && values[slot] != ABSENT) {
+            Object old = values[slot];
+            values[slot] = ABSENT;
+            removed++;
+            return old;
+        }
+        return extra != null ? extra.remove(key) : null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return CompactRow.this.size();
+            }
+        };
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+
+        private int next = advance(0);
+
+        private int current = -1;
+
+        private Iterator<Entry<String, Object>> extraIterator;
+
+        private int advance(int from) {
+            int slot = from;
+            while (slot < values.length && values[slot] == ABSENT) {
+                slot++;
+            }
+            return slot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next < values.length) {
+                return true;
+            }
+            if (extraIterator == null) {
+                extraIterator = extra != null ? extra.entrySet().iterator() : Collections.emptyIterator();
+            }
+            return extraIterator.hasNext();
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (next < values.length) {
+                current = next;
+                next = advance(next + 1);
+                return new SlotEntry(current);
+            }
+            current = -1;
+            return extraIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (current >= 0) {
+                if (values[current] == ABSENT) {
+                    throw new IllegalStateException();
+                }
+                values[current] = ABSENT;
+                removed++;
+            } else if (extraIterator != null) {
+                extraIterator.remove();
+            } else {
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    private final class SlotEntry implements Entry<String, Object> {
+
+        private final int slot;
+
+        SlotEntry(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public String getKey() {
+            return schema.keys.get(slot);
+        }
+
+        @Override
+        public Object getValue() {
+            return values[slot];
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object old = getValue();
+            values[slot] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            return getKey().equals(e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /**
+     * 一个工作表所有行共享的键结构：序号在前，随后是去重后的表头
+     */
+    public static final class Schema {
+
+        private final List<String> keys = new ArrayList<>();
+
+        private final Map<String, Integer> slots = new HashMap<>();
+
+        /**
+         * 每一列写入的下标，重复表头写入同一下标，后面的列覆盖前面的列
+         */
+        private final int[] columnSlots;
+
+        private final int serialSlot;
+
+        /**
+         * @param leadingKey 排在首位的键，例如序号
+         * @param headers 表头列表
+         */
+        public Schema(String leadingKey, List<String> headers) {
+            serialSlot = addKey(leadingKey);
+            columnSlots = new int[headers.size()];
+            for (int i = 0; i < headers.size(); i++) {
+                columnSlots[i] = addKey(headers.get(i));
+            }
+        }
+
+        private int addKey(String key) {
+            Integer slot = slots.get(key);
+            if (slot == null) {
+                slot = keys.size();
+                keys.add(key);
+                slots.put(key, slot);
+            }
+            return slot;
+        }
+
+        int slotOf(Object key) {
+            Integer slot = slots.get(key);
+            return slot != null ? slot : -1;
+        }
+
+        /**
+         * 创建一行
+         * @param leadingValue 首位键的值
+         * @param columnValues 按列索引存放的值
+         */
+        public CompactRow newRow(Object leadingValue, Object[] columnValues) {
+            Object[] values = new Object[keys.size()];
+            values[serialSlot] = leadingValue;
+            for (int i = 0; i < columnSlots.length; i++) {
+                values[columnSlots[i]] = columnValues[i];
+            }
+            return new CompactRow(this, values);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.hosecloud.demo.vo;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,6 +11,9 @@ import java.util.Map;
 
 /**
  * Excel解析结果
+ * <p>
+ * message、headers、dataList、items之外的字段只在对应功能启用时有值，为null时不输出到JSON，
+ * 未使用这些功能的调用方得到的结果与之前一致。
  */
 @Data
 @NoArgsConstructor
@@ -34,6 +39,78 @@ public class ExcelParseResult {
      */
     private List<ExcelItem> items;
     
+    /**
+     * 分组聚合结果，每个分组一个Map，键为分组表达式和聚合表达式，仅在指定聚合时有值
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Map<String, Object>> aggregates;
+    
+    /**
+     * 推断出的列类型，仅在启用类型推断时有值
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ColumnSchema> schema;
+    
+    /**
+     * 解析出的数据行数
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer rowCount;
+    
+    /**
+     * 输出为NDJSON时数据文件的路径（gzip压缩，每行一个JSON对象）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String outputFile;
+    
+    /**
+     * 输出为NDJSON时数据文件的SHA-256摘要（十六进制）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String outputChecksum;
+    
+    /**
+     * 分页读取时是否还有下一页，未分页时为null
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean hasMore;
+    
+    /**
+     * 下一页的分页游标，没有更多数据时为null
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+    
+    /**
+     * 列式存储的数据，仅在列式结果模式下有值，此时dataList和items为基于它的视图
+     */
+    @JsonIgnore
+    private ColumnarTable columnarData;
+    
+    /**
+     * 多工作表解析时每个工作表的结果，键为工作表名称，按工作簿中的顺序
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, ExcelParseResult> sheetResults;
+    
+    /**
+     * 增量模式下与上一次解析相比的行变化，此时dataList和items只包含新增和变化的行
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private RowDelta delta;
+    
+    /**
+     * 批量解析时每个文件的结果，键为文件链接，顺序与excelUrls一致
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, ExcelParseResult> batchResults;
+    
+    /**
+     * 批量解析的汇总统计
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private BatchSummary batchSummary;
+    
     /**
      * 构造函数
      * @param message 状态信息
@@ -41,4 +118,18 @@ public class ExcelParseResult {
     public ExcelParseResult(String message) {
         this.message = message;
     }
+    
+    /**
+     * 构造函数
+     * @param message 状态信息
+     * @param headers 表头列表
+     * @param dataList 数据列表
+     * @param items 数据项列表
+     */
+    public ExcelParseResult(String message, List<String> headers, List<Map<String, Object>> dataList, List<ExcelItem> items) {
+        this.message = message;
+        this.headers = headers;
+        this.dataList = dataList;
+        this.items = items;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.hosecloud.demo.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 与上一次解析相比的行变化，行按序号对应
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RowDelta {
+    /**
+     * 是否没有上一次的解析记录（或表头、解析参数已变化），此时所有行都视为新增
+     */
+    private boolean baseline;
+    
+    /**
+     * 本次解析的非空数据行总数
+     */
+    private int totalRows;
+    
+    /**
+     * 新增行的序号
+     */
+    private List<Integer> added;
+    
+    /**
+     * 内容变化的行的序号
+     */
+    private List<Integer> changed;
+    
+    /**
+     * 上一次存在、本次已删除或变为空行的序号
+     */
+    private List<Integer> removed;
+}
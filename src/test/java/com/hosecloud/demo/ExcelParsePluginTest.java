@@ -1,27 +1,74 @@
 package com.hosecloud.demo;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hosecloud.demo.service.CellDecoder;
+import com.hosecloud.demo.service.DownloadCache;
+import com.hosecloud.demo.service.ExcelItemBinder;
+import com.hosecloud.demo.service.ExcelParseException;
+import com.hosecloud.demo.service.MappedSharedStrings;
+import com.hosecloud.demo.service.ParseBudget;
+import com.hosecloud.demo.service.ParseResultCache;
+import com.hosecloud.demo.service.ParseStats;
+import com.hosecloud.demo.service.SheetRowHandler;
+import com.hosecloud.demo.service.StreamingSheetReader;
+import com.hosecloud.demo.service.WorkbookSource;
+import com.hosecloud.demo.vo.ColumnSchema;
+import com.hosecloud.demo.vo.ColumnType;
+import com.hosecloud.demo.vo.CompactRow;
 import com.hosecloud.demo.vo.ExcelItem;
 import com.hosecloud.demo.vo.ExcelParseResult;
+import com.hosecloud.demo.vo.RowDelta;
 import com.hosecloud.hab.plugin.BaseTaskPlugin;
 import com.hosecloud.hab.plugin.model.Log;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -221,46 +268,42 @@ class ExcelParsePluginTest {
         // 空单元格
         Cell nullCell = row.createCell(6);
         
-        // 创建插件实例
-        ExcelParsePlugin plugin = new ExcelParsePlugin();
-        
-        // 获取私有方法
-        Method getCellValueAsStringMethod = ExcelParsePlugin.class.getDeclaredMethod("getCellValueAsString", Cell.class);
-        Method getCellValueMethod = ExcelParsePlugin.class.getDeclaredMethod("getCellValue", Cell.class);
-        getCellValueAsStringMethod.setAccessible(true);
-        getCellValueMethod.setAccessible(true);
+        // 同一工作簿的单元格共用一个解码器
+        CellDecoder decoder = CellDecoder.forWorkbook(workbook);
+        Function<Cell, String> getCellValueAsString = cell -> CellDecoder.toHeaderString(decoder.decode(cell));
+        Function<Cell, Object> getCellValue = cell -> CellDecoder.toDataValue(decoder.decode(cell));
         
-        // 测试 getCellValueAsString 方法
-        assertEquals("测试文本", getCellValueAsStringMethod.invoke(plugin, stringCell));
-        assertEquals("100", getCellValueAsStringMethod.invoke(plugin, intCell));
-        assertEquals("123.45", getCellValueAsStringMethod.invoke(plugin, doubleCell));
-        assertEquals("true", getCellValueAsStringMethod.invoke(plugin, booleanCell));
+        // 表头单元格的字符串形式
+        assertEquals("测试文本", getCellValueAsString.apply(stringCell));
+        assertEquals("100", getCellValueAsString.apply(intCell));
+        assertEquals("123.45", getCellValueAsString.apply(doubleCell));
+        assertEquals("true", getCellValueAsString.apply(booleanCell));
         
         // 日期单元格的值可能会根据系统设置而变化，所以只检查是否包含年份
-        String dateCellValue = (String) getCellValueAsStringMethod.invoke(plugin, dateCell);
+        String dateCellValue = getCellValueAsString.apply(dateCell);
         assertNotNull(dateCellValue);
         
         // 公式单元格 - 由于没有计算引擎，所以直接返回公式字符串
-        Object formulaResult = getCellValueAsStringMethod.invoke(plugin, formulaCell);
+        Object formulaResult = getCellValueAsString.apply(formulaCell);
         assertNotNull(formulaResult);
         
-        assertEquals("", getCellValueAsStringMethod.invoke(plugin, nullCell));
+        assertEquals("", getCellValueAsString.apply(nullCell));
         
-        // 测试 getCellValue 方法
-        assertEquals("测试文本", getCellValueMethod.invoke(plugin, stringCell));
-        assertEquals(100L, getCellValueMethod.invoke(plugin, intCell));
-        assertEquals(123.45, getCellValueMethod.invoke(plugin, doubleCell));
-        assertEquals(true, getCellValueMethod.invoke(plugin, booleanCell));
+        // 数据单元格的值（保留原始类型）
+        assertEquals("测试文本", getCellValue.apply(stringCell));
+        assertEquals(100L, getCellValue.apply(intCell));
+        assertEquals(123.45, getCellValue.apply(doubleCell));
+        assertEquals(true, getCellValue.apply(booleanCell));
         
         // 日期单元格的值可能是LocalDate或其他日期类型
-        Object dateCellObj = getCellValueMethod.invoke(plugin, dateCell);
+        Object dateCellObj = getCellValue.apply(dateCell);
         assertNotNull(dateCellObj);
         
         // 公式单元格 - 由于没有计算引擎，所以直接返回公式字符串
-        Object formulaObj = getCellValueMethod.invoke(plugin, formulaCell);
+        Object formulaObj = getCellValue.apply(formulaCell);
         assertNotNull(formulaObj);
         
-        assertNull(getCellValueMethod.invoke(plugin, nullCell));
+        assertNull(getCellValue.apply(nullCell));
         
         // 关闭工作簿
         workbook.close();
@@ -268,20 +311,6 @@ class ExcelParsePluginTest {
     
     @Test
     void testDataConversionMethods() throws Exception {
-        // 创建插件实例
-        ExcelParsePlugin plugin = new ExcelParsePlugin();
-        
-        // 获取私有方法
-        Method convertToExcelItemsMethod = ExcelParsePlugin.class.getDeclaredMethod("convertToExcelItems", List.class);
-        Method getStringValueMethod = ExcelParsePlugin.class.getDeclaredMethod("getStringValue", Map.class, String.class);
-        Method getIntValueMethod = ExcelParsePlugin.class.getDeclaredMethod("getIntValue", Map.class, String.class);
-        Method getDoubleValueMethod = ExcelParsePlugin.class.getDeclaredMethod("getDoubleValue", Map.class, String.class);
-        
-        convertToExcelItemsMethod.setAccessible(true);
-        getStringValueMethod.setAccessible(true);
-        getIntValueMethod.setAccessible(true);
-        getDoubleValueMethod.setAccessible(true);
-        
         // 创建测试数据
         List<Map<String, Object>> dataList = new ArrayList<>();
         
@@ -317,9 +346,12 @@ class ExcelParsePluginTest {
         row2.put("备注", "");    // 空字符串
         dataList.add(row2);
         
-        // 测试 convertToExcelItems 方法
-        @SuppressWarnings("unchecked")
-        List<ExcelItem> items = (List<ExcelItem>) convertToExcelItemsMethod.invoke(plugin, dataList);
+        // 按表头编译的绑定器转换每一行
+        List<String> headers = new ArrayList<>(row1.keySet());
+        ExcelItemBinder binder = new ExcelItemBinder(headers);
+        List<ExcelItem> items = dataList.stream()
+                .map(row -> binder.bind(0, headers.stream().map(row::get).toArray()))
+                .collect(Collectors.toList());
         
         // 验证结果
         assertEquals(2, items.size());
@@ -354,21 +386,1756 @@ class ExcelParsePluginTest {
         assertNull(item2.getPhotoUrl());  // 空值
         assertEquals("", item2.getRemark()); // 空字符串
         
-        // 测试 getStringValue 方法
-        assertEquals("笔记本电脑", getStringValueMethod.invoke(plugin, row1, "物品名称"));
-        assertNull(getStringValueMethod.invoke(plugin, row1, "不存在的键"));
-        assertNull(getStringValueMethod.invoke(plugin, row2, "照片"));
-        assertEquals("", getStringValueMethod.invoke(plugin, row2, "备注"));
-        
-        // 测试 getIntValue 方法
-        assertEquals(1, getIntValueMethod.invoke(plugin, row1, "序号"));
-        assertEquals(2, getIntValueMethod.invoke(plugin, row2, "序号")); // 字符串转整数
-        assertNull(getIntValueMethod.invoke(plugin, row1, "不存在的键"));
-        
-        // 测试 getDoubleValue 方法
-        assertEquals(8000.0, getDoubleValueMethod.invoke(plugin, row1, "单价"));
-        assertEquals(3000.0, getDoubleValueMethod.invoke(plugin, row2, "单价")); // 整数转浮点数
-        assertNull(getDoubleValueMethod.invoke(plugin, row1, "不存在的键"));
+        // 单个值的转换
+        assertEquals("笔记本电脑", ExcelItemBinder.toStringValue(row1.get("物品名称")));
+        assertNull(ExcelItemBinder.toStringValue(row1.get("不存在的键")));
+        assertNull(ExcelItemBinder.toStringValue(row2.get("照片")));
+        assertEquals("", ExcelItemBinder.toStringValue(row2.get("备注")));
+        
+        assertEquals(1, ExcelItemBinder.toIntValue(row1.get("序号")));
+        assertEquals(2, ExcelItemBinder.toIntValue(row2.get("序号"))); // 字符串转整数
+        assertNull(ExcelItemBinder.toIntValue(row1.get("不存在的键")));
+        
+        assertEquals(8000.0, ExcelItemBinder.toDoubleValue(row1.get("单价")));
+        assertEquals(3000.0, ExcelItemBinder.toDoubleValue(row2.get("单价"))); // 整数转浮点数
+        assertNull(ExcelItemBinder.toDoubleValue(row1.get("不存在的键")));
+    }
+
+    @Test
+    void testStreamingModeMatchesWorkbookMode(@TempDir Path tempDir) throws Exception {
+        // 构造包含空行、空表头、公式、布尔值、非日期列日期值的工作表
+        Workbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("明细");
+        CellStyle dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy/mm/dd"));
+        
+        Row headerRow = sheet.createRow(0);
+        headerRow.createCell(0).setCellValue("采购日期");
+        headerRow.createCell(1).setCellValue("物品名称");
+        headerRow.createCell(3).setCellValue("数量");
+        headerRow.createCell(4).setCellValue(2023);
+        
+        Row row1 = sheet.createRow(1);
+        Cell dateCell = row1.createCell(0);
+        dateCell.setCellStyle(dateStyle);
+        dateCell.setCellValue(LocalDate.of(2023, 4, 1));
+        row1.createCell(1).setCellValue("显示器");
+        row1.createCell(2).setCellValue(true);
+        row1.createCell(3).setCellValue(1.5);
+        row1.createCell(4).setCellFormula("D2*2");
+        row1.createCell(6).setCellValue("超出表头的列");
+        
+        // 只有空白单元格的行
+        Row blankRow = sheet.createRow(2);
+        blankRow.createCell(1).setCellValue("  ");
+        
+        Row row4 = sheet.createRow(4);
+        Cell otherDate = row4.createCell(2);
+        otherDate.setCellStyle(dateStyle);
+        otherDate.setCellValue(LocalDate.of(2023, 5, 6));
+        row4.createCell(3).setCellValue(3);
+        
+        File file = tempDir.resolve("modes.xlsx").toFile();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            workbook.write(outputStream);
+        }
+        workbook.close();
+        
+        ExcelParseResult streaming = runPlugin(file, 1, null, "STREAMING");
+        ExcelParseResult dom = runPlugin(file, 1, null, "WORKBOOK");
+        
+        assertEquals("解析成功", streaming.getMessage());
+        assertEquals(List.of("采购日期", "物品名称", "Column3", "数量", "2023"), streaming.getHeaders());
+        assertEquals(dom.getHeaders(), streaming.getHeaders());
+        assertEquals(dom.getDataList(), streaming.getDataList());
+        assertEquals(dom.getItems(), streaming.getItems());
+        
+        // 空行被跳过，序号按行位置计算
+        assertEquals(2, streaming.getDataList().size());
+        assertEquals(4, streaming.getDataList().get(1).get("序号"));
+        assertEquals("2023/04/01", streaming.getDataList().get(0).get("采购日期"));
+        assertEquals(LocalDate.of(2023, 5, 6), streaming.getDataList().get(1).get("Column3"));
+    }
+
+    @Test
+    void testRemoteDownloadSpillsToTempFile() throws Exception {
+        byte[] content = Files.readAllBytes(testExcelFile.toPath());
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/test.xlsx", exchange -> {
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(content);
+            }
+        });
+        server.start();
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/test.xlsx";
+            Path tmpDir = Path.of(System.getProperty("java.io.tmpdir"));
+            long leftoverBefore = countDownloadTempFiles(tmpDir);
+            
+            // 阈值为0时总是落盘，阈值足够大时在内存中解析
+            ExcelParsePlugin spilled = new ExcelParsePlugin();
+            spilled.setExcelUrl(url);
+            spilled.setHeaderRowIndex(2);
+            spilled.setSpillThresholdBytes(0L);
+            setExecuteLogs(spilled, new ArrayList<>());
+            ExcelParseResult spilledResult = spilled.run();
+            
+            ExcelParsePlugin inMemory = new ExcelParsePlugin();
+            inMemory.setExcelUrl(url);
+            inMemory.setHeaderRowIndex(2);
+            inMemory.setSpillThresholdBytes(Long.MAX_VALUE);
+            setExecuteLogs(inMemory, new ArrayList<>());
+            ExcelParseResult inMemoryResult = inMemory.run();
+            
+            assertEquals("解析成功", spilledResult.getMessage());
+            assertEquals(3, spilledResult.getDataList().size());
+            assertEquals(inMemoryResult.getDataList(), spilledResult.getDataList());
+            // 临时文件在解析结束后删除
+            assertEquals(leftoverBefore, countDownloadTempFiles(tmpDir));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void testConditionalDownloadCache(@TempDir Path tempDir) throws Exception {
+        byte[] content = Files.readAllBytes(testExcelFile.toPath());
+        String[] etag = {"\"v1\""};
+        AtomicInteger fullDownloads = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            if (etag[0].equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            fullDownloads.incrementAndGet();
+            exchange.getResponseHeaders().set("ETag", etag[0]);
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(content);
+            }
+        });
+        server.start();
+        try {
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            Path cacheDir = tempDir.resolve("downloads");
+            
+            List<Log> firstLogs = new ArrayList<>();
+            ExcelParseResult first = runWithDownloadCache(base + "/a.xlsx", cacheDir, null, firstLogs);
+            List<Log> secondLogs = new ArrayList<>();
+            ExcelParseResult second = runWithDownloadCache(base + "/a.xlsx", cacheDir, null, secondLogs);
+            assertEquals(1, fullDownloads.get());
+            assertTrue(secondLogs.stream().anyMatch(log -> log.toString().contains("文件未修改，使用本地下载缓存")));
+            assertFalse(firstLogs.stream().anyMatch(log -> log.toString().contains("文件未修改")));
+            assertEquals(first.getDataList(), second.getDataList());
+            
+            // 文件更新后重新下载
+            etag[0] = "\"v2\"";
+            runWithDownloadCache(base + "/a.xlsx", cacheDir, null, new ArrayList<>());
+            assertEquals(2, fullDownloads.get());
+            
+            // 超出容量时淘汰最久未使用的文件
+            runWithDownloadCache(base + "/b.xlsx", cacheDir, 0L, new ArrayList<>());
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                assertEquals(1, files.filter(f -> f.toString().endsWith(".xlsx")).count());
+            }
+            runWithDownloadCache(base + "/a.xlsx", cacheDir, null, new ArrayList<>());
+            assertEquals(4, fullDownloads.get());
+            
+            // 取出的缓存文件在使用期间不受淘汰影响，关闭后删除
+            try (WorkbookSource held = WorkbookSource.download(base + "/a.xlsx", 0, new DownloadCache(cacheDir, 0))) {
+                assertTrue(held.isNotModified());
+                try (WorkbookSource other = WorkbookSource.download(base + "/c.xlsx", 0, new DownloadCache(cacheDir, 0))) {
+                    assertFalse(other.isNotModified());
+                }
+                try (Stream<Path> files = Files.list(cacheDir)) {
+                    assertEquals(1, files.filter(f -> f.toString().endsWith(".xlsx")).count());
+                }
+                assertArrayEquals(content, Files.readAllBytes(held.getFile().toPath()));
+            }
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                assertEquals(0, files.filter(f -> f.toString().endsWith(".checkout")).count());
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private ExcelParseResult runWithDownloadCache(String url, Path cacheDir, Long maxMb, List<Log> logs) throws Exception {
+        ExcelParsePlugin plugin = new ExcelParsePlugin();
+        plugin.setExcelUrl(url);
+        plugin.setHeaderRowIndex(2);
+        plugin.setDownloadCacheDir(cacheDir.toString());
+        plugin.setDownloadCacheMaxMb(maxMb);
+        setExecuteLogs(plugin, logs);
+        ExcelParseResult result = plugin.run();
+        assertEquals("解析成功", result.getMessage());
+        return result;
+    }
+
+    @Test
+    void testPagedReadingWithCursor(@TempDir Path tempDir) throws Exception {
+        ExcelParsePlugin firstPage = new ExcelParsePlugin();
+        firstPage.setExcelUrl(testExcelFile.toURI().toString());
+        firstPage.setHeaderRowIndex(2);
+        firstPage.setLimit(2);
+        setExecuteLogs(firstPage, new ArrayList<>());
+        ExcelParseResult page1 = firstPage.run();
+        
+        assertEquals("解析成功", page1.getMessage());
+        assertEquals(2, page1.getDataList().size());
+        assertEquals(2, page1.getItems().size());
+        assertTrue(page1.getHasMore());
+        assertNotNull(page1.getNextCursor());
+        
+        ExcelParsePlugin secondPage = new ExcelParsePlugin();
+        secondPage.setExcelUrl(testExcelFile.toURI().toString());
+        secondPage.setHeaderRowIndex(2);
+        secondPage.setLimit(2);
+        secondPage.setCursor(page1.getNextCursor());
+        setExecuteLogs(secondPage, new ArrayList<>());
+        ExcelParseResult page2 = secondPage.run();
+        
+        assertEquals(1, page2.getDataList().size());
+        assertEquals(3, page2.getItems().get(0).getSerialNumber());
+        assertEquals("办公桌椅", page2.getItems().get(0).getItemName());
+        assertFalse(page2.getHasMore());
+        assertNull(page2.getNextCursor());
+        
+        // 按偏移量读取与游标结果一致
+        ExcelParsePlugin byOffset = new ExcelParsePlugin();
+        byOffset.setExcelUrl(testExcelFile.toURI().toString());
+        byOffset.setHeaderRowIndex(2);
+        byOffset.setOffset(2);
+        byOffset.setLimit(2);
+        setExecuteLogs(byOffset, new ArrayList<>());
+        assertEquals(page2.getDataList(), byOffset.run().getDataList());
+        
+        // 解析参数变化后游标失效
+        ExcelParsePlugin mismatched = new ExcelParsePlugin();
+        mismatched.setExcelUrl(testExcelFile.toURI().toString());
+        mismatched.setHeaderRowIndex(1);
+        mismatched.setCursor(page1.getNextCursor());
+        setExecuteLogs(mismatched, new ArrayList<>());
+        assertTrue(mismatched.run().getMessage().contains("分页游标"));
+        
+        // 列数相同但读取列不同、解析模式不同时游标同样失效
+        ExcelParsePlugin projected = new ExcelParsePlugin();
+        projected.setExcelUrl(testExcelFile.toURI().toString());
+        projected.setHeaderRowIndex(2);
+        projected.setLimit(2);
+        projected.setColumns(List.of("物品名称", "数量"));
+        setExecuteLogs(projected, new ArrayList<>());
+        String projectedCursor = projected.run().getNextCursor();
+        projected.setColumns(List.of("物品名称", "单价"));
+        projected.setCursor(projectedCursor);
+        assertTrue(projected.run().getMessage().contains("分页游标"));
+        ExcelParsePlugin otherMode = new ExcelParsePlugin();
+        otherMode.setExcelUrl(testExcelFile.toURI().toString());
+        otherMode.setHeaderRowIndex(2);
+        otherMode.setLimit(2);
+        otherMode.setParseMode("WORKBOOK");
+        otherMode.setCursor(page1.getNextCursor());
+        setExecuteLogs(otherMode, new ArrayList<>());
+        assertTrue(otherMode.run().getMessage().contains("分页游标"));
+        
+        // 不分页时没有hasMore，未使用的字段不输出到JSON
+        ExcelParseResult unpaged = runPlugin(testExcelFile, 2, null, null);
+        assertNull(unpaged.getHasMore());
+        List<String> fields = new ArrayList<>();
+        new ObjectMapper().valueToTree(unpaged).fieldNames().forEachRemaining(fields::add);
+        assertEquals(List.of("message", "headers", "dataList", "items", "rowCount"), fields);
+        assertTrue(new ObjectMapper().valueToTree(page1).has("hasMore"));
+        
+        // 同一链接的文件内容变化后游标失效
+        File changing = tempDir.resolve("changing.xlsx").toFile();
+        Files.copy(testExcelFile.toPath(), changing.toPath());
+        ExcelParsePlugin before = new ExcelParsePlugin();
+        before.setExcelUrl(changing.toURI().toString());
+        before.setHeaderRowIndex(2);
+        before.setLimit(2);
+        setExecuteLogs(before, new ArrayList<>());
+        String staleCursor = before.run().getNextCursor();
+        try (InputStream in = Files.newInputStream(testExcelFile.toPath());
+             Workbook workbook = WorkbookFactory.create(in);
+             FileOutputStream outputStream = new FileOutputStream(changing)) {
+            workbook.getSheetAt(0).shiftRows(2, workbook.getSheetAt(0).getLastRowNum(), 1);
+            workbook.getSheetAt(0).createRow(2).createCell(0).setCellValue("新插入的行");
+            workbook.write(outputStream);
+        }
+        ExcelParsePlugin after = new ExcelParsePlugin();
+        after.setExcelUrl(changing.toURI().toString());
+        after.setHeaderRowIndex(2);
+        after.setLimit(2);
+        after.setCursor(staleCursor);
+        setExecuteLogs(after, new ArrayList<>());
+        assertTrue(after.run().getMessage().contains("分页游标"));
+    }
+
+    private static long countDownloadTempFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("excel-download-")).count();
+        }
+    }
+
+    @Test
+    void testColumnarResultMatchesRowResult(@TempDir Path tempDir) throws Exception {
+        Workbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("明细");
+        Row headerRow = sheet.createRow(0);
+        String[] headers = {"使用部门", "单价", "数量", "备注", "混合"};
+        for (int i = 0; i < headers.length; i++) {
+            headerRow.createCell(i).setCellValue(headers[i]);
+        }
+        String[] departments = {"技术部", "行政部", "市场部"};
+        for (int i = 1; i <= 200; i++) {
+            Row row = sheet.createRow(i);
+            row.createCell(0).setCellValue(departments[i % departments.length]);
+            // 整数与小数混合的数值列
+            row.createCell(1).setCellValue(i % 7 == 0 ? i + 0.5 : i);
+            if (i % 5 != 0) {
+                row.createCell(2).setCellValue(i);
+            }
+            // 稀疏列
+            if (i % 50 == 0) {
+                row.createCell(3).setCellValue("备注" + i);
+            }
+            // 类型不一致的列
+            if (i % 2 == 0) {
+                row.createCell(4).setCellValue("文本" + i);
+            } else {
+                row.createCell(4).setCellValue(i);
+            }
+        }
+        File file = tempDir.resolve("columnar.xlsx").toFile();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            workbook.write(outputStream);
+        }
+        workbook.close();
+        
+        ExcelParseResult rows = runPlugin(file, 1, null, null);
+        
+        ExcelParsePlugin plugin = new ExcelParsePlugin();
+        plugin.setExcelUrl(file.toURI().toString());
+        plugin.setHeaderRowIndex(1);
+        plugin.setResultFormat("COLUMNAR");
+        setExecuteLogs(plugin, new ArrayList<>());
+        ExcelParseResult columnar = plugin.run();
+        
+        assertNotNull(columnar.getColumnarData());
+        assertEquals(200, columnar.getColumnarData().size());
+        assertEquals(rows.getHeaders(), columnar.getHeaders());
+        assertEquals(rows.getDataList(), columnar.getDataList());
+        assertEquals(rows.getItems(), columnar.getItems());
+        assertEquals(7.5, columnar.getDataList().get(6).get("单价"));
+        assertEquals(8L, columnar.getDataList().get(7).get("单价"));
+        assertNull(columnar.getDataList().get(4).get("数量"));
+        
+        // 列式模式也适用于示例文件
+        ExcelParsePlugin sample = new ExcelParsePlugin();
+        sample.setExcelUrl(testExcelFile.toURI().toString());
+        sample.setHeaderRowIndex(2);
+        sample.setResultFormat("COLUMNAR");
+        setExecuteLogs(sample, new ArrayList<>());
+        assertEquals(runPlugin(testExcelFile, 2, null, null).getItems(), sample.run().getItems());
+    }
+
+    @Test
+    void testCompactRowBehavesLikeLinkedHashMap() throws Exception {
+        // 重复表头以及与序号同名的表头
+        List<String> headers = List.of("物品名称", "金额", "物品名称", "序号");
+        CompactRow.Schema schema = new CompactRow.Schema("序号", headers);
+        Object[] values = {"笔记本电脑", 16000L, "打印机", null};
+        Map<String, Object> compact = schema.newRow(1, values);
+        
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("序号", 1);
+        for (int i = 0; i < headers.size(); i++) {
+            expected.put(headers.get(i), values[i]);
+        }
+        
+        assertEquals(expected, compact);
+        assertEquals(expected.hashCode(), compact.hashCode());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(compact.keySet()));
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(mapper.writeValueAsString(expected), mapper.writeValueAsString(compact));
+        
+        // 修改、删除和新增键的行为与LinkedHashMap一致
+        for (Map<String, Object> map : List.of(expected, compact)) {
+            map.put("金额", 3000L);
+            map.remove("物品名称");
+            map.put("备注", "紧急");
+            map.put("物品名称", "显示器");
+        }
+        assertEquals(expected, compact);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(compact.keySet()));
+        assertEquals(mapper.writeValueAsString(expected), mapper.writeValueAsString(compact));
+    }
+
+    @Test
+    void testItemsBoundDuringParsingMatchConversion(@TempDir Path tempDir) throws Exception {
+        // 重复的“金额”列以及文本形式的数量
+        Workbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("明细");
+        String[] headers = {"物品名称", "金额", "数量", "金额", "单价"};
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < headers.length; i++) {
+            headerRow.createCell(i).setCellValue(headers[i]);
+        }
+        Row row = sheet.createRow(1);
+        row.createCell(0).setCellValue("打印机");
+        row.createCell(1).setCellValue(100);
+        row.createCell(2).setCellValue("3");
+        row.createCell(3).setCellValue(200.5);
+        row.createCell(4).setCellValue("未知");
+        File file = tempDir.resolve("binder.xlsx").toFile();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            workbook.write(outputStream);
+        }
+        workbook.close();
+        
+        for (File source : List.of(file, testExcelFile)) {
+            int headerRowIndex = source == file ? 1 : 2;
+            ExcelParseResult all = runPlugin(source, headerRowIndex, null, null);
+            List<String> allHeaders = all.getHeaders();
+            ExcelItemBinder binder = new ExcelItemBinder(allHeaders);
+            List<ExcelItem> converted = all.getDataList().stream()
+                    .map(dataRow -> binder.bind(ExcelItemBinder.toIntValue(dataRow.get("序号")), allHeaders.stream().map(dataRow::get).toArray()))
+                    .collect(Collectors.toList());
+            assertEquals(converted, all.getItems());
+            
+            // 只输出items时不生成dataList
+            ExcelParsePlugin itemsOnly = new ExcelParsePlugin();
+            itemsOnly.setExcelUrl(source.toURI().toString());
+            itemsOnly.setHeaderRowIndex(headerRowIndex);
+            itemsOnly.setOutputType("ITEMS");
+            setExecuteLogs(itemsOnly, new ArrayList<>());
+            ExcelParseResult itemsResult = itemsOnly.run();
+            assertEquals("解析成功", itemsResult.getMessage());
+            assertNull(itemsResult.getDataList());
+            assertEquals(all.getItems(), itemsResult.getItems());
+        }
+        
+        ExcelItem item = runPlugin(file, 1, null, null).getItems().get(0);
+        assertEquals(200.5, item.getAmount());
+        assertEquals(3, item.getQuantity());
+        assertNull(item.getUnitPrice());
+    }
+
+    @Test
+    void testColumnProjectionAndOutputSelection() throws Exception {
+        for (String parseMode : List.of("STREAMING", "WORKBOOK")) {
+            ExcelParsePlugin plugin = new ExcelParsePlugin();
+            plugin.setExcelUrl(testExcelFile.toURI().toString());
+            plugin.setHeaderRowIndex(2);
+            plugin.setParseMode(parseMode);
+            plugin.setColumns(List.of("金额", "使用部门"));
+            plugin.setOutputType("ROWS");
+            setExecuteLogs(plugin, new ArrayList<>());
+            ExcelParseResult result = plugin.run();
+            
+            assertEquals("解析成功", result.getMessage());
+            // 列顺序与工作表一致
+            assertEquals(List.of("使用部门", "金额"), result.getHeaders());
+            assertNull(result.getItems());
+            assertEquals(3, result.getDataList().size());
+            Map<String, Object> firstRow = result.getDataList().get(0);
+            assertEquals(List.of("序号", "使用部门", "金额"), new ArrayList<>(firstRow.keySet()));
+            assertEquals("技术部", firstRow.get("使用部门"));
+            assertEquals(16000L, firstRow.get("金额"));
+        }
+        
+        // 投影后的items只填充选中的列
+        ExcelParsePlugin itemsPlugin = new ExcelParsePlugin();
+        itemsPlugin.setExcelUrl(testExcelFile.toURI().toString());
+        itemsPlugin.setHeaderRowIndex(2);
+        itemsPlugin.setColumns(List.of("物品名称"));
+        itemsPlugin.setOutputType("ITEMS");
+        setExecuteLogs(itemsPlugin, new ArrayList<>());
+        ExcelItem item = itemsPlugin.run().getItems().get(0);
+        assertEquals("笔记本电脑", item.getItemName());
+        assertEquals(1, item.getSerialNumber());
+        assertNull(item.getAmount());
+        
+        // 不存在的列
+        ExcelParsePlugin missing = new ExcelParsePlugin();
+        missing.setExcelUrl(testExcelFile.toURI().toString());
+        missing.setHeaderRowIndex(2);
+        missing.setColumns(List.of("不存在的列"));
+        setExecuteLogs(missing, new ArrayList<>());
+        assertTrue(missing.run().getMessage().contains("找不到指定的列"));
+    }
+
+    @Test
+    void testParseResultCache(@TempDir Path tempDir) throws Exception {
+        // 内容相同、链接不同的文件命中同一缓存
+        File copy = tempDir.resolve("copy.xlsx").toFile();
+        Files.copy(testExcelFile.toPath(), copy.toPath());
+        Path cacheDir = tempDir.resolve("cache");
+        ParseResultCache.getInstance().configure(64L * 1024 * 1024, cacheDir, 512L * 1024 * 1024);
+        
+        List<Log> firstLogs = new ArrayList<>();
+        ExcelParseResult first = runCachedPlugin(testExcelFile, cacheDir, firstLogs);
+        assertTrue(firstLogs.stream().anyMatch(log -> log.toString().contains("解析结果缓存未命中")));
+        assertFalse(firstLogs.stream().anyMatch(log -> log.toString().contains("未生效")));
+        
+        List<Log> secondLogs = new ArrayList<>();
+        ExcelParseResult second = runCachedPlugin(copy, cacheDir, secondLogs);
+        assertTrue(secondLogs.stream().anyMatch(log -> log.toString().contains("解析结果缓存命中（内存）")));
+        assertNotSame(first, second);
+        assertEquals(first.getDataList(), second.getDataList());
+        assertEquals(first.getItems(), second.getItems());
+        
+        // 修改返回的结果不影响缓存
+        first.getDataList().get(0).put("物品名称", "已修改");
+        second.getItems().get(0).setItemName("已修改");
+        second.getDataList().clear();
+        ExcelParseResult fresh = runCachedPlugin(copy, cacheDir, new ArrayList<>());
+        assertEquals("笔记本电脑", fresh.getDataList().get(0).get("物品名称"));
+        assertEquals("笔记本电脑", fresh.getItems().get(0).getItemName());
+        // 命中的数据行仍是共享键结构的紧凑行
+        assertInstanceOf(CompactRow.class, fresh.getDataList().get(0));
+        
+        // 内存层清空后从磁盘层读取
+        ParseResultCache.getInstance().clear();
+        List<Log> thirdLogs = new ArrayList<>();
+        ExcelParseResult third = runCachedPlugin(copy, cacheDir, thirdLogs);
+        assertTrue(thirdLogs.stream().anyMatch(log -> log.toString().contains("解析结果缓存命中（磁盘）")));
+        assertEquals(fresh.getHeaders(), third.getHeaders());
+        assertEquals(fresh.getItems(), third.getItems());
+        // 磁盘层读取的值类型与直接解析一致
+        assertEquals(fresh.getDataList(), third.getDataList());
+        assertEquals(2L, third.getDataList().get(0).get("数量"));
+        assertEquals(1, third.getDataList().get(0).get("序号"));
+        assertInstanceOf(CompactRow.class, third.getDataList().get(0));
+        assertEquals(new ArrayList<>(fresh.getDataList().get(0).keySet()), new ArrayList<>(third.getDataList().get(0).keySet()));
+        
+        // 预算不同的调用不命中缓存
+        ExcelParsePlugin budgeted = new ExcelParsePlugin();
+        budgeted.setExcelUrl(copy.toURI().toString());
+        budgeted.setHeaderRowIndex(2);
+        budgeted.setLimit(2);
+        budgeted.setCacheEnabled(true);
+        budgeted.setMaxRows(1);
+        List<Log> budgetLogs = new ArrayList<>();
+        setExecuteLogs(budgeted, budgetLogs);
+        assertNotEquals("解析成功", budgeted.run().getMessage());
+        assertFalse(budgetLogs.stream().anyMatch(log -> log.toString().contains("解析结果缓存命中")));
+        
+        // 插件参数不修改已配置的共享缓存
+        ExcelParsePlugin other = new ExcelParsePlugin();
+        other.setExcelUrl(copy.toURI().toString());
+        other.setHeaderRowIndex(2);
+        other.setLimit(2);
+        other.setCacheEnabled(true);
+        other.setCacheMaxMemoryMb(0L);
+        List<Log> otherLogs = new ArrayList<>();
+        setExecuteLogs(other, otherLogs);
+        other.run();
+        assertTrue(otherLogs.stream().anyMatch(log -> log.toString().contains("解析结果缓存命中（内存）")));
+        // 与生效的配置不同时在日志中提示
+        assertTrue(otherLogs.stream().anyMatch(log -> log.toString().contains("磁盘层目录" + cacheDir.toAbsolutePath())
+                && log.toString().contains("未生效")));
+    }
+
+    private ExcelParseResult runCachedPlugin(File file, Path cacheDir, List<Log> logs) throws Exception {
+        ExcelParsePlugin plugin = new ExcelParsePlugin();
+        plugin.setExcelUrl(file.toURI().toString());
+        plugin.setHeaderRowIndex(2);
+        plugin.setLimit(2);
+        plugin.setCacheEnabled(true);
+        plugin.setCacheDir(cacheDir.toString());
+        setExecuteLogs(plugin, logs);
+        return plugin.run();
+    }
+
+    @Test
+    void testMultiSheetParsing(@TempDir Path tempDir) throws Exception {
+        // 12个月度工作表，每个工作表的行数不同
+        Workbook workbook = new XSSFWorkbook();
+        for (int month = 1; month <= 12; month++) {
+            Sheet sheet = workbook.createSheet(month + "月");
+            Row headerRow = sheet.createRow(0);
+            headerRow.createCell(0).setCellValue("物品名称");
+            headerRow.createCell(1).setCellValue("金额");
+            for (int i = 1; i <= month * 20; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue("物品" + (i % 7));
+                row.createCell(1).setCellValue(month * 100 + i);
+            }
+        }
+        File file = tempDir.resolve("monthly.xlsx").toFile();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            workbook.write(outputStream);
+        }
+        workbook.close();
+        
+        for (String parseMode : List.of("STREAMING", "WORKBOOK")) {
+            ExcelParsePlugin plugin = new ExcelParsePlugin();
+            plugin.setExcelUrl(file.toURI().toString());
+            plugin.setHeaderRowIndex(1);
+            plugin.setParseMode(parseMode);
+            plugin.setSheetNames(List.of("*"));
+            plugin.setSheetParallelism(4);
+            setExecuteLogs(plugin, new ArrayList<>());
+            ExcelParseResult result = plugin.run();
+            
+            assertEquals("解析成功", result.getMessage());
+            Map<String, ExcelParseResult> sheetResults = result.getSheetResults();
+            assertEquals(12, sheetResults.size());
+            assertEquals("1月", sheetResults.keySet().iterator().next());
+            for (int month = 1; month <= 12; month++) {
+                ExcelParseResult single = runPlugin(file, 1, month + "月", parseMode);
+                ExcelParseResult sheetResult = sheetResults.get(month + "月");
+                assertEquals(month * 20, sheetResult.getDataList().size());
+                assertEquals(single.getDataList(), sheetResult.getDataList());
+                assertEquals(single.getItems(), sheetResult.getItems());
+            }
+        }
+        
+        // 指定部分工作表，名称不区分大小写，按工作簿顺序返回
+        ExcelParsePlugin selected = new ExcelParsePlugin();
+        selected.setExcelUrl(file.toURI().toString());
+        selected.setHeaderRowIndex(1);
+        selected.setSheetNames(List.of("3月", "2月"));
+        selected.setLimit(5);
+        setExecuteLogs(selected, new ArrayList<>());
+        ExcelParseResult partial = selected.run();
+        assertEquals(List.of("2月", "3月"), new ArrayList<>(partial.getSheetResults().keySet()));
+        assertTrue(partial.getSheetResults().get("2月").getHasMore());
+        assertEquals(5, partial.getSheetResults().get("3月").getDataList().size());
+        
+        // 每个工作表的游标可用于单工作表的后续读取
+        ExcelParsePlugin next = new ExcelParsePlugin();
+        next.setExcelUrl(file.toURI().toString());
+        next.setHeaderRowIndex(1);
+        next.setSheetName("2月");
+        next.setLimit(5);
+        next.setCursor(partial.getSheetResults().get("2月").getNextCursor());
+        setExecuteLogs(next, new ArrayList<>());
+        assertEquals(6, next.run().getDataList().get(0).get("序号"));
+        
+        // 不存在的工作表
+        ExcelParsePlugin missing = new ExcelParsePlugin();
+        missing.setExcelUrl(file.toURI().toString());
+        missing.setHeaderRowIndex(1);
+        missing.setSheetNames(List.of("1月", "13月"));
+        setExecuteLogs(missing, new ArrayList<>());
+        assertTrue(missing.run().getMessage().contains("找不到名为 '13月' 的工作表"));
+        
+        // 一个工作表失败时，等其他工作表的任务全部结束后才抛出异常
+        AtomicBoolean returned = new AtomicBoolean();
+        AtomicInteger lateRows = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ);
+             StreamingSheetReader reader = new StreamingSheetReader(pkg)) {
+            List<String> names = reader.getSheetNames();
+            Exception failure = assertThrows(ExcelParseException.class, () -> reader.readAll(names, 1, name -> new SheetRowHandler() {
+                @Override
+                public void onHeaders(List<String> headers) {
+                    if ("1月".equals(name)) {
+                        throw new ExcelParseException("第一个工作表解析失败");
+                    }
+                }
+                
+                @Override
+                public void onRow(int rowIndex, Object[] values) {
+                    if (returned.get()) {
+                        lateRows.incrementAndGet();
+                    }
+                }
+            }, pool));
+            returned.set(true);
+            assertEquals("第一个工作表解析失败", failure.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, lateRows.get());
+    }
+
+    @Test
+    void testParallelDecodingKeepsRowOrder(@TempDir Path tempDir) throws Exception {
+        // 包含空行、日期、小数和共享字符串的大工作表
+        Workbook workbook = new XSSFWorkbook();
+        CellStyle dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+        Sheet sheet = workbook.createSheet("明细");
+        Row headerRow = sheet.createRow(0);
+        String[] headers = {"采购日期", "物品名称", "数量", "单价"};
+        for (int i = 0; i < headers.length; i++) {
+            headerRow.createCell(i).setCellValue(headers[i]);
+        }
+        for (int i = 1; i <= 5000; i++) {
+            if (i % 97 == 0) {
+                continue;
+            }
+            Row row = sheet.createRow(i);
+            Cell date = row.createCell(0);
+            date.setCellValue(LocalDate.of(2023, 1, 1).plusDays(i % 365));
+            date.setCellStyle(dateStyle);
+            row.createCell(1).setCellValue("物品" + (i % 13));
+            row.createCell(2).setCellValue(i);
+            row.createCell(3).setCellValue(i % 2 == 0 ? i * 1.5 : i);
+        }
+        File file = tempDir.resolve("large.xlsx").toFile();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            workbook.write(outputStream);
+        }
+        workbook.close();
+        
+        ExcelParseResult sequential = runPlugin(file, 1, null, null);
+        
+        ExcelParsePlugin plugin = new ExcelParsePlugin();
+        plugin.setExcelUrl(file.toURI().toString());
+        plugin.setHeaderRowIndex(1);
+        plugin.setParallelDecoding(true);
+        plugin.setParallelRowThreshold(100);
+        setExecuteLogs(plugin, new ArrayList<>());
+        ExcelParseResult parallel = plugin.run();
+        
+        assertEquals(5000 - 5000 / 97, parallel.getDataList().size());
+        assertEquals(sequential.getDataList(), parallel.getDataList());
+        assertEquals(sequential.getItems(), parallel.getItems());
+        assertEquals(98, parallel.getDataList().get(96).get("序号"));
+        
+        // 分页在并行解码时同样按原始行顺序截断
+        ExcelParsePlugin paged = new ExcelParsePlugin();
+        paged.setExcelUrl(file.toURI().toString());
+        paged.setHeaderRowIndex(1);
+        paged.setParallelDecoding(true);
+        paged.setParallelRowThreshold(100);
+        paged.setOffset(1000);
+        paged.setLimit(1500);
+        setExecuteLogs(paged, new ArrayList<>());
+        ExcelParseResult page = paged.run();
+        assertTrue(page.getHasMore());
+        assertEquals(sequential.getDataList().subList(1000, 2500), page.getDataList());
+    }
+
+    @Test
+    void testCellDecoderMatchesDateUtil() throws Exception {
+        try (Workbook workbook = new XSSFWorkbook()) {
+            CellStyle chineseDate = workbook.createCellStyle();
+            chineseDate.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy\"年\"m\"月\"d\"日\""));
+            CellStyle decimal = workbook.createCellStyle();
+            decimal.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("#,##0.00"));
+            Row row = workbook.createSheet("样式").createRow(0);
+            for (int i = 0; i < 6; i++) {
+                Cell cell = row.createCell(i);
+                cell.setCellValue(45000 + i + (i % 2 == 0 ? 0 : 0.5));
+                cell.setCellStyle(i < 3 ? chineseDate : decimal);
+            }
+            
+            // 同一样式的单元格多次解码，结果与DateUtil逐个判断一致
+            CellDecoder decoder = CellDecoder.forWorkbook(workbook);
+            for (int round = 0; round < 2; round++) {
+                for (Cell cell : row) {
+                    Object value = decoder.decode(cell);
+                    if (DateUtil.isCellDateFormatted(cell)) {
+                        assertEquals(cell.getLocalDateTimeCellValue(), value);
+                    } else {
+                        assertEquals(cell.getNumericCellValue(), ((Number) value).doubleValue());
+                    }
+                }
+            }
+            assertTrue(decoder.decode(row.getCell(0)) instanceof LocalDateTime);
+            assertEquals(45004L, decoder.decode(row.getCell(4)));
+        }
+        
+        // 空值判断与toString().trim().isEmpty()一致
+        for (Object value : new Object[]{null, "", "  ", "\t\n", " 笔记本 ", "0", 0L, 0.5, Boolean.FALSE, LocalDate.of(2023, 1, 1)}) {
+            boolean expected = value == null || value.toString().trim().isEmpty();
+            assertEquals(expected, CellDecoder.isBlank(value), String.valueOf(value));
+        }
+    }
+
+    @Test
+    void testSchemaInference(@TempDir Path tempDir) throws Exception {
+        Workbook workbook = new XSSFWorkbook();
+        CellStyle dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+        Sheet sheet = workbook.createSheet("明细");
+        String[] headers = {"采购日期", "数量", "单价", "备注", "已报销"};
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < headers.length; i++) {
+            headerRow.createCell(i).setCellValue(headers[i]);
+        }
+        for (int i = 1; i <= 6; i++) {
+            Row row = sheet.createRow(i);
+            Cell date = row.createCell(0);
+            date.setCellValue(LocalDate.of(2023, 3, i));
+            date.setCellStyle(dateStyle);
+            // 采样之后出现文本形式的数字和无法转换的值
+            if (i == 5) {
+                row.createCell(1).setCellValue("5");
+            } else if (i == 6) {
+                row.createCell(1).setCellValue("若干");
+            } else {
+                row.createCell(1).setCellValue(i);
+            }
+            row.createCell(2).setCellValue(i % 2 == 0 ? i + 0.5 : i);
+            if (i % 2 == 0) {
+                row.createCell(3).setCellValue("备注" + i);
+            } else {
+                row.createCell(3).setCellValue(i);
+            }
+            row.createCell(4).setCellValue(i % 3 == 0);
+        }
+        File file = tempDir.resolve("schema.xlsx").toFile();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            workbook.write(outputStream);
+        }
+        workbook.close();
+        
+        for (String parseMode : List.of("STREAMING", "WORKBOOK")) {
+            ExcelParsePlugin plugin = new ExcelParsePlugin();
+            plugin.setExcelUrl(file.toURI().toString());
+            plugin.setHeaderRowIndex(1);
+            plugin.setParseMode(parseMode);
+            plugin.setInferSchema(true);
+            plugin.setSchemaSampleRows(4);
+            setExecuteLogs(plugin, new ArrayList<>());
+            ExcelParseResult result = plugin.run();
+            
+            List<ColumnSchema> schema = result.getSchema();
+            assertEquals(List.of(ColumnType.DATE, ColumnType.INTEGER, ColumnType.DECIMAL, ColumnType.TEXT, ColumnType.BOOLEAN),
+                    schema.stream().map(ColumnSchema::getType).collect(Collectors.toList()));
+            assertEquals(1, schema.get(1).getMismatchCount());
+            
+            List<Map<String, Object>> dataList = result.getDataList();
+            assertEquals(6, dataList.size());
+            assertEquals("2023/03/01", dataList.get(0).get("采购日期"));
+            assertEquals(5L, dataList.get(4).get("数量"));
+            assertEquals("若干", dataList.get(5).get("数量"));
+            assertEquals(1.0, dataList.get(0).get("单价"));
+            assertEquals("1", dataList.get(0).get("备注"));
+            assertEquals(Boolean.TRUE, dataList.get(2).get("已报销"));
+            assertEquals(5, result.getItems().get(4).getQuantity());
+        }
+        
+        // 列式结果同样按推断的类型转换
+        ExcelParsePlugin columnar = new ExcelParsePlugin();
+        columnar.setExcelUrl(file.toURI().toString());
+        columnar.setHeaderRowIndex(1);
+        columnar.setResultFormat("COLUMNAR");
+        columnar.setInferSchema(true);
+        columnar.setSchemaSampleRows(4);
+        setExecuteLogs(columnar, new ArrayList<>());
+        ExcelParseResult columnarResult = columnar.run();
+        assertNotNull(columnarResult.getColumnarData());
+        assertEquals(List.of(ColumnType.DATE, ColumnType.INTEGER, ColumnType.DECIMAL, ColumnType.TEXT, ColumnType.BOOLEAN),
+                columnarResult.getSchema().stream().map(ColumnSchema::getType).collect(Collectors.toList()));
+        assertEquals(5L, columnarResult.getDataList().get(4).get("数量"));
+        assertEquals("1", columnarResult.getDataList().get(0).get("备注"));
+        // DECIMAL列中的整数值与行式结果一样为Double
+        for (Map<String, Object> row : columnarResult.getDataList()) {
+            assertInstanceOf(Double.class, row.get("单价"));
+        }
+        assertEquals(1.0, columnarResult.getDataList().get(0).get("单价"));
+        assertEquals(2.5, columnarResult.getDataList().get(1).get("单价"));
+        
+        // 分页续读沿用第一页确定的类型，第二页单独推断时数量列会是TEXT
+        ExcelParsePlugin paged = new ExcelParsePlugin();
+        paged.setExcelUrl(file.toURI().toString());
+        paged.setHeaderRowIndex(1);
+        paged.setInferSchema(true);
+        paged.setSchemaSampleRows(4);
+        paged.setLimit(3);
+        setExecuteLogs(paged, new ArrayList<>());
+        ExcelParseResult page1 = paged.run();
+        assertEquals(3, page1.getDataList().size());
+        paged.setCursor(page1.getNextCursor());
+        ExcelParseResult page2 = paged.run();
+        assertEquals("解析成功", page2.getMessage());
+        assertEquals(page1.getSchema().stream().map(ColumnSchema::getType).collect(Collectors.toList()),
+                page2.getSchema().stream().map(ColumnSchema::getType).collect(Collectors.toList()));
+        assertEquals(ColumnType.INTEGER, page2.getSchema().get(1).getType());
+        assertEquals(5L, page2.getDataList().get(1).get("数量"));
+        assertEquals("若干", page2.getDataList().get(2).get("数量"));
+        assertEquals(1, page2.getSchema().get(1).getMismatchCount());
+        
+        // 未启用时不输出schema
+        assertNull(runPlugin(file, 1, null, null).getSchema());
+    }
+
+    @Test
+    void testCsvMatchesExcel(@TempDir Path tempDir) throws Exception {
+        // 与示例Excel文件内容相同的CSV文件，日期写成解析结果中的格式
+        String csv = "采购清单\r\n"
+                + "采购日期,物品名称,费用类型,使用部门,用途摘要,数量,单位,单价,金额,照片,备注\r\n"
+                + "2023/01/15,笔记本电脑,办公设备,技术部,开发使用,2,台,8000.0,16000,http://example.com/photo1.jpg,紧急\r\n"
+                + "2023/02/20,打印机,办公设备,行政部,日常办公,1,台,3000,3000.00,http://example.com/photo2.jpg,\"\"\r\n"
+                + "2023/03/10,办公桌椅,办公家具,市场部,新员工入职,5,套,1200,6000,\"\",标准配置\r\n";
+        File csvFile = tempDir.resolve("test.csv").toFile();
+        Files.write(csvFile.toPath(), csv.getBytes(StandardCharsets.UTF_8));
+        
+        ExcelParseResult expected = runPlugin(testExcelFile, 2, null, null);
+        List<Log> logs = new ArrayList<>();
+        ExcelParsePlugin plugin = new ExcelParsePlugin();
+        plugin.setExcelUrl(csvFile.toURI().toString());
+        plugin.setHeaderRowIndex(2);
+        setExecuteLogs(plugin, logs);
+        ExcelParseResult result = plugin.run();
+        
+        assertEquals("解析成功", result.getMessage());
+        assertTrue(logs.get(0).toString().contains("CSV文件（UTF-8编码）"));
+        assertEquals(expected.getHeaders(), result.getHeaders());
+        assertEquals(expected.getDataList(), result.getDataList());
+        assertEquals(expected.getItems(), result.getItems());
+        
+        // GBK编码的TSV：引号内的制表符、换行和转义的引号，空行和以0开头的编号
+        String tsv = "编号\t物品名称\t备注\t数量\n"
+                + "007\t\"显示器\t27寸\"\t\"第一行\n第二行\"\t3\n"
+                + "\n"
+                + "008\t\"键盘 \"\"机械\"\"\"\t\t-2.5\n"
+                + "009\t鼠标";
+        File tsvFile = tempDir.resolve("test.txt").toFile();
+        Files.write(tsvFile.toPath(), tsv.getBytes(Charset.forName("GBK")));
+        ExcelParsePlugin tsvPlugin = new ExcelParsePlugin();
+        tsvPlugin.setExcelUrl(tsvFile.toURI().toString());
+        tsvPlugin.setHeaderRowIndex(1);
+        setExecuteLogs(tsvPlugin, new ArrayList<>());
+        ExcelParseResult tsvResult = tsvPlugin.run();
+        
+        assertEquals(List.of("编号", "物品名称", "备注", "数量"), tsvResult.getHeaders());
+        List<Map<String, Object>> rows = tsvResult.getDataList();
+        assertEquals(3, rows.size());
+        assertEquals("007", rows.get(0).get("编号"));
+        assertEquals("显示器\t27寸", rows.get(0).get("物品名称"));
+        assertEquals("第一行\n第二行", rows.get(0).get("备注"));
+        assertEquals(3L, rows.get(0).get("数量"));
+        // 空行不输出，序号按行位置计算
+        assertEquals(3, rows.get(1).get("序号"));
+        assertEquals("键盘 \"机械\"", rows.get(1).get("物品名称"));
+        assertNull(rows.get(1).get("备注"));
+        assertEquals(-2.5, rows.get(1).get("数量"));
+        assertEquals("鼠标", rows.get(2).get("物品名称"));
+        assertNull(rows.get(2).get("数量"));
+    }
+
+    @Test
+    void testNdjsonOutput(@TempDir Path tempDir) throws Exception {
+        ExcelParseResult expected = runPlugin(testExcelFile, 2, null, null);
+        
+        ExcelParsePlugin plugin = new ExcelParsePlugin();
+        plugin.setExcelUrl(testExcelFile.toURI().toString());
+        plugin.setHeaderRowIndex(2);
+        plugin.setOutputType("NDJSON");
+        plugin.setOutputDir(tempDir.toString());
+        setExecuteLogs(plugin, new ArrayList<>());
+        ExcelParseResult result = plugin.run();
+        
+        assertEquals("解析成功", result.getMessage());
+        assertNull(result.getDataList());
+        assertNull(result.getItems());
+        assertEquals(expected.getHeaders(), result.getHeaders());
+        assertEquals(3, result.getRowCount());
+        Path output = Path.of(result.getOutputFile());
+        assertEquals(tempDir, output.getParent());
+        assertTrue(output.getFileName().toString().endsWith(".ndjson.gz"));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+        
+        // 摘要为压缩文件的SHA-256
+        byte[] compressed = Files.readAllBytes(output);
+        String checksum = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(compressed));
+        assertEquals(checksum, result.getOutputChecksum());
+        
+        // 每行一个JSON对象，与dataList序列化结果一致
+        ObjectMapper mapper = new ObjectMapper();
+        List<String> lines;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(compressed)), StandardCharsets.UTF_8))) {
+            lines = reader.lines().collect(Collectors.toList());
+        }
+        assertEquals(3, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(mapper.writeValueAsString(expected.getDataList().get(i)), lines.get(i));
+        }
+        
+        // 解析失败时不留下未完成的文件
+        ExcelParsePlugin failing = new ExcelParsePlugin();
+        failing.setExcelUrl(testExcelFile.toURI().toString());
+        failing.setHeaderRowIndex(2);
+        failing.setOutputType("NDJSON");
+        failing.setOutputDir(tempDir.resolve("failed").toString());
+        failing.setColumns(List.of("不存在的列"));
+        setExecuteLogs(failing, new ArrayList<>());
+        assertTrue(failing.run().getMessage().contains("找不到指定的列"));
+        assertFalse(Files.exists(tempDir.resolve("failed")) && Files.list(tempDir.resolve("failed")).findAny().isPresent());
+    }
+
+    @Test
+    void testParseStatsAndMetrics() throws Exception {
+        List<ParseStats> recorded = new ArrayList<>();
+        ExcelParsePlugin.setParseMetrics(recorded::add);
+        try {
+            for (String parseMode : new String[]{"STREAMING", "WORKBOOK"}) {
+                ExcelParsePlugin plugin = new ExcelParsePlugin();
+                plugin.setExcelUrl(testExcelFile.toURI().toString());
+                plugin.setHeaderRowIndex(2);
+                plugin.setParseMode(parseMode);
+                List<Log> logs = new ArrayList<>();
+                setExecuteLogs(plugin, logs);
+                ExcelParseResult result = plugin.run();
+                
+                ParseStats stats = recorded.get(recorded.size() - 1);
+                assertTrue(stats.isSuccess());
+                assertEquals(0, stats.getBytesDownloaded(), "本地文件不需要下载");
+                assertTrue(stats.getRowsDecoded() >= result.getRowCount());
+                assertTrue(stats.getCellsDecoded() > 0);
+                String loadPhase = "WORKBOOK".equals(parseMode) ? ParseStats.PHASE_LOAD_WORKBOOK : ParseStats.PHASE_SHARED_STRINGS;
+                assertEquals(List.of(ParseStats.PHASE_DOWNLOAD, ParseStats.PHASE_OPEN, loadPhase,
+                        ParseStats.PHASE_DECODE, ParseStats.PHASE_BUILD_RESULT), new ArrayList<>(stats.getPhaseMillis().keySet()));
+                
+                // 执行日志最后一条为JSON格式的统计摘要
+                String summary = logs.get(logs.size() - 1).getMessage();
+                assertTrue(summary.startsWith("解析统计: "));
+                Map<?, ?> json = new ObjectMapper().readValue(summary.substring("解析统计: ".length()), Map.class);
+                assertEquals(((Number) json.get("rowsDecoded")).longValue(), stats.getRowsDecoded());
+                assertTrue(json.containsKey("peakHeapDeltaBytes"));
+            }
+            
+            // 解析失败时同样回调，但不记录统计摘要
+            ExcelParsePlugin failing = new ExcelParsePlugin();
+            failing.setExcelUrl(testExcelFile.toURI().toString());
+            failing.setHeaderRowIndex(2);
+            failing.setSheetName("不存在的工作表");
+            List<Log> logs = new ArrayList<>();
+            setExecuteLogs(failing, logs);
+            failing.run();
+            assertEquals(3, recorded.size());
+            assertFalse(recorded.get(2).isSuccess());
+            assertFalse(logs.stream().anyMatch(log -> log.getMessage().startsWith("解析统计")));
+        } finally {
+            ExcelParsePlugin.setParseMetrics(null);
+        }
+    }
+    
+    @Test
+    void testParseBudgets(@TempDir Path tempDir) throws Exception {
+        // 行数和单元格数
+        for (String parseMode : new String[]{"STREAMING", "WORKBOOK"}) {
+            ExcelParsePlugin plugin = budgetPlugin(testExcelFile.toURI().toString());
+            plugin.setParseMode(parseMode);
+            plugin.setMaxRows(2);
+            assertTrue(plugin.run().getMessage().contains("数据行数超过限制（2行）"), parseMode);
+            
+            plugin = budgetPlugin(testExcelFile.toURI().toString());
+            plugin.setParseMode(parseMode);
+            plugin.setMaxCells(5L);
+            assertTrue(plugin.run().getMessage().contains("单元格数量超过限制（5个）"), parseMode);
+        }
+        ExcelParsePlugin withinBudget = budgetPlugin(testExcelFile.toURI().toString());
+        withinBudget.setMaxRows(100);
+        withinBudget.setMaxCells(1000L);
+        withinBudget.setMaxDownloadBytes(10L * 1024 * 1024);
+        withinBudget.setMaxInflateRatio(100.0);
+        assertEquals(runPlugin(testExcelFile, 2, null, null).getDataList(), withinBudget.run().getDataList());
+        
+        // 本地文件大小
+        ExcelParsePlugin tooLarge = budgetPlugin(testExcelFile.toURI().toString());
+        tooLarge.setMaxDownloadBytes(100L);
+        assertTrue(tooLarge.run().getMessage().contains("文件大小超过限制（100字节）"));
+        
+        // 远程文件：声明了大小时不读取内容，未声明时在超出后中止下载
+        byte[] content = Files.readAllBytes(testExcelFile.toPath());
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            boolean chunked = exchange.getRequestURI().getPath().contains("chunked");
+            exchange.sendResponseHeaders(200, chunked ? 0 : content.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                for (int i = 0; i < content.length; i += 256) {
+                    int length = Math.min(256, content.length - i);
+                    os.write(content, i, length);
+                    os.flush();
+                }
+            } catch (IOException ignored) {
+                // 客户端中止下载
+            }
+        });
+        server.start();
+        try {
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            for (String path : new String[]{"/sized.xlsx", "/chunked.xlsx"}) {
+                ExcelParsePlugin remote = budgetPlugin(base + path);
+                remote.setSpillThresholdBytes(0L);
+                remote.setMaxDownloadBytes(512L);
+                assertTrue(remote.run().getMessage().contains("文件大小超过限制（512字节）"), path);
+            }
+        } finally {
+            server.stop(0);
+        }
+        
+        // 压缩比和解压后大小，在打开zip包前检查
+        Workbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("重复数据");
+        sheet.createRow(0).createCell(0).setCellValue("备注");
+        for (int i = 1; i <= 20000; i++) {
+            sheet.createRow(i).createCell(0).setCellValue("重复内容");
+        }
+        File repetitive = tempDir.resolve("repetitive.xlsx").toFile();
+        try (FileOutputStream outputStream = new FileOutputStream(repetitive)) {
+            workbook.write(outputStream);
+        }
+        workbook.close();
+        
+        ExcelParsePlugin ratio = budgetPlugin(repetitive.toURI().toString());
+        ratio.setHeaderRowIndex(1);
+        ratio.setMaxInflateRatio(5.0);
+        String message = ratio.run().getMessage();
+        assertTrue(message.contains("xl/worksheets/sheet1.xml的压缩比超过限制"), message);
+        
+        ExcelParsePlugin expanded = budgetPlugin(repetitive.toURI().toString());
+        expanded.setHeaderRowIndex(1);
+        expanded.setMaxExpandedBytes(64L * 1024);
+        assertTrue(expanded.run().getMessage().contains("文件解压后大小超过限制（65536字节）"));
+        
+        // 读取工作表时按实际解压的字节数检查
+        ParseBudget budget = new ParseBudget(null, null, 1000L, null, null);
+        InputStream sheetData = budget.meterSheet("/xl/worksheets/sheet1.xml", new ByteArrayInputStream(new byte[4096]));
+        ExcelParseException exception = assertThrows(ExcelParseException.class, sheetData::readAllBytes);
+        assertEquals("文件解压后大小超过限制（1000字节）", exception.getMessage());
+    }
+    
+    private ExcelParsePlugin budgetPlugin(String excelUrl) throws Exception {
+        ExcelParsePlugin plugin = new ExcelParsePlugin();
+        plugin.setExcelUrl(excelUrl);
+        plugin.setHeaderRowIndex(2);
+        setExecuteLogs(plugin, new ArrayList<>());
+        return plugin;
+    }
+    
+    @Test
+    void testMappedSharedStrings(@TempDir Path tempDir) throws Exception {
+        // 与ReadOnlySharedStringsTable逐条比较：实体引用、换行、富文本、拼音注释、CDATA、命名空间前缀和转义字符
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\r\n"
+                + "<x:sst xmlns:x=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"12\" uniqueCount=\"10\">"
+                + "<x:si><x:t>研发部</x:t></x:si>"
+                + "<x:si><x:t xml:space=\"preserve\">  A &amp; B &lt;c&gt; &quot;d&quot; &apos;e&apos;  </x:t></x:si>"
+                + "<x:si><x:t>&#65;&#x4E2D;&#x1F600;&#13;</x:t></x:si>"
+                + "<x:si><x:t>第一行\r\n第二行\r第三行</x:t></x:si>"
+                + "<x:si><x:r><x:rPr><x:b/><x:sz val=\"11\"/></x:rPr><x:t>加粗</x:t></x:r><x:r><x:t xml:space=\"preserve\"> 普通</x:t></x:r></x:si>"
+                + "<x:si><x:t>東京</x:t><x:rPh sb=\"0\" eb=\"2\"><x:t>トウキョウ</x:t></x:rPh><x:phoneticPr fontId=\"1\"/></x:si>"
+                + "<x:si><x:t><![CDATA[<原样> & 保留]]></x:t></x:si>"
+                + "<x:si/>"
+                + "<x:si><x:t/></x:si>"
+                + "<!-- 注释 --><x:si><x:t>_x0041__x005F_x0042_</x:t></x:si>"
+                + "</x:sst>";
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        ReadOnlySharedStringsTable expected = new ReadOnlySharedStringsTable(new ByteArrayInputStream(bytes), false);
+        try (MappedSharedStrings mapped = MappedSharedStrings.load(new ByteArrayInputStream(bytes), 4)) {
+            assertEquals(10, mapped.getUniqueCount());
+            assertEquals(12, mapped.getCount());
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < mapped.getUniqueCount(); i++) {
+                    assertEquals(expected.getItemAt(i).getString(), mapped.getString(i), "第" + i + "项");
+                    assertEquals(expected.getItemAt(i).getString(), mapped.getItemAt(i).getString(), "第" + i + "项");
+                }
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> mapped.getString(10));
+        }
+        
+        // 字符串较多的工作簿，流式解析结果与不启用时一致，临时文件在解析后删除
+        Workbook workbook = new XSSFWorkbook();
+        for (String name : new String[]{"目录一", "目录二"}) {
+            Sheet sheet = workbook.createSheet(name);
+            Row headerRow = sheet.createRow(0);
+            headerRow.createCell(0).setCellValue("物品名称");
+            headerRow.createCell(1).setCellValue("使用部门");
+            headerRow.createCell(2).setCellValue("备注");
+            for (int i = 1; i <= 3000; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue(name + "物品" + i + " <&>");
+                row.createCell(1).setCellValue(new String[]{"研发部", "财务部", "人事部"}[i % 3]);
+                if (i % 5 == 0) {
+                    row.createCell(2).setCellValue(" 备注\n" + i + " ");
+                }
+            }
+        }
+        File file = tempDir.resolve("catalog.xlsx").toFile();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            workbook.write(outputStream);
+        }
+        workbook.close();
+        
+        Path tmp = Path.of(System.getProperty("java.io.tmpdir"));
+        long before = countFiles(tmp, "excel-sst-");
+        ExcelParseResult heap = runPlugin(file, 1, "目录二", null);
+        ExcelParsePlugin plugin = new ExcelParsePlugin();
+        plugin.setExcelUrl(file.toURI().toString());
+        plugin.setHeaderRowIndex(1);
+        plugin.setSheetName("目录二");
+        plugin.setMappedSharedStrings(true);
+        plugin.setParallelDecoding(true);
+        plugin.setParallelRowThreshold(100);
+        setExecuteLogs(plugin, new ArrayList<>());
+        ExcelParseResult mapped = plugin.run();
+        assertEquals(3000, mapped.getRowCount());
+        assertEquals(heap.getDataList(), mapped.getDataList());
+        
+        plugin.setSheetName(null);
+        plugin.setSheetNames(List.of("*"));
+        ExcelParseResult sheets = plugin.run();
+        assertEquals(heap.getDataList(), sheets.getSheetResults().get("目录二").getDataList());
+        assertEquals(before, countFiles(tmp, "excel-sst-"));
+    }
+    
+    private static long countFiles(Path directory, String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+    
+    @Test
+    void testDeltaMode(@TempDir Path tempDir) throws Exception {
+        File file = tempDir.resolve("delta.csv").toFile();
+        Path stateDir = tempDir.resolve("delta");
+        ExcelParsePlugin plugin = new ExcelParsePlugin();
+        plugin.setExcelUrl(file.toURI().toString());
+        plugin.setHeaderRowIndex(1);
+        plugin.setDeltaKey("expense-report");
+        plugin.setDeltaDir(stateDir.toString());
+        setExecuteLogs(plugin, new ArrayList<>());
+        
+        // 第一次解析建立基线，所有行都是新增
+        Files.write(file.toPath(), "物品名称,数量\n笔记本电脑,2\n打印机,1\n办公桌椅,5\n".getBytes(StandardCharsets.UTF_8));
+        ExcelParseResult first = plugin.run();
+        assertEquals("解析成功", first.getMessage());
+        assertTrue(first.getDelta().isBaseline());
+        assertEquals(3, first.getDelta().getTotalRows());
+        assertEquals(List.of(1, 2, 3), first.getDelta().getAdded());
+        assertEquals(3, first.getDataList().size());
+        
+        // 内容不变时不输出任何行
+        ExcelParseResult unchanged = plugin.run();
+        assertFalse(unchanged.getDelta().isBaseline());
+        assertEquals(0, unchanged.getRowCount());
+        assertTrue(unchanged.getDataList().isEmpty());
+        assertTrue(unchanged.getItems().isEmpty());
+        assertTrue(unchanged.getDelta().getRemoved().isEmpty());
+        
+        // 修改第1行，清空第2行，追加第4行；文本"1"与数字1不同
+        Files.write(file.toPath(), "物品名称,数量\n笔记本电脑,3\n\n办公桌椅,5\n显示器,\"1\"\n".getBytes(StandardCharsets.UTF_8));
+        ExcelParseResult changed = plugin.run();
+        assertEquals(List.of(1), changed.getDelta().getChanged());
+        assertEquals(List.of(4), changed.getDelta().getAdded());
+        assertEquals(List.of(2), changed.getDelta().getRemoved());
+        assertEquals(3, changed.getDelta().getTotalRows());
+        assertEquals(2, changed.getRowCount());
+        assertEquals(3L, changed.getDataList().get(0).get("数量"));
+        assertEquals("显示器", changed.getItems().get(1).getItemName());
+        
+        // 其他标识的状态互不影响，表头变化时重新建立基线
+        plugin.setDeltaKey("other-report");
+        assertTrue(plugin.run().getDelta().isBaseline());
+        plugin.setDeltaKey("expense-report");
+        plugin.setColumns(List.of("物品名称"));
+        ExcelParseResult projected = plugin.run();
+        assertTrue(projected.getDelta().isBaseline());
+        assertEquals(3, projected.getRowCount());
+        plugin.setColumns(null);
+        
+        // 解析失败时不更新状态
+        plugin.setLimit(10);
+        assertEquals("增量模式不支持分页读取", plugin.run().getMessage());
+        plugin.setLimit(null);
+        plugin.setColumns(List.of("物品名称"));
+        assertEquals(0, plugin.run().getRowCount());
+        
+        // 按序号对应时在顶部插入一行，之后的行全部错位为变化
+        File keyed = tempDir.resolve("keyed.csv").toFile();
+        ExcelParsePlugin byPosition = new ExcelParsePlugin();
+        byPosition.setExcelUrl(keyed.toURI().toString());
+        byPosition.setHeaderRowIndex(1);
+        byPosition.setDeltaKey("by-position");
+        byPosition.setDeltaDir(stateDir.toString());
+        setExecuteLogs(byPosition, new ArrayList<>());
+        ExcelParsePlugin byKey = new ExcelParsePlugin();
+        byKey.setExcelUrl(keyed.toURI().toString());
+        byKey.setHeaderRowIndex(1);
+        byKey.setDeltaKey("by-key");
+        byKey.setDeltaDir(stateDir.toString());
+        byKey.setDeltaKeyColumns(List.of("单据编号"));
+        setExecuteLogs(byKey, new ArrayList<>());
+        Files.write(keyed.toPath(), "单据编号,物品名称,数量\nA1,笔记本电脑,2\nA2,打印机,1\nA3,办公桌椅,5\nA3,办公桌椅,6\n"
+                .getBytes(StandardCharsets.UTF_8));
+        assertTrue(byPosition.run().getDelta().isBaseline());
+        assertTrue(byKey.run().getDelta().isBaseline());
+        
+        // 顶部插入A0并修改A2；重复的A3按出现顺序对应
+        Files.write(keyed.toPath(), "单据编号,物品名称,数量\nA0,显示器,1\nA1,笔记本电脑,2\nA2,打印机,2\nA3,办公桌椅,5\nA3,办公桌椅,6\n"
+                .getBytes(StandardCharsets.UTF_8));
+        RowDelta positional = byPosition.run().getDelta();
+        assertEquals(List.of(1, 2, 3, 4), positional.getChanged());
+        assertEquals(List.of(5), positional.getAdded());
+        ExcelParseResult inserted = byKey.run();
+        assertEquals(List.of(1), inserted.getDelta().getAdded());
+        assertEquals(List.of(3), inserted.getDelta().getChanged());
+        assertTrue(inserted.getDelta().getRemoved().isEmpty());
+        assertEquals(2, inserted.getRowCount());
+        assertEquals("显示器", inserted.getItems().get(0).getItemName());
+        
+        // 删除A1，removed中为上一次的序号
+        Files.write(keyed.toPath(), "单据编号,物品名称,数量\nA0,显示器,1\nA2,打印机,2\nA3,办公桌椅,5\nA3,办公桌椅,6\n"
+                .getBytes(StandardCharsets.UTF_8));
+        RowDelta deleted = byKey.run().getDelta();
+        assertEquals(List.of(2), deleted.getRemoved());
+        assertTrue(deleted.getAdded().isEmpty());
+        assertTrue(deleted.getChanged().isEmpty());
+        
+        // 键列变化时重新建立基线，键列不存在时解析失败
+        byKey.setDeltaKeyColumns(List.of("单据编号", "物品名称"));
+        assertTrue(byKey.run().getDelta().isBaseline());
+        byKey.setDeltaKeyColumns(List.of("不存在的列"));
+        assertEquals("找不到指定的增量键列: 不存在的列", byKey.run().getMessage());
+    }
+    
+    @Test
+    void testBatchParsing(@TempDir Path tempDir) throws Exception {
+        // 慢速链接在其他文件解析完成之后才返回内容，解析不等待所有下载完成
+        byte[] content = Files.readAllBytes(testExcelFile.toPath());
+        CountDownLatch parsed = new CountDownLatch(1);
+        AtomicBoolean waited = new AtomicBoolean();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/slow.xlsx", exchange -> {
+            try {
+                waited.set(parsed.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(content);
+            }
+        });
+        server.start();
+        ExcelParsePlugin.setParseMetrics(stats -> {
+            if (stats.isSuccess()) {
+                parsed.countDown();
+            }
+        });
+        try {
+            String slowUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/slow.xlsx";
+            String fastUrl = testExcelFile.toURI().toString();
+            String missingUrl = tempDir.resolve("missing.xlsx").toUri().toString();
+            List<Log> logs = new ArrayList<>();
+            ExcelParsePlugin plugin = new ExcelParsePlugin();
+            plugin.setExcelUrls(List.of(slowUrl, fastUrl, missingUrl, fastUrl));
+            plugin.setHeaderRowIndex(2);
+            plugin.setDownloadConcurrency(3);
+            plugin.setParseConcurrency(2);
+            setExecuteLogs(plugin, logs);
+            ExcelParseResult result = plugin.run();
+            
+            assertTrue(waited.get());
+            assertEquals("部分文件解析失败", result.getMessage());
+            // 重复的链接只解析一次，结果按链接顺序排列
+            assertEquals(List.of(slowUrl, fastUrl, missingUrl), new ArrayList<>(result.getBatchResults().keySet()));
+            ExcelParseResult expected = runPlugin(testExcelFile, 2, null, null);
+            assertEquals(expected.getDataList(), result.getBatchResults().get(slowUrl).getDataList());
+            assertEquals(expected.getItems(), result.getBatchResults().get(fastUrl).getItems());
+            assertTrue(result.getBatchResults().get(missingUrl).getMessage().startsWith("解析Excel文件失败"));
+            
+            assertEquals(3, result.getBatchSummary().getFileCount());
+            assertEquals(2, result.getBatchSummary().getSuccessCount());
+            assertEquals(1, result.getBatchSummary().getFailureCount());
+            assertEquals(6, result.getBatchSummary().getRowCount());
+            assertEquals(content.length, result.getBatchSummary().getBytesDownloaded());
+            assertTrue(logs.stream().anyMatch(log -> !log.isSuccess() && log.getMessage().startsWith(missingUrl + ": ")));
+            assertTrue(logs.get(logs.size() - 1).getMessage().startsWith("批量解析完成，共3个文件，成功2个，失败1个"));
+            
+            // 分页游标只对单个文件有效
+            plugin.setCursor("djE6MTAwMjoxMDAwOjEyMzQ1");
+            assertEquals("批量解析不支持分页游标", plugin.run().getMessage());
+        } finally {
+            ExcelParsePlugin.setParseMetrics(null);
+            server.stop(0);
+        }
+    }
+    
+    @Test
+    void testRangeRequests(@TempDir Path tempDir) throws Exception {
+        // 包含大图片和另一个较大工作表的工作簿
+        Workbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("报销");
+        Row headerRow = sheet.createRow(0);
+        headerRow.createCell(0).setCellValue("物品名称");
+        headerRow.createCell(1).setCellValue("金额");
+        for (int i = 1; i <= 20; i++) {
+            Row row = sheet.createRow(i);
+            row.createCell(0).setCellValue("物品" + i);
+            row.createCell(1).setCellValue(i * 10.5);
+        }
+        byte[] image = new byte[2 * 1024 * 1024];
+        new Random(1).nextBytes(image);
+        int pictureIndex = workbook.addPicture(image, Workbook.PICTURE_TYPE_PNG);
+        ClientAnchor anchor = workbook.getCreationHelper().createClientAnchor();
+        anchor.setCol1(3);
+        anchor.setRow1(1);
+        sheet.createDrawingPatriarch().createPicture(anchor, pictureIndex);
+        Sheet other = workbook.createSheet("附表");
+        for (int i = 0; i < 20000; i++) {
+            other.createRow(i).createCell(0).setCellValue("附表数据" + i + "-" + (i * 7919L % 100003));
+        }
+        File file = tempDir.resolve("receipts.xlsx").toFile();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            workbook.write(outputStream);
+        }
+        workbook.close();
+        byte[] content = Files.readAllBytes(file.toPath());
+        
+        // 支持Range请求的桩服务，rangeSupported为false时忽略Range请求头；
+        // If-Range与当前ETag不一致时返回完整文件，honorIfRange为false时忽略If-Range；
+        // replacement不为null时在返回文件末尾后替换文件内容和ETag
+        AtomicBoolean rangeSupported = new AtomicBoolean(true);
+        AtomicBoolean honorIfRange = new AtomicBoolean(true);
+        AtomicReference<byte[]> current = new AtomicReference<>(content);
+        AtomicReference<String> etag = new AtomicReference<>("\"v1\"");
+        AtomicReference<byte[]> replacement = new AtomicReference<>();
+        AtomicLong servedBytes = new AtomicLong();
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/receipts.xlsx", exchange -> {
+            requests.incrementAndGet();
+            byte[] body = current.get();
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            int start = 0;
+            int end = body.length - 1;
+            exchange.getResponseHeaders().set("ETag", etag.get());
+            if (range != null && rangeSupported.get() && (ifRange == null || !honorIfRange.get() || ifRange.equals(etag.get()))) {
+                String spec = range.substring("bytes=".length());
+                if (spec.startsWith("-")) {
+                    start = Math.max(0, body.length - Integer.parseInt(spec.substring(1)));
+                } else {
+                    String[] bounds = spec.split("-");
+                    start = Integer.parseInt(bounds[0]);
+                    end = Math.min(end, Integer.parseInt(bounds[1]));
+                }
+                exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + body.length);
+                exchange.sendResponseHeaders(206, end - start + 1);
+            } else {
+                exchange.sendResponseHeaders(200, body.length);
+            }
+            servedBytes.addAndGet(end - start + 1);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body, start, end - start + 1);
+            }
+            if (range != null && range.startsWith("bytes=-") && replacement.get() != null) {
+                current.set(replacement.getAndSet(null));
+                etag.set("\"v" + requests.get() + "\"");
+            }
+        });
+        server.start();
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/receipts.xlsx";
+            ExcelParseResult expected = runPlugin(file, 1, "报销", null);
+            List<Log> logs = new ArrayList<>();
+            ExcelParsePlugin plugin = new ExcelParsePlugin();
+            plugin.setExcelUrl(url);
+            plugin.setHeaderRowIndex(1);
+            plugin.setRangeRequests(true);
+            setExecuteLogs(plugin, logs);
+            
+            // 第一个工作表：不下载图片和附表
+            ExcelParseResult partial = plugin.run();
+            assertEquals("解析成功", partial.getMessage());
+            assertEquals(expected.getDataList(), partial.getDataList());
+            assertTrue(servedBytes.get() < content.length / 10, "下载了" + servedBytes.get() + "字节");
+            assertTrue(requests.get() <= 6);
+            assertTrue(logs.stream().anyMatch(log -> log.getMessage().startsWith("按需下载")));
+            
+            // 组装后的文件写入临时文件时，条目直接写入文件中的对应位置
+            plugin.setSpillThresholdBytes(0L);
+            assertEquals(expected.getDataList(), plugin.run().getDataList());
+            plugin.setSpillThresholdBytes(null);
+            
+            // 指定工作表名称和多工作表解析
+            plugin.setSheetName("附表");
+            ExcelParseResult otherSheet = plugin.run();
+            assertEquals(runPlugin(file, 1, "附表", null).getDataList(), otherSheet.getDataList());
+            plugin.setSheetName(null);
+            plugin.setSheetNames(List.of("*"));
+            ExcelParseResult sheets = plugin.run();
+            assertEquals(expected.getDataList(), sheets.getSheetResults().get("报销").getDataList());
+            assertEquals(otherSheet.getDataList(), sheets.getSheetResults().get("附表").getDataList());
+            
+            // 工作簿模式读取所有工作表，图片仍然跳过
+            plugin.setSheetNames(null);
+            plugin.setSheetName("报销");
+            plugin.setParseMode("WORKBOOK");
+            servedBytes.set(0);
+            assertEquals(expected.getDataList(), plugin.run().getDataList());
+            assertTrue(servedBytes.get() < content.length / 2);
+            plugin.setParseMode(null);
+            
+            // 读取文件末尾后文件被修改：服务端按If-Range返回完整文件，改为下载完整文件，得到修改后的内容
+            Workbook changedWorkbook = new XSSFWorkbook();
+            Sheet changedSheet = changedWorkbook.createSheet("报销");
+            changedSheet.createRow(0).createCell(0).setCellValue("物品名称");
+            changedSheet.getRow(0).createCell(1).setCellValue("金额");
+            changedSheet.createRow(1).createCell(0).setCellValue("修改后的物品");
+            changedSheet.getRow(1).createCell(1).setCellValue(99.5);
+            File changedFile = tempDir.resolve("changed.xlsx").toFile();
+            try (FileOutputStream outputStream = new FileOutputStream(changedFile)) {
+                changedWorkbook.write(outputStream);
+            }
+            changedWorkbook.close();
+            byte[] changed = Files.readAllBytes(changedFile.toPath());
+            replacement.set(changed);
+            logs.clear();
+            ExcelParseResult modified = plugin.run();
+            assertEquals("解析成功", modified.getMessage());
+            assertEquals(runPlugin(changedFile, 1, "报销", null).getDataList(), modified.getDataList());
+            assertFalse(logs.stream().anyMatch(log -> log.getMessage().startsWith("按需下载")));
+            
+            // 服务端忽略If-Range时，响应中的ETag变化同样视为文件已被修改（内容和长度不变）
+            current.set(content);
+            honorIfRange.set(false);
+            replacement.set(content);
+            servedBytes.set(0);
+            assertEquals(expected.getDataList(), plugin.run().getDataList());
+            assertTrue(servedBytes.get() >= content.length);
+            honorIfRange.set(true);
+            
+            // 服务端不支持Range请求时下载完整文件
+            rangeSupported.set(false);
+            servedBytes.set(0);
+            logs.clear();
+            ExcelParseResult full = plugin.run();
+            assertEquals(expected.getDataList(), full.getDataList());
+            assertTrue(servedBytes.get() >= content.length);
+            assertFalse(logs.stream().anyMatch(log -> log.getMessage().startsWith("按需下载")));
+        } finally {
+            server.stop(0);
+        }
+    }
+    
+    @Test
+    void testExtractEmbeddedImages(@TempDir Path tempDir) throws Exception {
+        // 第1行和第3行数据的照片单元格中嵌入图片，第2行照片列为链接
+        Workbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("报销");
+        Row headerRow = sheet.createRow(0);
+        headerRow.createCell(0).setCellValue("物品名称");
+        headerRow.createCell(1).setCellValue("照片");
+        for (int i = 1; i <= 4; i++) {
+            sheet.createRow(i).createCell(0).setCellValue("物品" + i);
+        }
+        sheet.getRow(2).createCell(1).setCellValue("http://example.com/photo.jpg");
+        byte[] first = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+        byte[] second = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 4, 5, 6};
+        Drawing<?> drawing = sheet.createDrawingPatriarch();
+        int[][] placements = {{1, workbook.addPicture(first, Workbook.PICTURE_TYPE_PNG)},
+                {3, workbook.addPicture(second, Workbook.PICTURE_TYPE_JPEG)}};
+        for (int[] placement : placements) {
+            ClientAnchor anchor = workbook.getCreationHelper().createClientAnchor();
+            anchor.setCol1(1);
+            anchor.setRow1(placement[0]);
+            anchor.setCol2(2);
+            anchor.setRow2(placement[0] + 1);
+            drawing.createPicture(anchor, placement[1]);
+        }
+        File file = tempDir.resolve("photos.xlsx").toFile();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            workbook.write(outputStream);
+        }
+        workbook.close();
+        
+        Path imageDir = tempDir.resolve("images");
+        for (String parseMode : new String[]{null, "WORKBOOK"}) {
+            List<Log> logs = new ArrayList<>();
+            ExcelParsePlugin plugin = new ExcelParsePlugin();
+            plugin.setExcelUrl(file.toURI().toString());
+            plugin.setHeaderRowIndex(1);
+            plugin.setParseMode(parseMode);
+            plugin.setExtractImages(true);
+            plugin.setImageDir(imageDir.toString());
+            setExecuteLogs(plugin, logs);
+            List<ExcelItem> items = plugin.run().getItems();
+            
+            assertEquals(4, items.size());
+            assertArrayEquals(first, Files.readAllBytes(Path.of(URI.create(items.get(0).getPhotoUrl()))));
+            assertEquals("http://example.com/photo.jpg", items.get(1).getPhotoUrl());
+            assertTrue(items.get(2).getPhotoUrl().endsWith(".jpeg"));
+            assertArrayEquals(second, Files.readAllBytes(Path.of(URI.create(items.get(2).getPhotoUrl()))));
+            assertNull(items.get(3).getPhotoUrl());
+            assertTrue(logs.stream().anyMatch(log -> log.getMessage().equals("提取2张嵌入图片")));
+        }
+        
+        // 宿主注册的图片存储，多工作表解析时同样生效
+        Map<String, Integer> stored = new ConcurrentHashMap<>();
+        ExcelParsePlugin.setImageStore((sheetName, rowIndex, fileName, content) -> {
+            stored.put(sheetName + "!" + rowIndex, content.readAllBytes().length);
+            return "oss://receipts/" + sheetName + "/" + rowIndex + "/" + fileName;
+        });
+        try {
+            ExcelParsePlugin plugin = new ExcelParsePlugin();
+            plugin.setExcelUrl(file.toURI().toString());
+            plugin.setHeaderRowIndex(1);
+            plugin.setSheetNames(List.of("*"));
+            plugin.setExtractImages(true);
+            setExecuteLogs(plugin, new ArrayList<>());
+            List<ExcelItem> items = plugin.run().getSheetResults().get("报销").getItems();
+            assertEquals("oss://receipts/报销/1/image1.png", items.get(0).getPhotoUrl());
+            assertEquals("oss://receipts/报销/3/image2.jpeg", items.get(2).getPhotoUrl());
+            assertEquals(Map.of("报销!1", first.length, "报销!3", second.length), stored);
+        } finally {
+            ExcelParsePlugin.setImageStore(null);
+        }
+    }
+    
+    @Test
+    void testStreamingAggregation(@TempDir Path tempDir) throws Exception {
+        String csv = "采购日期,使用部门,费用类型,金额,数量\n"
+                + "2023/01/15,研发部,办公设备,16000,2\n"
+                + "2023/01/20,研发部,办公设备,500.5,1\n"
+                + "2023/02/03,财务部,差旅,300,\n"
+                + "2023/02/18,研发部,差旅,待定,3\n"
+                + "\n"
+                + "2023/03/01,财务部,办公设备,1200,4\n";
+        File csvFile = tempDir.resolve("expenses.csv").toFile();
+        Files.write(csvFile.toPath(), csv.getBytes(StandardCharsets.UTF_8));
+        ExcelParsePlugin plugin = new ExcelParsePlugin();
+        plugin.setExcelUrl(csvFile.toURI().toString());
+        plugin.setHeaderRowIndex(1);
+        plugin.setOutputType("NONE");
+        plugin.setGroupBy(List.of("使用部门", "费用类型"));
+        plugin.setAggregates(List.of("sum(金额)", "count(*)", "count(数量)", "min(金额)", "max(金额)", "avg(金额)"));
+        setExecuteLogs(plugin, new ArrayList<>());
+        ExcelParseResult result = plugin.run();
+        
+        // 只返回行数和聚合结果，分组按第一次出现的顺序
+        assertEquals("解析成功", result.getMessage());
+        assertNull(result.getDataList());
+        assertNull(result.getItems());
+        assertEquals(5, result.getRowCount());
+        List<Map<String, Object>> groups = result.getAggregates();
+        assertEquals(4, groups.size());
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("使用部门", "研发部");
+        expected.put("费用类型", "办公设备");
+        expected.put("sum(金额)", 16500.5);
+        expected.put("count(*)", 2L);
+        expected.put("count(数量)", 2L);
+        expected.put("min(金额)", 500.5);
+        expected.put("max(金额)", 16000L);
+        expected.put("avg(金额)", 8250.25);
+        assertEquals(expected, groups.get(0));
+        assertEquals(List.copyOf(expected.keySet()), List.copyOf(groups.get(0).keySet()));
+        assertEquals(300L, groups.get(1).get("sum(金额)"));
+        assertEquals(0L, groups.get(1).get("count(数量)"));
+        // 无法转换为数字的值不参与计算
+        assertEquals("差旅", groups.get(2).get("费用类型"));
+        assertEquals(1L, groups.get(2).get("count(*)"));
+        assertNull(groups.get(2).get("sum(金额)"));
+        assertNull(groups.get(2).get("avg(金额)"));
+        assertEquals(1200L, groups.get(3).get("max(金额)"));
+        
+        // 按月分组，同时输出数据行；只指定分组列时统计行数
+        ExcelParsePlugin monthly = new ExcelParsePlugin();
+        monthly.setExcelUrl(testExcelFile.toURI().toString());
+        monthly.setHeaderRowIndex(2);
+        monthly.setGroupBy(List.of("month(采购日期)"));
+        setExecuteLogs(monthly, new ArrayList<>());
+        ExcelParseResult monthlyResult = monthly.run();
+        assertEquals(3, monthlyResult.getDataList().size());
+        assertEquals(List.of(Map.of("month(采购日期)", "2023-01", "count(*)", 1L),
+                Map.of("month(采购日期)", "2023-02", "count(*)", 1L),
+                Map.of("month(采购日期)", "2023-03", "count(*)", 1L)), monthlyResult.getAggregates());
+        monthly.setGroupBy(null);
+        monthly.setAggregates(List.of("sum(金额)", "avg(数量)"));
+        monthly.setResultFormat("COLUMNAR");
+        assertEquals(List.of(Map.of("sum(金额)", 25000L, "avg(数量)", 8 / 3.0)), monthly.run().getAggregates());
+        
+        // 表达式错误
+        monthly.setAggregates(List.of("median(金额)"));
+        assertEquals("不支持的聚合表达式: median(金额)", monthly.run().getMessage());
+        monthly.setAggregates(List.of("sum(费用)"));
+        assertEquals("找不到指定的列: 费用", monthly.run().getMessage());
+    }
+    
+    @Test
+    void testRowFilter() throws Exception {
+        for (String parseMode : List.of("STREAMING", "WORKBOOK")) {
+            ExcelParsePlugin plugin = new ExcelParsePlugin();
+            plugin.setExcelUrl(testExcelFile.toURI().toString());
+            plugin.setHeaderRowIndex(2);
+            plugin.setParseMode(parseMode);
+            plugin.setFilter("费用类型 = '办公设备' AND 金额 > 5000");
+            setExecuteLogs(plugin, new ArrayList<>());
+            ExcelParseResult result = plugin.run();
+            assertEquals("解析成功", result.getMessage());
+            assertEquals(1, result.getRowCount());
+            assertEquals("技术部", result.getDataList().get(0).get("使用部门"));
+            assertEquals("技术部", result.getItems().get(0).getDepartment());
+            
+            // 序号按行在工作表中的位置计算，被过滤的行留下空缺
+            plugin.setFilter("使用部门 = '技术部' or 使用部门 = '市场部'");
+            result = plugin.run();
+            assertEquals(2, result.getRowCount());
+            assertEquals(1, result.getItems().get(0).getSerialNumber());
+            assertEquals(3, result.getItems().get(1).getSerialNumber());
+            assertEquals(3, result.getDataList().get(1).get("序号"));
+            
+            // 日期文本按日期比较，分隔符可以不同
+            plugin.setFilter("采购日期 >= '2023/02/01' AND 采购日期 < '2023-03-01'");
+            result = plugin.run();
+            assertEquals(1, result.getRowCount());
+            assertEquals("打印机", result.getItems().get(0).getItemName());
+            
+            // AND优先于OR，空单元格不满足任何比较
+            plugin.setFilter("(数量 >= 2 OR 单价 = 3000) AND 备注 != '紧急'");
+            result = plugin.run();
+            assertEquals(1, result.getRowCount());
+            assertEquals("市场部", result.getItems().get(0).getDepartment());
+        }
+        
+        // 分页只计算满足条件的行
+        ExcelParsePlugin firstPage = new ExcelParsePlugin();
+        firstPage.setExcelUrl(testExcelFile.toURI().toString());
+        firstPage.setHeaderRowIndex(2);
+        firstPage.setFilter("金额 >= 6000");
+        firstPage.setLimit(1);
+        setExecuteLogs(firstPage, new ArrayList<>());
+        ExcelParseResult page1 = firstPage.run();
+        assertEquals(1, page1.getItems().size());
+        assertEquals("技术部", page1.getItems().get(0).getDepartment());
+        assertTrue(page1.getHasMore());
+        firstPage.setCursor(page1.getNextCursor());
+        ExcelParseResult page2 = firstPage.run();
+        assertEquals(1, page2.getItems().size());
+        assertEquals("市场部", page2.getItems().get(0).getDepartment());
+        assertFalse(page2.getHasMore());
+        
+        // 条件不同的游标不能混用
+        firstPage.setFilter("金额 > 0");
+        assertNotEquals("解析成功", firstPage.run().getMessage());
+        
+        // 条件错误
+        ExcelParsePlugin invalid = new ExcelParsePlugin();
+        invalid.setExcelUrl(testExcelFile.toURI().toString());
+        invalid.setHeaderRowIndex(2);
+        invalid.setFilter("金额 >");
+        setExecuteLogs(invalid, new ArrayList<>());
+        assertEquals("无法解析过滤条件（第5个字符）: 金额 >", invalid.run().getMessage());
+        invalid.setFilter("部门 = '技术部'");
+        assertEquals("找不到指定的列: 部门", invalid.run().getMessage());
+    }
+    
+    private ExcelParseResult runPlugin(File file, int headerRowIndex, String sheetName, String parseMode) throws Exception {
+        ExcelParsePlugin plugin = new ExcelParsePlugin();
+        plugin.setExcelUrl(file.toURI().toString());
+        plugin.setHeaderRowIndex(headerRowIndex);
+        plugin.setSheetName(sheetName);
+        plugin.setParseMode(parseMode);
+        setExecuteLogs(plugin, new ArrayList<>());
+        return plugin.run();
     }
 
     /**